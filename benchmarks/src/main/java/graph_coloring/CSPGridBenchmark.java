@@ -0,0 +1,65 @@
+package graph_coloring;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark of CSPGrid search - each operation solves a new Grid up to the first solution.
+ * Throughput mode reports solves and nodes (steps) per second, AverageTime mode reports time to first solution.
+ * Run with -prof gc for allocation rate.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CSPGridBenchmark
+{
+    @Param({"3", "4", "5", "6", "7", "8", "9", "10", "11", "12"})
+    public int n;
+
+    /**
+     * Amount of search nodes (steps) made by solver, reported as a secondary result
+     */
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    @State(Scope.Thread)
+    public static class Nodes
+    {
+        public long nodes;
+
+        @Setup(Level.Iteration)
+        public void clear()
+        {
+            nodes = 0;
+        }
+    }
+
+    @Benchmark
+    public Integer[][] backtracking(Nodes _nodes)
+    {
+        CSPGrid solver = new CSPGrid(n);
+        solver.setPrintSolution(false);
+        _nodes.nodes += solver.Backtracking(0);
+        return solver.getSolution();
+    }
+
+    @Benchmark
+    public Integer[][] forwardChecking(Nodes _nodes)
+    {
+        CSPGrid solver = new CSPGrid(n);
+        solver.setPrintSolution(false);
+        _nodes.nodes += solver.ForwardChecking(0);
+        return solver.getSolution();
+    }
+
+    @Benchmark
+    public Integer[][] maintainingArcConsistency(Nodes _nodes)
+    {
+        CSPGrid solver = new CSPGrid(n);
+        solver.setPrintSolution(false);
+        _nodes.nodes += solver.MaintainingArcConsistency(0);
+        return solver.getSolution();
+    }
+}
@@ -0,0 +1,149 @@
+package graph_coloring;
+
+import csp_core.VarOrdering;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark of Grid hot paths used at each search node: constraint checks, forward-checking domain pruning
+ * (with backing of deleted colors) and choosing the next position to fill.
+ * Grids are prepared from a solution found by ForwardChecking, half of positions (row by row) is filled.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GridBenchmark
+{
+    @Param({"5", "10", "12"})
+    public int n;
+
+    private Grid filledGrid;            //Grid with all positions filled by solution
+    private Grid halfGrid;              //Grid with the first half of positions filled and pruned forward
+    private Position[] positions;       //All positions of Grid
+    private Position[] unfilled;        //Not filled positions of halfGrid
+    private int[] unfilledColors;       //Colors of not filled positions in solution
+
+    /**
+     * Grid prepared for variable selection with each ordering heuristic
+     */
+    @State(Scope.Thread)
+    public static class Selection
+    {
+        @Param({"FIRST_NOT_FILLED", "MOST_UNFILLED_NEIGHBOURS", "SMALLEST_DOMAIN", "INCREMENTAL_MRV"})
+        public VarOrdering ordering;
+
+        private Grid grid;
+
+        @Setup(Level.Trial)
+        public void prepare(GridBenchmark _benchmark)
+        {
+            grid = new Grid(_benchmark.halfGrid);
+            grid.setVar_ordering(ordering);
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void prepare()
+    {
+        CSPGrid solver = new CSPGrid(n);
+        solver.setPrintSolution(false);
+        solver.ForwardChecking(0);
+        Integer[][] solution = solver.getSolution();
+
+        int colors = 0;
+        positions = new Position[n * n];
+        for(int i = 0; i < n * n; i++)
+        {
+            positions[i] = new Position(i / n, i % n);
+            colors = Math.max(colors, solution[i / n][i % n] + 1);
+        }
+
+        filledGrid = createGrid(colors);
+        halfGrid = createGrid(colors);
+        unfilled = new Position[n * n - n * n / 2];
+        unfilledColors = new int[unfilled.length];
+        for(int i = 0; i < n * n; i++)
+        {
+            Position pos = positions[i];
+            int color = solution[pos.getRow()][pos.getColumn()];
+            fill(filledGrid, pos, color);
+            if(i < n * n / 2) fill(halfGrid, pos, color);
+            else
+            {
+                unfilled[i - n * n / 2] = pos;
+                unfilledColors[i - n * n / 2] = color;
+            }
+        }
+    }
+
+    /**
+     * Creates an empty Grid with domains expanded to _colors
+     * @param _colors amount of colors
+     * @return created Grid
+     */
+    private Grid createGrid(int _colors)
+    {
+        Grid grid = new Grid(n);
+        while(grid.getColors_amount() < _colors) grid.expandDomains();
+        return grid;
+    }
+
+    /**
+     * Fills a position the same way as ForwardChecking does
+     * @param _grid Grid to fill
+     * @param _p Position to fill
+     * @param _color color to set
+     */
+    private static void fill(Grid _grid, Position _p, int _color)
+    {
+        _grid.setColorAtPosition(_color, _p);
+        _grid.setPositionAsFilled(_p);
+        _grid.deleteDomainsForward(_p, _color);
+    }
+
+    /**
+     * Checks all constraints at each position of filled Grid
+     * @return amount of positions satisfying constraints
+     */
+    @Benchmark
+    public int constraintChecks()
+    {
+        int result = 0;
+        for(Position pos : positions)
+        {
+            if(filledGrid.hasDifferentColorsWithNeighbours(pos, 2)
+                    && filledGrid.hasDifferentColorsWithPositionsDistantBy2(pos)) result++;
+        }
+        return result;
+    }
+
+    /**
+     * Prunes domains forward from each not filled position and backs deleted colors
+     * @return trail size after backing (keeps result alive)
+     */
+    @Benchmark
+    public int domainPruning()
+    {
+        for(int i = 0; i < unfilled.length; i++)
+        {
+            halfGrid.deleteDomainsForward(unfilled[i], unfilledColors[i]);
+            halfGrid.backDeletedColorFromDomains();
+        }
+        return halfGrid.getTrail().getSize();
+    }
+
+    /**
+     * Chooses the next position to fill in half filled Grid
+     * @param _selection Grid prepared for chosen ordering
+     * @return chosen position
+     */
+    @Benchmark
+    public Position variableSelection(Selection _selection)
+    {
+        return _selection.grid.selectNotFilledPosition();
+    }
+}
@@ -0,0 +1,119 @@
+package latin_square;
+
+import csp_core.VarOrdering;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark of Grid hot paths used at each search node: constraint checks, forward-checking domain pruning
+ * (with backing of deleted values) and choosing the next position to fill.
+ * Grids are prepared from a solution found by ForwardChecking, half of positions (row by row) is filled.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GridBenchmark
+{
+    @Param({"5", "10", "14"})
+    public int n;
+
+    private Grid halfGrid;              //Grid with the first half of positions filled and pruned forward
+    private Position[] unfilled;        //Not filled positions of halfGrid
+    private int[] unfilledVals;         //Values of not filled positions in solution
+
+    /**
+     * Grid prepared for variable selection with each ordering heuristic
+     */
+    @State(Scope.Thread)
+    public static class Selection
+    {
+        @Param({"FIRST_NOT_FILLED", "MOST_UNFILLED_NEIGHBOURS", "SMALLEST_DOMAIN", "INCREMENTAL_MRV"})
+        public VarOrdering ordering;
+
+        private Grid grid;
+
+        @Setup(Level.Trial)
+        public void prepare(GridBenchmark _benchmark)
+        {
+            grid = new Grid(_benchmark.halfGrid);
+            grid.setVar_ordering(ordering);
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void prepare()
+    {
+        CSPLatinSquare solver = new CSPLatinSquare(n);
+        solver.setPrintSolution(false);
+        solver.ForwardChecking(0);
+        Integer[][] solution = solver.getSolution();
+
+        halfGrid = new Grid(n);
+        unfilled = new Position[n * n - n * n / 2];
+        unfilledVals = new int[unfilled.length];
+        for(int i = 0; i < n * n; i++)
+        {
+            Position pos = new Position(i / n, i % n);
+            int val = solution[i / n][i % n];
+            if(i < n * n / 2)
+            {
+                halfGrid.setValAtPosition(val, pos);
+                halfGrid.setPositionAsFilled(pos);
+                halfGrid.deleteValsFromDomainsForward(pos, val);
+            }
+            else
+            {
+                unfilled[i - n * n / 2] = pos;
+                unfilledVals[i - n * n / 2] = val;
+            }
+        }
+    }
+
+    /**
+     * Checks row and column constraints of each value at each not filled position
+     * @return amount of allowed values
+     */
+    @Benchmark
+    public int constraintChecks()
+    {
+        int result = 0;
+        for(Position pos : unfilled)
+        {
+            for(int val = 0; val < n; val++)
+            {
+                if(halfGrid.isValAllowedAtPosition(val, pos)) result++;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Prunes domains forward from each not filled position and backs deleted values
+     * @return trail size after backing (keeps result alive)
+     */
+    @Benchmark
+    public int domainPruning()
+    {
+        for(int i = 0; i < unfilled.length; i++)
+        {
+            halfGrid.deleteValsFromDomainsForward(unfilled[i], unfilledVals[i]);
+            halfGrid.backDeletedValsFromDomains();
+        }
+        return halfGrid.getTrail().getSize();
+    }
+
+    /**
+     * Chooses the next position to fill in half filled Grid
+     * @param _selection Grid prepared for chosen ordering
+     * @return chosen position
+     */
+    @Benchmark
+    public Position variableSelection(Selection _selection)
+    {
+        return _selection.grid.selectNotFilledPosition();
+    }
+}
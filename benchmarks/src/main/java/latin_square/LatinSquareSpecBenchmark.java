@@ -0,0 +1,90 @@
+package latin_square;
+
+import csp_core.BatchResult;
+import csp_core.BatchSolver;
+import csp_core.VarOrdering;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark of batch solving of many small Latin square instances - a new CSPLatinSquare for each instance
+ * against LatinSquareSpec (solver from the per-thread pool) on the calling thread and on BatchSolver.
+ * Run with -prof gc to compare allocation rate.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LatinSquareSpecBenchmark
+{
+    private static final int BATCH = 64;    //Amount of instances solved by one operation
+
+    @Param({"8", "12", "16"})
+    public int n;
+
+    @Param({"2"})
+    public int threads;
+
+    private Integer[][][] instances;
+    private BatchSolver batchSolver;
+
+    @Setup(Level.Trial)
+    public void setUp()
+    {
+        instances = new Integer[BATCH][][];
+        for(int i = 0; i < BATCH; i++) instances[i] = QuasigroupWithHoles.generate(n, 0.42, i);
+        batchSolver = new BatchSolver(threads, 2 * threads);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown()
+    {
+        batchSolver.shutdown();
+    }
+
+    @Benchmark
+    public int freshSolvers()
+    {
+        int solved = 0;
+        for(Integer[][] instance : instances)
+        {
+            CSPLatinSquare solver = new CSPLatinSquare(n);
+            solver.setPrintSolution(false);
+            solver.loadPartialSquare(instance);
+            solver.setVarOrdering(VarOrdering.SMALLEST_DOMAIN);
+            solver.MaintainingArcConsistency(0);
+            if(solver.getSolution() != null) solved++;
+        }
+        return solved;
+    }
+
+    @Benchmark
+    public int pooledSolvers()
+    {
+        int solved = 0;
+        for(Integer[][] instance : instances)
+        {
+            if(new LatinSquareSpec(instance).solve(null).isSolved()) solved++;
+        }
+        return solved;
+    }
+
+    @Benchmark
+    public int batchSolver() throws Exception
+    {
+        List<CompletableFuture<BatchResult>> results = new ArrayList<>();
+        for(Integer[][] instance : instances) results.add(batchSolver.submit(new LatinSquareSpec(instance)));
+        int solved = 0;
+        for(CompletableFuture<BatchResult> result : results)
+        {
+            if(result.get().isSolved()) solved++;
+        }
+        return solved;
+    }
+}
@@ -0,0 +1,73 @@
+package latin_square;
+
+import csp_core.RestartSchedule;
+import csp_core.VarOrdering;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmark of partial Latin square completion - each operation loads a quasigroup with holes (QWH) instance
+ * into a new CSPLatinSquare (with load-time propagation) and completes it. Hole ratios are around
+ * the phase transition (about 42% of holes), where instances are the hardest.
+ * The same seeded instance is used for all operations of a trial.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class QuasigroupCompletionBenchmark
+{
+    @Param({"15", "20", "25", "30"})
+    public int n;
+
+    @Param({"0.3", "0.42", "0.5"})
+    public double holes;
+
+    private Integer[][] instance;
+
+    /**
+     * Amount of search nodes (steps) made by solver, reported as a secondary result
+     */
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    @State(Scope.Thread)
+    public static class Nodes
+    {
+        public long nodes;
+
+        @Setup(Level.Iteration)
+        public void clear()
+        {
+            nodes = 0;
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void generate()
+    {
+        instance = QuasigroupWithHoles.generate(n, holes, 42);
+    }
+
+    @Benchmark
+    public Integer[][] maintainingArcConsistency(Nodes _nodes)
+    {
+        CSPLatinSquare solver = new CSPLatinSquare(n);
+        solver.setPrintSolution(false);
+        solver.setVarOrdering(VarOrdering.SMALLEST_DOMAIN);
+        if(solver.loadPartialSquare(instance)) _nodes.nodes += solver.MaintainingArcConsistency(0);
+        return solver.getSolution();
+    }
+
+    @Benchmark
+    public Integer[][] maintainingArcConsistencyWithRestarts(Nodes _nodes)
+    {
+        CSPLatinSquare solver = new CSPLatinSquare(n);
+        solver.setPrintSolution(false);
+        solver.setVarOrdering(VarOrdering.SMALLEST_DOMAIN);
+        solver.setSeed(n);
+        if(solver.loadPartialSquare(instance)) _nodes.nodes += solver.MaintainingArcConsistencyWithRestarts(RestartSchedule.luby(100));
+        return solver.getSolution();
+    }
+}
@@ -0,0 +1,12 @@
+package csp_core;
+
+/**
+ * Search algorithms of CSPGrid and CSPLatinSquare
+ */
+public enum Algorithm
+{
+    BACKTRACKING,                   //Checks constraints of assigned variable on assignment
+    FORWARD_CHECKING,               //Deletes values conflicting with assigned variable
+    MAINTAINING_ARC_CONSISTENCY,    //Forward checking + propagation of deletions to fixpoint
+    CONFLICT_DIRECTED_BACKJUMPING   //Backtracking which jumps back to the culprit of failure, learns nogoods
+}
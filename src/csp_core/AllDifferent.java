@@ -0,0 +1,302 @@
+package csp_core;
+
+import java.util.Arrays;
+
+/**
+ * All-different global constraint with full (generalized arc consistency) filtering by Regin's algorithm.
+ * A maximum matching between not assigned variables and values is kept between calls and only repaired
+ * (augmenting paths for variables which lost their matched value), then values which don't belong to
+ * any maximum matching (no alternating cycle / path to a free value - strongly connected components
+ * of residual graph) are deleted. It also detects every Hall set, a variable subset with as many values
+ * as variables takes these values from all other variables.
+ * Assigned variables are skipped, their values should be already deleted from domains of others (forward checking).
+ */
+public class AllDifferent
+{
+    /**
+     * Deletes a value from domain of variable (e.g. with pushing it on trail)
+     */
+    public interface Pruner
+    {
+        /**
+         * Deletes a value from domain of variable
+         * @param _var index of variable
+         * @param _val value to delete
+         * @return true if domain is not empty after deletion, false if it has been wiped out
+         */
+        boolean delete(int _var, int _val);
+    }
+
+    private int[] scope;            //Indexes of variables which values have to be different
+    private int[] matched;          //Value matched with each variable of scope (-1 if not matched), kept between calls
+    private int capacity;           //Maximal value + 1 (size of value arrays)
+    private int words;              //Amount of longs of each domain
+
+    private int[] active;           //Positions in scope of not assigned variables
+    private int active_amount;      //Amount of not assigned variables
+    private long[] domains;         //Copy of domains of active variables (words longs for each one)
+    private long[] union;           //Values in domain of some active variable
+    private long[] owned;           //Matched values
+    private int[] owner;            //Active variable matched with each value (-1 if value is free)
+    private long[] visited;         //Values visited by augmenting path search
+
+    private int[] order;            //Visit order of residual graph nodes (-1 if not visited)
+    private int[] low;              //The lowest order reachable from node (Tarjan)
+    private int[] component;        //Strongly connected component of node
+    private int[] stack;            //Stack of nodes of not finished components
+    private boolean[] on_stack;     //Node is on stack flags
+    private int stack_size;         //Amount of nodes on stack
+    private int counter;            //Amount of visited nodes
+    private int components;         //Amount of found components
+
+    /**
+     * AllDifferent constructor
+     * @param _scope indexes of variables which values have to be different
+     * @param _capacity maximal value + 1
+     */
+    public AllDifferent(int[] _scope, int _capacity)
+    {
+        scope = _scope.clone();
+        matched = new int[scope.length];
+        Arrays.fill(matched, -1);
+        active = new int[scope.length];
+        allocate(_capacity, Math.max(1, (_capacity + 63) >>> 6));
+    }
+
+    //----------
+    // METHODS |-----------------------------------------------------------
+    //----------
+
+    /**
+     * Allocates arrays indexed by values and nodes of residual graph
+     * @param _capacity maximal value + 1
+     * @param _words amount of longs of each domain
+     */
+    private void allocate(int _capacity, int _words)
+    {
+        capacity = _capacity;
+        words = _words;
+        domains = new long[scope.length * words];
+        union = new long[words];
+        owned = new long[words];
+        owner = new int[capacity];
+        visited = new long[words];
+        int nodes = scope.length + capacity + 1;
+        order = new int[nodes];
+        low = new int[nodes];
+        component = new int[nodes];
+        stack = new int[nodes];
+        on_stack = new boolean[nodes];
+    }
+
+    /**
+     * Deletes all values which can't be taken by variable in any solution of the constraint
+     * @param _domains domains of all variables
+     * @param _assignment values of all variables (negative for not assigned variables)
+     * @param _pruner deletes values from domains
+     * @return true if constraint can be satisfied, false if it can't (or pruner wiped out a domain)
+     */
+    public boolean propagate(BitDomains _domains, int[] _assignment, Pruner _pruner)
+    {
+        if(_domains.getCapacity() != capacity || _domains.getWordsPerVar() != words)
+            allocate(_domains.getCapacity(), _domains.getWordsPerVar());
+        active_amount = 0;
+        Arrays.fill(union, 0);
+        for(int i = 0; i < scope.length; i++)
+        {
+            if(_assignment[scope[i]] >= 0)
+            {
+                matched[i] = -1;
+                continue;
+            }
+            int base = active_amount * words;
+            for(int w = 0; w < words; w++)
+            {
+                domains[base + w] = _domains.getWord(scope[i], w);
+                union[w] |= domains[base + w];
+            }
+            active[active_amount++] = i;
+        }
+        if(active_amount == 0) return true;
+
+        //Repairing matching from the previous call
+        Arrays.fill(owned, 0);
+        for(int j = 0; j < active_amount; j++)
+        {
+            int val = matched[active[j]];
+            if(val >= 0 && val < capacity && !has(owned, 0, val) && has(domains, j * words, val))
+            {
+                owned[val >>> 6] |= 1L << val;
+                owner[val] = j;
+            }
+            else matched[active[j]] = -1;
+        }
+        for(int j = 0; j < active_amount; j++)
+        {
+            if(matched[active[j]] != -1) continue;
+            Arrays.fill(visited, 0);
+            //There is no matching covering all variables - constraint can't be satisfied
+            if(!augment(j)) return false;
+        }
+
+        //Strongly connected components of residual graph
+        int nodes = active_amount + capacity + 1;
+        Arrays.fill(order, 0, nodes, -1);
+        counter = 0;
+        components = 0;
+        stack_size = 0;
+        for(int j = 0; j < active_amount; j++)
+        {
+            if(order[j] == -1) connect(j);
+        }
+        if(order[nodes - 1] == -1) connect(nodes - 1);
+
+        //Deleting values which are not matched and lie in other component than variable
+        for(int j = 0; j < active_amount; j++)
+        {
+            int match = matched[active[j]];
+            for(int w = 0; w < words; w++)
+            {
+                long bits = domains[j * words + w];
+                while(bits != 0)
+                {
+                    int val = (w << 6) + Long.numberOfTrailingZeros(bits);
+                    bits &= bits - 1;
+                    if(val != match && component[j] != component[active_amount + val]
+                            && !_pruner.delete(scope[active[j]], val)) return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Checks if a value is in bitset
+     * @param _bitset words of bitset
+     * @param _base index of the first word
+     * @param _val value
+     * @return true if value is in bitset, false if it's not
+     */
+    private static boolean has(long[] _bitset, int _base, int _val)
+    {
+        return (_bitset[_base + (_val >>> 6)] & (1L << _val)) != 0;
+    }
+
+    /**
+     * Searches for an augmenting path from active variable (Kuhn's algorithm)
+     * @param _j index of active variable
+     * @return true if variable has been matched, false if it's not
+     */
+    private boolean augment(int _j)
+    {
+        for(int w = 0; w < words; w++)
+        {
+            long bits = domains[_j * words + w] & ~visited[w];
+            while(bits != 0)
+            {
+                int val = (w << 6) + Long.numberOfTrailingZeros(bits);
+                bits &= bits - 1;
+                if(has(visited, 0, val)) continue;
+                visited[w] |= 1L << val;
+                if(!has(owned, 0, val) || augment(owner[val]))
+                {
+                    owned[w] |= 1L << val;
+                    owner[val] = _j;
+                    matched[active[_j]] = val;
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Visits a node of residual graph and finds strongly connected components (Tarjan's algorithm)
+     * Nodes: active variables (0..active_amount-1), values (active_amount + value) and a sink of free values (the last one)
+     * Edges: variable -> not matched value from its domain, value -> matched variable,
+     * free value -> sink, sink -> matched value
+     * @param _node index of node
+     */
+    private void connect(int _node)
+    {
+        order[_node] = low[_node] = counter++;
+        stack[stack_size++] = _node;
+        on_stack[_node] = true;
+
+        int sink = active_amount + capacity;
+        if(_node < active_amount)
+        {
+            int match = matched[active[_node]];
+            for(int w = 0; w < words; w++)
+            {
+                long bits = domains[_node * words + w];
+                while(bits != 0)
+                {
+                    int val = (w << 6) + Long.numberOfTrailingZeros(bits);
+                    bits &= bits - 1;
+                    if(val != match) visit(_node, active_amount + val);
+                }
+            }
+        }
+        else if(_node < sink)
+        {
+            int val = _node - active_amount;
+            if(has(owned, 0, val)) visit(_node, owner[val]);
+            else if(has(union, 0, val)) visit(_node, sink);
+        }
+        else
+        {
+            for(int w = 0; w < words; w++)
+            {
+                long bits = owned[w];
+                while(bits != 0)
+                {
+                    visit(_node, active_amount + (w << 6) + Long.numberOfTrailingZeros(bits));
+                    bits &= bits - 1;
+                }
+            }
+        }
+
+        //Node is a root of component
+        if(low[_node] == order[_node])
+        {
+            int node;
+            do
+            {
+                node = stack[--stack_size];
+                on_stack[node] = false;
+                component[node] = components;
+            }
+            while(node != _node);
+            components++;
+        }
+    }
+
+    /**
+     * Follows an edge of residual graph
+     * @param _from index of node
+     * @param _to index of next node
+     */
+    private void visit(int _from, int _to)
+    {
+        if(order[_to] == -1)
+        {
+            connect(_to);
+            low[_from] = Math.min(low[_from], low[_to]);
+        }
+        else if(on_stack[_to]) low[_from] = Math.min(low[_from], order[_to]);
+    }
+
+    //--------------------
+    // SETTERS & GETTERS |-------------------------------------------------------------
+    //--------------------
+
+    /**
+     * Scope getter
+     * @return indexes of variables which values have to be different
+     */
+    public int[] getScope()
+    {
+        return scope.clone();
+    }
+}
@@ -0,0 +1,110 @@
+package csp_core;
+
+/**
+ * Result of one problem instance solved by BatchSolver (or by ProblemSpec.solve)
+ */
+public class BatchResult
+{
+    private ProblemSpec spec;                   //Solved problem
+    private SearchResult.Status status;         //Outcome of search
+    private SearchLimits.Reason reason;         //Limit which stopped search (only for LIMIT status)
+    private Integer[][] solution;               //Found solution, null if not found
+    private long steps;                         //Amount of search steps
+    private long nanos;                         //Time of search in nanoseconds
+
+    /**
+     * BatchResult constructor
+     * @param _spec solved problem
+     * @param _status outcome of search
+     * @param _reason limit which stopped search (null if status isn't LIMIT)
+     * @param _solution found solution, null if not found
+     * @param _steps amount of search steps
+     * @param _nanos time of search (with loading of pre-filled cells) in nanoseconds
+     */
+    public BatchResult(ProblemSpec _spec, SearchResult.Status _status, SearchLimits.Reason _reason,
+                       Integer[][] _solution, long _steps, long _nanos)
+    {
+        spec = _spec;
+        status = _status;
+        reason = _reason;
+        solution = _solution;
+        steps = _steps;
+        nanos = _nanos;
+    }
+
+    //--------------------
+    // SETTERS & GETTERS |-------------------------------------------------------------
+    //--------------------
+
+    /**
+     * Spec getter
+     * @return solved problem
+     */
+    public ProblemSpec getSpec()
+    {
+        return spec;
+    }
+
+    /**
+     * Status getter
+     * @return outcome of search
+     */
+    public SearchResult.Status getStatus()
+    {
+        return status;
+    }
+
+    /**
+     * Reason getter
+     * @return limit which stopped search, null if status isn't LIMIT
+     */
+    public SearchLimits.Reason getReason()
+    {
+        return reason;
+    }
+
+    /**
+     * Solution getter
+     * @return found solution, null if not found
+     */
+    public Integer[][] getSolution()
+    {
+        return solution;
+    }
+
+    /**
+     * Checks if a solution has been found
+     * @return true if solution has been found, false if it's not
+     */
+    public boolean isSolved()
+    {
+        return solution != null;
+    }
+
+    /**
+     * Steps getter
+     * @return amount of search steps
+     */
+    public long getSteps()
+    {
+        return steps;
+    }
+
+    /**
+     * Checks if search was stopped by a limit or cancellation (no solution doesn't mean unsatisfiable)
+     * @return true if status is LIMIT, false if search finished
+     */
+    public boolean isStopped()
+    {
+        return status == SearchResult.Status.LIMIT;
+    }
+
+    /**
+     * Nanos getter
+     * @return time of search in nanoseconds
+     */
+    public long getNanos()
+    {
+        return nanos;
+    }
+}
@@ -0,0 +1,218 @@
+package csp_core;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+/**
+ * Batch solving service - many small problem instances are solved concurrently on a bounded pool.
+ * At most threads problems run at once and at most queueCapacity more wait for a thread. When the queue
+ * is full, submit blocks the caller (backpressure), so a fast producer can't queue an unbounded stream.
+ * Results are returned through CompletableFutures, cancelling a future stops its search at the next node.
+ * Virtual threads (JDK 21+) are used if they are asked for and available - then each problem gets a new
+ * virtual thread and a semaphore bounds the amount of running ones. Search is CPU bound, so platform threads
+ * (which also reuse their pooled solvers) are usually faster.
+ */
+public class BatchSolver
+{
+    private ExecutorService executor;   //Runs problems
+    private Semaphore pending;          //Free places for submitted and not finished problems (backpressure)
+    private Semaphore running;          //Free places for running problems (only for virtual threads, null otherwise)
+    private boolean virtualThreads;     //Problems run on virtual threads flag
+
+    /**
+     * BatchSolver constructor - pool of platform threads
+     * @param _threads amount of worker threads
+     * @param _queueCapacity maximal amount of problems waiting for a thread
+     */
+    public BatchSolver(int _threads, int _queueCapacity)
+    {
+        this(_threads, _queueCapacity, false);
+    }
+
+    /**
+     * BatchSolver constructor
+     * @param _threads maximal amount of problems solved at once
+     * @param _queueCapacity maximal amount of problems waiting for a thread
+     * @param _virtualThreads run each problem on a new virtual thread (platform threads are used if they aren't available)
+     */
+    public BatchSolver(int _threads, int _queueCapacity, boolean _virtualThreads)
+    {
+        int threads = Math.max(1, _threads);
+        pending = new Semaphore(threads + Math.max(0, _queueCapacity));
+        if(_virtualThreads) executor = newVirtualThreadExecutor();
+        virtualThreads = executor != null;
+        if(virtualThreads) running = new Semaphore(threads);
+        else
+        {
+            //Queue isn't bounded by itself - pending permits bound the amount of queued problems
+            AtomicInteger number = new AtomicInteger();
+            executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(),
+                    task ->
+                    {
+                        Thread thread = new Thread(task, "batch-solver-" + number.incrementAndGet());
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+        }
+    }
+
+    /**
+     * Creates an executor starting a new virtual thread for each task (Executors.newVirtualThreadPerTaskExecutor
+     * of JDK 21+, found by reflection, so the code still runs on older JDKs)
+     * @return executor of virtual threads, null if they aren't available
+     */
+    private static ExecutorService newVirtualThreadExecutor()
+    {
+        try
+        {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        }
+        catch(ReflectiveOperationException e)
+        {
+            return null;
+        }
+    }
+
+    //----------
+    // METHODS |-----------------------------------------------------------
+    //----------
+
+    /**
+     * Submits a problem - blocks while the queue is full
+     * @param _spec problem to solve
+     * @return future result of problem (completed exceptionally if solver failed)
+     * @throws InterruptedException if the caller is interrupted while it waits for a place in the queue
+     */
+    public CompletableFuture<BatchResult> submit(ProblemSpec _spec) throws InterruptedException
+    {
+        pending.acquire();
+        return execute(_spec);
+    }
+
+    /**
+     * Submits a problem only if there is a place in the queue
+     * @param _spec problem to solve
+     * @return future result of problem, null if the queue is full
+     */
+    public CompletableFuture<BatchResult> trySubmit(ProblemSpec _spec)
+    {
+        return pending.tryAcquire() ? execute(_spec) : null;
+    }
+
+    /**
+     * Submits a stream of problems in its order - blocks while the queue is full, so the stream is consumed
+     * only as fast as problems are solved
+     * @param _specs problems to solve
+     * @return future results in the order of problems
+     * @throws InterruptedException if the caller is interrupted while it waits for a place in the queue
+     */
+    public List<CompletableFuture<BatchResult>> submitAll(Stream<? extends ProblemSpec> _specs) throws InterruptedException
+    {
+        List<CompletableFuture<BatchResult>> results = new ArrayList<>();
+        Iterator<? extends ProblemSpec> specs = _specs.iterator();
+        while(specs.hasNext()) results.add(submit(specs.next()));
+        return results;
+    }
+
+    /**
+     * Starts a problem which already has its pending permit
+     * @param _spec problem to solve
+     * @return future result of problem
+     */
+    private CompletableFuture<BatchResult> execute(ProblemSpec _spec)
+    {
+        CompletableFuture<BatchResult> result = new CompletableFuture<>();
+        try
+        {
+            executor.execute(() -> run(_spec, result));
+        }
+        catch(RejectedExecutionException e)
+        {
+            pending.release();
+            throw e;
+        }
+        return result;
+    }
+
+    /**
+     * Solves a problem on the current worker thread and completes its future
+     * @param _spec problem to solve
+     * @param _result future result of problem (search stops when it's completed, e.g. cancelled)
+     */
+    private void run(ProblemSpec _spec, CompletableFuture<BatchResult> _result)
+    {
+        try
+        {
+            if(running != null) running.acquireUninterruptibly();
+            try
+            {
+                if(!_result.isDone()) _result.complete(_spec.solve(_result::isDone));
+            }
+            finally
+            {
+                if(running != null) running.release();
+            }
+        }
+        catch(Throwable e)
+        {
+            _result.completeExceptionally(e);
+        }
+        finally
+        {
+            pending.release();
+        }
+    }
+
+    /**
+     * Stops accepting problems, already submitted ones are solved
+     */
+    public void shutdown()
+    {
+        executor.shutdown();
+    }
+
+    /**
+     * Waits until all submitted problems are solved after shutdown
+     * @param _timeout maximal time to wait
+     * @param _unit unit of _timeout
+     * @return true if all problems are solved, false if timeout elapsed
+     * @throws InterruptedException if the caller is interrupted while waiting
+     */
+    public boolean awaitTermination(long _timeout, TimeUnit _unit) throws InterruptedException
+    {
+        return executor.awaitTermination(_timeout, _unit);
+    }
+
+    //--------------------
+    // SETTERS & GETTERS |-------------------------------------------------------------
+    //--------------------
+
+    /**
+     * VirtualThreads getter
+     * @return true if problems run on virtual threads, false if they run on a pool of platform threads
+     */
+    public boolean isVirtualThreads()
+    {
+        return virtualThreads;
+    }
+
+    /**
+     * FreePlaces getter
+     * @return amount of free places for submitted problems (0 if submit would block)
+     */
+    public int getFreePlaces()
+    {
+        return pending.availablePermits();
+    }
+}
@@ -0,0 +1,306 @@
+package csp_core;
+
+import java.util.Arrays;
+
+/**
+ * Domains of CSP variables stored as packed bitsets.
+ * Every variable owns words_per_var longs (a single long when the domain has 64 values or fewer),
+ * bit v of the variable's words is set when value v belongs to its domain.
+ * Size, membership and iteration are popcount / bit-scan operations and allocate nothing.
+ */
+public class BitDomains
+{
+    private int vars_amount;        //Amount of CSP variables
+    private int capacity;           //Amount of values which can be stored in each domain
+    private int words_per_var;      //Amount of longs used by each domain
+    private long[] words;           //Packed domains (words_per_var longs for each variable)
+
+    /**
+     * BitDomains constructor - creates empty domains
+     * @param _varsAmount amount of CSP variables
+     * @param _capacity amount of values which can be stored in each domain (values 0.._capacity-1)
+     */
+    public BitDomains(int _varsAmount, int _capacity)
+    {
+        this.vars_amount = _varsAmount;
+        this.words_per_var = wordsFor(_capacity);
+        this.capacity = words_per_var << 6;
+        this.words = new long[vars_amount * words_per_var];
+    }
+
+    /**
+     * BitDomains copy constructor
+     * @param _other BitDomains to copy
+     */
+    public BitDomains(BitDomains _other)
+    {
+        this.vars_amount = _other.vars_amount;
+        this.capacity = _other.capacity;
+        this.words_per_var = _other.words_per_var;
+        this.words = _other.words.clone();
+    }
+
+    /**
+     * Counts longs needed for values 0.._capacity-1 (at least one long)
+     * @param _capacity amount of values
+     * @return amount of longs
+     */
+    private static int wordsFor(int _capacity)
+    {
+        return Math.max(1, (_capacity + 63) >>> 6);
+    }
+
+    //----------
+    // METHODS |-----------------------------------------------------------
+    //----------
+
+    /**
+     * Grows each domain so it can store values 0.._capacity-1, keeps current domains
+     * @param _capacity new amount of values
+     */
+    public void ensureCapacity(int _capacity)
+    {
+        int newWordsPerVar = wordsFor(_capacity);
+        if(newWordsPerVar <= words_per_var) return;
+
+        long[] newWords = new long[vars_amount * newWordsPerVar];
+        for(int var = 0; var < vars_amount; var++)
+            System.arraycopy(words, var * words_per_var, newWords, var * newWordsPerVar, words_per_var);
+        words = newWords;
+        words_per_var = newWordsPerVar;
+        capacity = newWordsPerVar << 6;
+    }
+
+    /**
+     * Changes amount of variables and values and empties all domains (e.g. when Grid is resized).
+     * Words are reused if they are long enough
+     * @param _varsAmount new amount of CSP variables
+     * @param _capacity new amount of values which can be stored in each domain
+     */
+    public void resize(int _varsAmount, int _capacity)
+    {
+        vars_amount = _varsAmount;
+        words_per_var = wordsFor(_capacity);
+        capacity = words_per_var << 6;
+        int length = vars_amount * words_per_var;
+        if(words.length < length) words = new long[length];
+        else Arrays.fill(words, 0, length, 0L);
+    }
+
+    /**
+     * Checks if value belongs to domain of variable
+     * @param _var index of variable
+     * @param _val value to check
+     * @return true if value is in domain, false if it's not
+     */
+    public boolean contains(int _var, int _val)
+    {
+        if(_val < 0 || _val >= capacity) return false;
+        return (words[_var * words_per_var + (_val >>> 6)] & (1L << _val)) != 0;
+    }
+
+    /**
+     * Deletes a value from domain of variable
+     * @param _var index of variable
+     * @param _val value to delete
+     * @return true if value was in domain (and has been deleted), false if it wasn't
+     */
+    public boolean remove(int _var, int _val)
+    {
+        if(_val < 0 || _val >= capacity) return false;
+        int w = _var * words_per_var + (_val >>> 6);
+        long bit = 1L << _val;
+        if((words[w] & bit) == 0) return false;
+        words[w] &= ~bit;
+        return true;
+    }
+
+    /**
+     * Adds a value to domain of variable
+     * @param _var index of variable
+     * @param _val value to add (must be lower than capacity)
+     * @return true if value wasn't in domain (and has been added), false if it was
+     */
+    public boolean add(int _var, int _val)
+    {
+        int w = _var * words_per_var + (_val >>> 6);
+        long bit = 1L << _val;
+        if((words[w] & bit) != 0) return false;
+        words[w] |= bit;
+        return true;
+    }
+
+    /**
+     * Domain size getter
+     * @param _var index of variable
+     * @return amount of values in domain of variable
+     */
+    public int size(int _var)
+    {
+        if(words_per_var == 1) return Long.bitCount(words[_var]);
+        int result = 0;
+        int from = _var * words_per_var;
+        for(int w = from; w < from + words_per_var; w++) result += Long.bitCount(words[w]);
+        return result;
+    }
+
+    /**
+     * Checks if domain of variable is empty
+     * @param _var index of variable
+     * @return true if domain is empty, false if it's not
+     */
+    public boolean isEmpty(int _var)
+    {
+        int from = _var * words_per_var;
+        for(int w = from; w < from + words_per_var; w++) if(words[w] != 0) return false;
+        return true;
+    }
+
+    /**
+     * Gets the smallest value from domain of variable
+     * @param _var index of variable
+     * @return the smallest value in domain, -1 if domain is empty
+     */
+    public int first(int _var)
+    {
+        return next(_var, 0);
+    }
+
+    /**
+     * Gets the smallest value from domain of variable which is not lower than _from
+     * @param _var index of variable
+     * @param _from the lowest value to consider
+     * @return the smallest value >= _from in domain, -1 if there is no such value
+     */
+    public int next(int _var, int _from)
+    {
+        if(_from >= capacity) return -1;
+        if(_from < 0) _from = 0;
+        int base = _var * words_per_var;
+        int w = _from >>> 6;
+        long word = words[base + w] & (-1L << _from);
+        while(true)
+        {
+            if(word != 0) return (w << 6) + Long.numberOfTrailingZeros(word);
+            if(++w == words_per_var) return -1;
+            word = words[base + w];
+        }
+    }
+
+    /**
+     * Gets the greatest value from domain of variable
+     * @param _var index of variable
+     * @return the greatest value in domain, -1 if domain is empty
+     */
+    public int last(int _var)
+    {
+        int base = _var * words_per_var;
+        for(int w = words_per_var - 1; w >= 0; w--)
+        {
+            long word = words[base + w];
+            if(word != 0) return (w << 6) + 63 - Long.numberOfLeadingZeros(word);
+        }
+        return -1;
+    }
+
+    /**
+     * Sets domain of variable to values 0.._valsAmount-1
+     * @param _var index of variable
+     * @param _valsAmount amount of values (must not be greater than capacity)
+     */
+    public void fill(int _var, int _valsAmount)
+    {
+        int base = _var * words_per_var;
+        for(int w = 0; w < words_per_var; w++)
+        {
+            int from = w << 6;
+            if(_valsAmount >= from + 64) words[base + w] = -1L;
+            else if(_valsAmount <= from) words[base + w] = 0L;
+            else words[base + w] = (1L << (_valsAmount - from)) - 1;
+        }
+    }
+
+    /**
+     * Sets domain of each variable to values 0.._valsAmount-1
+     * @param _valsAmount amount of values (must not be greater than capacity)
+     */
+    public void fillAll(int _valsAmount)
+    {
+        for(int var = 0; var < vars_amount; var++) fill(var, _valsAmount);
+    }
+
+    /**
+     * Empties domain of variable
+     * @param _var index of variable
+     */
+    public void clear(int _var)
+    {
+        int base = _var * words_per_var;
+        for(int w = base; w < base + words_per_var; w++) words[w] = 0L;
+    }
+
+    /**
+     * Adds a value to domain of each variable
+     * @param _val value to add (must be lower than capacity)
+     */
+    public void addToAll(int _val)
+    {
+        int w = _val >>> 6;
+        long bit = 1L << _val;
+        for(int var = 0; var < vars_amount; var++) words[var * words_per_var + w] |= bit;
+    }
+
+    /**
+     * Deletes a value from domain of each variable
+     * @param _val value to delete
+     */
+    public void removeFromAll(int _val)
+    {
+        if(_val < 0 || _val >= capacity) return;
+        int w = _val >>> 6;
+        long bit = ~(1L << _val);
+        for(int var = 0; var < vars_amount; var++) words[var * words_per_var + w] &= bit;
+    }
+
+    //--------------------
+    // SETTERS & GETTERS |-------------------------------------------------------------
+    //--------------------
+
+    /**
+     * Vars_amount getter
+     * @return amount of CSP variables
+     */
+    public int getVarsAmount()
+    {
+        return vars_amount;
+    }
+
+    /**
+     * Capacity getter
+     * @return amount of values which can be stored in each domain
+     */
+    public int getCapacity()
+    {
+        return capacity;
+    }
+
+    /**
+     * Words_per_var getter
+     * @return amount of longs used by each domain
+     */
+    public int getWordsPerVar()
+    {
+        return words_per_var;
+    }
+
+    /**
+     * Word of domain getter - bit v of word w is set if value w*64+v is in domain
+     * @param _var index of variable
+     * @param _w index of word (0..words_per_var-1)
+     * @return word of domain
+     */
+    public long getWord(int _var, int _w)
+    {
+        return words[_var * words_per_var + _w];
+    }
+}
@@ -0,0 +1,73 @@
+package csp_core;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.IntFunction;
+
+/**
+ * Per-thread pool of reusable search buffers (e.g. Grids) keyed by problem size.
+ * Each thread takes and returns buffers only to its own pool, so nothing is synchronized. A returned buffer
+ * is reset and kept for the next problem of the same size (at most maxPerSize buffers of each size).
+ * Buffers aren't shared between threads, so a pool of virtual threads (a new thread per task) doesn't reuse them.
+ * @param <T> type of buffer
+ */
+public class BufferPool<T>
+{
+    private IntFunction<T> factory;                             //Creates a buffer of size
+    private Consumer<T> reset;                                  //Clears a returned buffer
+    private int maxPerSize;                                     //Maximal amount of kept buffers of each size
+    private ThreadLocal<Map<Integer, ArrayDeque<T>>> pools;     //Kept buffers of each thread by size
+
+    /**
+     * BufferPool constructor
+     * @param _factory creates a new buffer of size
+     * @param _reset clears a returned buffer for the next problem
+     * @param _maxPerSize maximal amount of kept buffers of each size (per thread)
+     */
+    public BufferPool(IntFunction<T> _factory, Consumer<T> _reset, int _maxPerSize)
+    {
+        factory = _factory;
+        reset = _reset;
+        maxPerSize = Math.max(1, _maxPerSize);
+        pools = ThreadLocal.withInitial(HashMap::new);
+    }
+
+    //----------
+    // METHODS |-----------------------------------------------------------
+    //----------
+
+    /**
+     * Takes a buffer of size from pool of the current thread, creates a new one if there is none
+     * @param _size size of problem
+     * @return empty buffer
+     */
+    public T acquire(int _size)
+    {
+        ArrayDeque<T> kept = pools.get().get(_size);
+        T buffer = kept != null ? kept.pollFirst() : null;
+        return buffer != null ? buffer : factory.apply(_size);
+    }
+
+    /**
+     * Resets a buffer and returns it to pool of the current thread (it's dropped if pool is full)
+     * @param _size size of problem
+     * @param _buffer buffer taken by acquire
+     */
+    public void release(int _size, T _buffer)
+    {
+        ArrayDeque<T> kept = pools.get().computeIfAbsent(_size, size -> new ArrayDeque<>());
+        if(kept.size() >= maxPerSize) return;
+        reset.accept(_buffer);
+        kept.addFirst(_buffer);
+    }
+
+    /**
+     * Drops all buffers kept by the current thread
+     */
+    public void clear()
+    {
+        pools.remove();
+    }
+}
@@ -0,0 +1,141 @@
+package csp_core;
+
+/**
+ * Paused search state - decisions (variable, value) of each level, counters, assignment and domains.
+ * Domains are rebuilt by replaying decisions, kept assignment and domains verify the replay.
+ */
+public final class Checkpoint
+{
+    private final Algorithm algorithm;          //Search algorithm
+    private final boolean enumerating;          //Enumeration of all solutions flag
+    private final VarOrdering varOrdering;      //Variable ordering of search
+    private final int depth;                    //Level of the current frame
+    private final int[] vars;                   //Variable chosen at each level 0..depth
+    private final int[] vals;                   //Value assigned at each level (the last tried one at depth, -1 if none)
+    private final long steps;                   //Amount of steps made before pause
+    private final long solutionsCount;          //Amount of solutions enumerated before pause
+    private final int[] values;                 //Values of all variables (UNSET if not assigned)
+    private final long[] domains;               //Domain words of all variables (see BitDomains.getWord)
+
+    /**
+     * Checkpoint constructor
+     * @param _algorithm search algorithm
+     * @param _enumerating enumeration of all solutions flag
+     * @param _varOrdering variable ordering of search
+     * @param _depth level of the current frame
+     * @param _vars variable chosen at each level 0.._depth
+     * @param _vals value assigned at each level 0.._depth-1 and the last tried value at _depth (-1 if none)
+     * @param _steps amount of steps made before pause
+     * @param _solutionsCount amount of solutions enumerated before pause
+     * @param _values values of all variables (UNSET if not assigned)
+     * @param _domains domain words of all variables (see BitDomains.getWord)
+     */
+    public Checkpoint(Algorithm _algorithm, boolean _enumerating, VarOrdering _varOrdering, int _depth,
+                      int[] _vars, int[] _vals, long _steps, long _solutionsCount, int[] _values, long[] _domains)
+    {
+        algorithm = _algorithm;
+        enumerating = _enumerating;
+        varOrdering = _varOrdering;
+        depth = _depth;
+        vars = _vars.clone();
+        vals = _vals.clone();
+        steps = _steps;
+        solutionsCount = _solutionsCount;
+        values = _values.clone();
+        domains = _domains.clone();
+    }
+
+    //--------------------
+    // SETTERS & GETTERS |-------------------------------------------------------------
+    //--------------------
+
+    /**
+     * Algorithm getter
+     * @return search algorithm
+     */
+    public Algorithm getAlgorithm()
+    {
+        return algorithm;
+    }
+
+    /**
+     * Enumerating getter
+     * @return true if all solutions are enumerated, false if search stops at the first one
+     */
+    public boolean isEnumerating()
+    {
+        return enumerating;
+    }
+
+    /**
+     * VarOrdering getter
+     * @return variable ordering of search
+     */
+    public VarOrdering getVarOrdering()
+    {
+        return varOrdering;
+    }
+
+    /**
+     * Depth getter
+     * @return level of the current frame
+     */
+    public int getDepth()
+    {
+        return depth;
+    }
+
+    /**
+     * Vars getter
+     * @return variable chosen at each level 0..depth
+     */
+    public int[] getVars()
+    {
+        return vars.clone();
+    }
+
+    /**
+     * Vals getter
+     * @return value assigned at each level 0..depth-1 and the last tried value at depth (-1 if none)
+     */
+    public int[] getVals()
+    {
+        return vals.clone();
+    }
+
+    /**
+     * Steps getter
+     * @return amount of steps made before pause
+     */
+    public long getSteps()
+    {
+        return steps;
+    }
+
+    /**
+     * SolutionsCount getter
+     * @return amount of solutions enumerated before pause
+     */
+    public long getSolutionsCount()
+    {
+        return solutionsCount;
+    }
+
+    /**
+     * Values getter
+     * @return values of all variables (UNSET if not assigned)
+     */
+    public int[] getValues()
+    {
+        return values.clone();
+    }
+
+    /**
+     * Domains getter
+     * @return domain words of all variables (see BitDomains.getWord)
+     */
+    public long[] getDomains()
+    {
+        return domains.clone();
+    }
+}
@@ -0,0 +1,175 @@
+package csp_core;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+/**
+ * Binary file format of search checkpoints (big-endian):
+ * magic "CSPC", version, length of file, algorithm, enumeration flag, variable ordering, steps, solutions count,
+ * depth, search stack (variable and value of each depth), assignment of all variables, domain words of all variables
+ * and CRC32 of all previous bytes. A truncated or partially written file doesn't match its length or checksum
+ * and isn't loaded. The file is written to a temporary file and moved over the old one, so a crash during
+ * writing keeps the previous checkpoint.
+ */
+public class CheckpointFile
+{
+    private static final int MAGIC = 0x43535043;        //"CSPC"
+    private static final short VERSION = 1;             //Version of format (enums are stored as ordinals)
+    private static final int HEADER_SIZE = 4 + 2 + 4;   //Magic, version and length of file
+    private static final int CRC_SIZE = 4;              //Size of CRC32 at the end of file
+
+    private CheckpointFile()
+    {
+    }
+
+    //----------
+    // METHODS |-----------------------------------------------------------
+    //----------
+
+    /**
+     * Writes checkpoint to file (replaces the previous one only when the new one is completely written)
+     * @param _file checkpoint file
+     * @param _checkpoint checkpoint of search (with assignment and domains)
+     * @throws IOException if file can't be written
+     */
+    public static void write(Path _file, Checkpoint _checkpoint) throws IOException
+    {
+        ByteBuffer buffer = encode(_checkpoint);
+        Path tmp = _file.resolveSibling(_file.getFileName() + ".tmp");
+        try(FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING))
+        {
+            while(buffer.hasRemaining()) channel.write(buffer);
+            channel.force(true);
+        }
+        try
+        {
+            Files.move(tmp, _file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+        catch(AtomicMoveNotSupportedException e)
+        {
+            Files.move(tmp, _file, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * Reads checkpoint from file
+     * @param _file checkpoint file
+     * @return checkpoint of search
+     * @throws IOException if file can't be read, it isn't a checkpoint, its version isn't supported
+     *                     or it's truncated or corrupted (length or checksum doesn't match)
+     */
+    public static Checkpoint read(Path _file) throws IOException
+    {
+        ByteBuffer buffer;
+        try(FileChannel channel = FileChannel.open(_file, StandardOpenOption.READ))
+        {
+            long size = channel.size();
+            if(size < HEADER_SIZE + CRC_SIZE || size > Integer.MAX_VALUE)
+                throw new IOException("Checkpoint " + _file + " is truncated (" + size + " bytes)");
+            buffer = ByteBuffer.allocate((int) size);
+            while(buffer.hasRemaining() && channel.read(buffer) != -1);
+            buffer.flip();
+        }
+        return decode(buffer, _file);
+    }
+
+    /**
+     * Encodes checkpoint
+     * @param _checkpoint checkpoint of search
+     * @return buffer ready to be written
+     */
+    private static ByteBuffer encode(Checkpoint _checkpoint)
+    {
+        int depth = _checkpoint.getDepth();
+        int[] vars = _checkpoint.getVars();
+        int[] vals = _checkpoint.getVals();
+        int[] values = _checkpoint.getValues();
+        long[] domains = _checkpoint.getDomains();
+        int size = HEADER_SIZE + 3 + 8 + 8 + 4 + 8 * (depth + 1) + 4 + 4 * values.length + 4 + 8 * domains.length + CRC_SIZE;
+
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        buffer.putInt(MAGIC);
+        buffer.putShort(VERSION);
+        buffer.putInt(size);
+        buffer.put((byte) _checkpoint.getAlgorithm().ordinal());
+        buffer.put((byte) (_checkpoint.isEnumerating() ? 1 : 0));
+        buffer.put((byte) _checkpoint.getVarOrdering().ordinal());
+        buffer.putLong(_checkpoint.getSteps());
+        buffer.putLong(_checkpoint.getSolutionsCount());
+        buffer.putInt(depth);
+        for(int d = 0; d <= depth; d++)
+        {
+            buffer.putInt(vars[d]);
+            buffer.putInt(vals[d]);
+        }
+        buffer.putInt(values.length);
+        for(int value : values) buffer.putInt(value);
+        buffer.putInt(domains.length);
+        for(long word : domains) buffer.putLong(word);
+
+        CRC32 crc = new CRC32();
+        crc.update(buffer.array(), 0, buffer.position());
+        buffer.putInt((int) crc.getValue());
+        buffer.flip();
+        return buffer;
+    }
+
+    /**
+     * Decodes checkpoint
+     * @param _buffer content of file
+     * @param _file checkpoint file (for messages)
+     * @return checkpoint of search
+     * @throws IOException if content isn't a complete checkpoint of supported version
+     */
+    private static Checkpoint decode(ByteBuffer _buffer, Path _file) throws IOException
+    {
+        int size = _buffer.remaining();
+        if(_buffer.getInt() != MAGIC) throw new IOException(_file + " isn't a checkpoint");
+        short version = _buffer.getShort();
+        if(version != VERSION) throw new IOException("Checkpoint " + _file + " has unsupported version " + version);
+        int length = _buffer.getInt();
+        if(length != size) throw new IOException("Checkpoint " + _file + " is truncated (" + size + " of " + length + " bytes)");
+
+        CRC32 crc = new CRC32();
+        crc.update(_buffer.array(), 0, size - CRC_SIZE);
+        if(_buffer.getInt(size - CRC_SIZE) != (int) crc.getValue())
+            throw new IOException("Checkpoint " + _file + " is corrupted (checksum doesn't match)");
+
+        try
+        {
+            Algorithm algorithm = Algorithm.values()[_buffer.get()];
+            boolean enumerating = _buffer.get() != 0;
+            VarOrdering varOrdering = VarOrdering.values()[_buffer.get()];
+            long steps = _buffer.getLong();
+            long solutionsCount = _buffer.getLong();
+            int depth = _buffer.getInt();
+            int[] vars = new int[depth + 1];
+            int[] vals = new int[depth + 1];
+            for(int d = 0; d <= depth; d++)
+            {
+                vars[d] = _buffer.getInt();
+                vals[d] = _buffer.getInt();
+            }
+            int[] values = new int[_buffer.getInt()];
+            for(int i = 0; i < values.length; i++) values[i] = _buffer.getInt();
+            long[] domains = new long[_buffer.getInt()];
+            for(int i = 0; i < domains.length; i++) domains[i] = _buffer.getLong();
+            if(_buffer.remaining() != CRC_SIZE) throw new IOException("Checkpoint " + _file + " has unexpected length");
+            return new Checkpoint(algorithm, enumerating, varOrdering, depth, vars, vals, steps, solutionsCount,
+                    values, domains);
+        }
+        catch(RuntimeException e)
+        {
+            //Checksum matches, but content doesn't (written by a different format)
+            throw new IOException("Checkpoint " + _file + " is malformed", e);
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package csp_core;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Conflict sets of conflict-directed backjumping (CBJ).
+ * Each search level keeps the set of earlier levels whose assignments rejected a value of its variable.
+ * When all values of a level fail, search jumps back to the deepest level of its conflict set (the culprit)
+ * and the rest of the set is passed to the culprit - levels between them are skipped, because changing
+ * them can't repair the failure.
+ */
+public class ConflictSets
+{
+    private BitSet[] sets;      //Conflict set (earlier levels) of each level, created lazily
+    private int[] level_of;     //Level at which each variable is assigned (-1 if it isn't)
+    private int[] var_at;       //Variable chosen at each level
+    private int[] val_at;       //Value assigned at each level
+
+    /**
+     * ConflictSets constructor
+     * @param _varsAmount amount of CSP variables (maximal search depth)
+     */
+    public ConflictSets(int _varsAmount)
+    {
+        sets = new BitSet[_varsAmount + 1];
+        level_of = new int[_varsAmount];
+        Arrays.fill(level_of, -1);
+        var_at = new int[_varsAmount + 1];
+        val_at = new int[_varsAmount + 1];
+    }
+
+    //----------
+    // METHODS |-----------------------------------------------------------
+    //----------
+
+    /**
+     * Clears all conflict sets and assignments (e.g. before searching again with more values)
+     */
+    public void reset()
+    {
+        for(BitSet set : sets)
+        {
+            if(set != null) set.clear();
+        }
+        Arrays.fill(level_of, -1);
+    }
+
+    /**
+     * Grows arrays for more variables (e.g. when Grid is resized), they are never shrunk
+     * @param _varsAmount amount of CSP variables (maximal search depth)
+     */
+    public void ensureCapacity(int _varsAmount)
+    {
+        if(_varsAmount <= level_of.length) return;
+        sets = Arrays.copyOf(sets, _varsAmount + 1);
+        level_of = new int[_varsAmount];
+        Arrays.fill(level_of, -1);
+        var_at = new int[_varsAmount + 1];
+        val_at = new int[_varsAmount + 1];
+    }
+
+    /**
+     * Starts a level with a new variable and an empty conflict set
+     * @param _level search level
+     * @param _var index of variable chosen at level
+     */
+    public void open(int _level, int _var)
+    {
+        if(sets[_level] == null) sets[_level] = new BitSet();
+        else sets[_level].clear();
+        var_at[_level] = _var;
+    }
+
+    /**
+     * Marks variable of level as assigned
+     * @param _level search level
+     * @param _val value assigned to variable of level
+     */
+    public void assign(int _level, int _val)
+    {
+        level_of[var_at[_level]] = _level;
+        val_at[_level] = _val;
+    }
+
+    /**
+     * Marks variable of level as not assigned
+     * @param _level search level
+     */
+    public void unassign(int _level)
+    {
+        level_of[var_at[_level]] = -1;
+    }
+
+    /**
+     * Adds level of an assigned variable which rejected a value to the conflict set of level
+     * @param _level search level of rejected value
+     * @param _var index of variable which rejected the value (ignored if it isn't assigned)
+     */
+    public void addCulprit(int _level, int _var)
+    {
+        int culprit = level_of[_var];
+        if(culprit != -1 && culprit < _level) sets[_level].set(culprit);
+    }
+
+    /**
+     * Jumps back from a level which all values failed - its conflict set is passed to the deepest level of the set
+     * @param _level search level which all values failed
+     * @return level to jump back to, -1 if conflict set is empty (there is no solution)
+     */
+    public int backjump(int _level)
+    {
+        BitSet set = sets[_level];
+        int target = set.previousSetBit(_level - 1);
+        if(target == -1) return -1;
+        set.clear(target);
+        sets[target].or(set);
+        return target;
+    }
+
+    /**
+     * Gets assignments of conflict set of level - together they are a nogood (no solution contains them all)
+     * @param _level search level which all values failed
+     * @param _vars array for indexes of variables
+     * @param _vals array for values of variables
+     * @return amount of assignments, -1 if they don't fit into arrays
+     */
+    public int getNogood(int _level, int[] _vars, int[] _vals)
+    {
+        BitSet set = sets[_level];
+        if(set.cardinality() > _vars.length) return -1;
+        int length = 0;
+        for(int l = set.nextSetBit(0); l != -1; l = set.nextSetBit(l + 1))
+        {
+            _vars[length] = var_at[l];
+            _vals[length] = val_at[l];
+            length++;
+        }
+        return length;
+    }
+
+    //--------------------
+    // SETTERS & GETTERS |-------------------------------------------------------------
+    //--------------------
+
+    /**
+     * Level getter
+     * @param _var index of variable
+     * @return level at which variable is assigned, -1 if it isn't
+     */
+    public int getLevelOf(int _var)
+    {
+        return level_of[_var];
+    }
+}
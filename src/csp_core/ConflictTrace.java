@@ -0,0 +1,130 @@
+package csp_core;
+
+import java.util.Arrays;
+
+/**
+ * Amount of violated constraints over time of a local search.
+ * Samples (step, conflicts, elapsed time) are kept in plain growing arrays, a sample is taken every
+ * interval steps and whenever the search reaches a new best amount of conflicts.
+ */
+public class ConflictTrace
+{
+    private long[] steps;           //Step of each sample
+    private int[] conflicts;        //Amount of conflicts at each sample
+    private long[] nanos;           //Time since the beginning of search at each sample
+    private int size;               //Amount of samples
+    private long interval;          //Amount of steps between regular samples
+    private long startNanos;        //Time of the beginning of search
+    private int best;               //The lowest amount of conflicts
+
+    /**
+     * ConflictTrace constructor
+     * @param _interval amount of steps between regular samples
+     */
+    public ConflictTrace(long _interval)
+    {
+        interval = Math.max(1, _interval);
+        steps = new long[64];
+        conflicts = new int[64];
+        nanos = new long[64];
+        reset();
+    }
+
+    //----------
+    // METHODS |-----------------------------------------------------------
+    //----------
+
+    /**
+     * Drops all samples, time is counted from now
+     */
+    public void reset()
+    {
+        size = 0;
+        best = Integer.MAX_VALUE;
+        startNanos = System.nanoTime();
+    }
+
+    /**
+     * Takes a sample if it's time for a regular one or conflicts are the lowest so far
+     * @param _step current step of search
+     * @param _conflicts current amount of conflicts
+     */
+    public void record(long _step, int _conflicts)
+    {
+        if(_conflicts < best) best = _conflicts;
+        else if(_step % interval != 0) return;
+        if(size == steps.length)
+        {
+            steps = Arrays.copyOf(steps, size * 2);
+            conflicts = Arrays.copyOf(conflicts, size * 2);
+            nanos = Arrays.copyOf(nanos, size * 2);
+        }
+        steps[size] = _step;
+        conflicts[size] = _conflicts;
+        nanos[size] = System.nanoTime() - startNanos;
+        size++;
+    }
+
+    @Override
+    public String toString()
+    {
+        StringBuilder result = new StringBuilder();
+        for(int i = 0; i < size; i++)
+        {
+            result.append(String.format("step: %d | conflicts: %d | %.3f ms%n", steps[i], conflicts[i], nanos[i] / 1e6));
+        }
+        return result.toString();
+    }
+
+    //--------------------
+    // SETTERS & GETTERS |-------------------------------------------------------------
+    //--------------------
+
+    /**
+     * Size getter
+     * @return amount of samples
+     */
+    public int getSize()
+    {
+        return size;
+    }
+
+    /**
+     * Step getter
+     * @param _i index of sample
+     * @return step of sample
+     */
+    public long getStep(int _i)
+    {
+        return steps[_i];
+    }
+
+    /**
+     * Conflicts getter
+     * @param _i index of sample
+     * @return amount of conflicts at sample
+     */
+    public int getConflicts(int _i)
+    {
+        return conflicts[_i];
+    }
+
+    /**
+     * Nanos getter
+     * @param _i index of sample
+     * @return time since the beginning of search at sample in nanoseconds
+     */
+    public long getNanos(int _i)
+    {
+        return nanos[_i];
+    }
+
+    /**
+     * Best getter
+     * @return the lowest amount of conflicts, Integer.MAX_VALUE if nothing was recorded
+     */
+    public int getBest()
+    {
+        return best;
+    }
+}
@@ -0,0 +1,154 @@
+package csp_core;
+
+import java.util.Arrays;
+
+/**
+ * Incremental minimum-remaining-values selector.
+ * Not filled variables are kept in buckets (doubly linked lists over variable indexes) keyed by
+ * (domain size, -degree), so the best variable is the head of the lowest non-empty bucket.
+ * Updating a variable is O(1), taking the best one is O(1) amortized.
+ */
+public class MrvBuckets
+{
+    private int max_size;       //Maximal domain size
+    private int max_degree;     //Maximal degree of variable
+    private int[] head;         //First variable of each bucket (-1 if bucket is empty)
+    private int[] next;         //Next variable in the same bucket (-1 if it's the last one)
+    private int[] prev;         //Previous variable in the same bucket (-1 if it's the first one)
+    private int[] key_of;       //Bucket of each variable (-1 if variable isn't in buckets)
+    private int min_key;        //No bucket below min_key is used
+
+    /**
+     * MrvBuckets constructor - creates empty buckets
+     * @param _varsAmount amount of CSP variables
+     * @param _maxSize maximal domain size
+     * @param _maxDegree maximal degree of variable
+     */
+    public MrvBuckets(int _varsAmount, int _maxSize, int _maxDegree)
+    {
+        this.max_size = _maxSize;
+        this.max_degree = _maxDegree;
+        head = new int[(max_size + 1) * (max_degree + 1)];
+        Arrays.fill(head, -1);
+        next = new int[_varsAmount];
+        prev = new int[_varsAmount];
+        key_of = new int[_varsAmount];
+        Arrays.fill(key_of, -1);
+        min_key = head.length;
+    }
+
+    /**
+     * MrvBuckets copy constructor - the copy keeps the same order of variables in buckets
+     * @param _other MrvBuckets to copy
+     */
+    public MrvBuckets(MrvBuckets _other)
+    {
+        this.max_size = _other.max_size;
+        this.max_degree = _other.max_degree;
+        this.head = _other.head.clone();
+        this.next = _other.next.clone();
+        this.prev = _other.prev.clone();
+        this.key_of = _other.key_of.clone();
+        this.min_key = _other.min_key;
+    }
+
+    //----------
+    // METHODS |-----------------------------------------------------------
+    //----------
+
+    /**
+     * Counts a bucket key - smaller domain first, for equal domains bigger degree first
+     * @param _size domain size
+     * @param _degree degree of variable
+     * @return bucket key
+     */
+    private int keyOf(int _size, int _degree)
+    {
+        return Math.min(_size, max_size) * (max_degree + 1) + (max_degree - Math.min(_degree, max_degree));
+    }
+
+    /**
+     * Puts a variable into bucket
+     * @param _var index of variable
+     * @param _key bucket key
+     */
+    private void link(int _var, int _key)
+    {
+        int first = head[_key];
+        next[_var] = first;
+        prev[_var] = -1;
+        if(first != -1) prev[first] = _var;
+        head[_key] = _var;
+        key_of[_var] = _key;
+        if(_key < min_key) min_key = _key;
+    }
+
+    /**
+     * Takes a variable out of its bucket
+     * @param _var index of variable
+     */
+    private void unlink(int _var)
+    {
+        int key = key_of[_var];
+        if(prev[_var] != -1) next[prev[_var]] = next[_var];
+        else head[key] = next[_var];
+        if(next[_var] != -1) prev[next[_var]] = prev[_var];
+        key_of[_var] = -1;
+    }
+
+    /**
+     * Inserts a variable into buckets
+     * @param _var index of variable
+     * @param _size domain size of variable
+     * @param _degree degree of variable
+     */
+    public void insert(int _var, int _size, int _degree)
+    {
+        if(key_of[_var] != -1) unlink(_var);
+        link(_var, keyOf(_size, _degree));
+    }
+
+    /**
+     * Removes a variable from buckets
+     * @param _var index of variable
+     */
+    public void remove(int _var)
+    {
+        if(key_of[_var] != -1) unlink(_var);
+    }
+
+    /**
+     * Moves a variable to the bucket of its new domain size and degree (if it's in buckets)
+     * @param _var index of variable
+     * @param _size new domain size of variable
+     * @param _degree new degree of variable
+     */
+    public void update(int _var, int _size, int _degree)
+    {
+        if(key_of[_var] == -1) return;
+        int key = keyOf(_size, _degree);
+        if(key == key_of[_var]) return;
+        unlink(_var);
+        link(_var, key);
+    }
+
+    /**
+     * Checks if a variable is in buckets
+     * @param _var index of variable
+     * @return true if variable is in buckets, false if it's not
+     */
+    public boolean contains(int _var)
+    {
+        return key_of[_var] != -1;
+    }
+
+    /**
+     * Gets a variable with the smallest domain (the biggest degree for equal domains)
+     * @return index of variable, -1 if buckets are empty
+     */
+    public int peekMin()
+    {
+        while(min_key < head.length && head[min_key] == -1) min_key++;
+        return min_key < head.length ? head[min_key] : -1;
+    }
+}
@@ -0,0 +1,238 @@
+package csp_core;
+
+import java.util.Arrays;
+
+/**
+ * Bounded store of learned nogoods - sets of assignments which no solution contains all together.
+ * Nogoods are kept in preallocated flat arrays (capacity x maxLength), longer nogoods aren't learned.
+ * When the store is full, a nogood is evicted by the clock policy: nogoods used since the last pass of the clock
+ * hand get a second chance. Each assignment of a nogood is linked into a list of its variable,
+ * so checking an assignment visits only nogoods which contain the variable.
+ */
+public class NogoodStore
+{
+    private int capacity;           //Maximal amount of nogoods
+    private int max_length;         //Maximal amount of assignments in nogood
+    private int[] vars;             //Variables of assignments (slot = nogood*max_length + k)
+    private int[] vals;             //Values of assignments
+    private int[] lengths;          //Amount of assignments of each nogood (0 if slot is free)
+    private boolean[] referenced;   //Nogood was used since the last pass of the clock hand
+    private int hand;               //Clock hand - the next nogood to consider for eviction
+    private int[] head;             //The first slot of each variable list (-1 if list is empty)
+    private int[] next;             //The next slot in the same variable list (-1 if it's the last one)
+    private int[] prev;             //The previous slot in the same variable list (-1 if it's the first one)
+    private long learned;           //Amount of learned nogoods
+    private long evicted;           //Amount of evicted nogoods
+    private long hits;              //Amount of values rejected by nogoods
+
+    /**
+     * NogoodStore constructor
+     * @param _varsAmount amount of CSP variables
+     * @param _capacity maximal amount of nogoods
+     * @param _maxLength maximal amount of assignments in nogood
+     */
+    public NogoodStore(int _varsAmount, int _capacity, int _maxLength)
+    {
+        capacity = Math.max(1, _capacity);
+        max_length = Math.max(1, _maxLength);
+        vars = new int[capacity * max_length];
+        vals = new int[capacity * max_length];
+        lengths = new int[capacity];
+        referenced = new boolean[capacity];
+        head = new int[_varsAmount];
+        next = new int[capacity * max_length];
+        prev = new int[capacity * max_length];
+        clear();
+    }
+
+    //----------
+    // METHODS |-----------------------------------------------------------
+    //----------
+
+    /**
+     * Drops all nogoods (e.g. when domains grow and nogoods may be wrong)
+     */
+    public void clear()
+    {
+        Arrays.fill(lengths, 0);
+        Arrays.fill(referenced, false);
+        Arrays.fill(head, -1);
+        hand = 0;
+    }
+
+    /**
+     * Drops all nogoods and grows variable lists for more variables (e.g. when Grid is resized)
+     * @param _varsAmount amount of CSP variables
+     */
+    public void ensureCapacity(int _varsAmount)
+    {
+        if(_varsAmount > head.length) head = new int[_varsAmount];
+        clear();
+    }
+
+    /**
+     * Learns a nogood, evicts one if store is full
+     * @param _vars indexes of variables of assignments
+     * @param _vals values of assignments
+     * @param _length amount of assignments
+     * @return true if nogood is learned, false if it's empty or too long
+     */
+    public boolean add(int[] _vars, int[] _vals, int _length)
+    {
+        if(_length < 1 || _length > max_length) return false;
+        int nogood = findVictim();
+        if(lengths[nogood] > 0)
+        {
+            unlink(nogood);
+            evicted++;
+        }
+        int base = nogood * max_length;
+        for(int k = 0; k < _length; k++)
+        {
+            int slot = base + k;
+            vars[slot] = _vars[k];
+            vals[slot] = _vals[k];
+            prev[slot] = -1;
+            next[slot] = head[_vars[k]];
+            if(next[slot] != -1) prev[next[slot]] = slot;
+            head[_vars[k]] = slot;
+        }
+        lengths[nogood] = _length;
+        referenced[nogood] = false;
+        learned++;
+        return true;
+    }
+
+    /**
+     * Finds a nogood violated by assigning a value to variable (all its other assignments are current)
+     * @param _var index of variable
+     * @param _val value of variable
+     * @param _values current values of all variables (negative for not assigned ones)
+     * @return index of violated nogood, -1 if there is no such nogood
+     */
+    public int find(int _var, int _val, int[] _values)
+    {
+        for(int slot = head[_var]; slot != -1; slot = next[slot])
+        {
+            if(vals[slot] != _val) continue;
+            int nogood = slot / max_length;
+            if(isViolated(nogood, _var, _values))
+            {
+                referenced[nogood] = true;
+                hits++;
+                return nogood;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Checks if all assignments of nogood except the one of variable are current
+     * @param _nogood index of nogood
+     * @param _var index of variable which is being assigned
+     * @param _values current values of all variables
+     * @return true if nogood is violated, false if it's not
+     */
+    private boolean isViolated(int _nogood, int _var, int[] _values)
+    {
+        int base = _nogood * max_length;
+        for(int slot = base; slot < base + lengths[_nogood]; slot++)
+        {
+            if(vars[slot] != _var && _values[vars[slot]] != vals[slot]) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Moves clock hand to a free nogood or to a nogood not used since the last pass
+     * @return index of nogood to overwrite
+     */
+    private int findVictim()
+    {
+        while(lengths[hand] > 0 && referenced[hand])
+        {
+            referenced[hand] = false;
+            hand = (hand + 1) % capacity;
+        }
+        int result = hand;
+        hand = (hand + 1) % capacity;
+        return result;
+    }
+
+    /**
+     * Removes assignments of nogood from lists of their variables
+     * @param _nogood index of nogood
+     */
+    private void unlink(int _nogood)
+    {
+        int base = _nogood * max_length;
+        for(int slot = base; slot < base + lengths[_nogood]; slot++)
+        {
+            if(prev[slot] != -1) next[prev[slot]] = next[slot];
+            else head[vars[slot]] = next[slot];
+            if(next[slot] != -1) prev[next[slot]] = prev[slot];
+        }
+        lengths[_nogood] = 0;
+    }
+
+    //--------------------
+    // SETTERS & GETTERS |-------------------------------------------------------------
+    //--------------------
+
+    /**
+     * Length getter
+     * @param _nogood index of nogood
+     * @return amount of assignments of nogood
+     */
+    public int getLength(int _nogood)
+    {
+        return lengths[_nogood];
+    }
+
+    /**
+     * Var getter
+     * @param _nogood index of nogood
+     * @param _k index of assignment in nogood
+     * @return index of variable of assignment
+     */
+    public int getVar(int _nogood, int _k)
+    {
+        return vars[_nogood * max_length + _k];
+    }
+
+    /**
+     * MaxLength getter
+     * @return maximal amount of assignments in nogood
+     */
+    public int getMaxLength()
+    {
+        return max_length;
+    }
+
+    /**
+     * Learned getter
+     * @return amount of learned nogoods
+     */
+    public long getLearned()
+    {
+        return learned;
+    }
+
+    /**
+     * Evicted getter
+     * @return amount of nogoods evicted because store was full
+     */
+    public long getEvicted()
+    {
+        return evicted;
+    }
+
+    /**
+     * Hits getter
+     * @return amount of values rejected by nogoods
+     */
+    public long getHits()
+    {
+        return hits;
+    }
+}
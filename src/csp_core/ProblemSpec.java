@@ -0,0 +1,150 @@
+package csp_core;
+
+import java.util.function.BooleanSupplier;
+
+/**
+ * Specification of one problem instance for batch solving - size, pre-filled cells, search settings and limits.
+ * Each problem type (Latin square, grid coloring) extends it and solves the instance with its own solver.
+ */
+public abstract class ProblemSpec
+{
+    private int N;                          //Size of problem (N x N grid)
+    private Integer[][] cells;              //Pre-filled cells (null for holes), null if nothing is pre-filled
+    private Algorithm algorithm;            //Search algorithm
+    private VarOrdering varOrdering;        //Variable ordering
+    private long timeLimit;                 //Time limit of search in milliseconds (0 if unlimited)
+    private long nodeLimit;                 //Node limit of search (0 if unlimited)
+
+    /**
+     * ProblemSpec constructor - MAC with SMALLEST_DOMAIN ordering and no limits by default
+     * @param _N size of problem
+     * @param _cells N x N array of pre-filled cells (null for holes), null if nothing is pre-filled
+     */
+    protected ProblemSpec(int _N, Integer[][] _cells)
+    {
+        N = _N;
+        cells = _cells;
+        algorithm = Algorithm.MAINTAINING_ARC_CONSISTENCY;
+        varOrdering = VarOrdering.SMALLEST_DOMAIN;
+        timeLimit = 0;
+        nodeLimit = 0;
+    }
+
+    //----------
+    // METHODS |-----------------------------------------------------------
+    //----------
+
+    /**
+     * Solves the instance on the calling thread
+     * @param _stopCondition cooperative cancellation polled during search (null if not used)
+     * @return result of search
+     */
+    public abstract BatchResult solve(BooleanSupplier _stopCondition);
+
+    /**
+     * Creates limits of one search call from time and node limits of spec
+     * @return limits of search, null if search isn't limited
+     */
+    protected SearchLimits newLimits()
+    {
+        if(timeLimit <= 0 && nodeLimit <= 0) return null;
+        SearchLimits limits = new SearchLimits();
+        limits.setTimeLimit(timeLimit);
+        limits.setNodeLimit(nodeLimit);
+        return limits;
+    }
+
+    //--------------------
+    // SETTERS & GETTERS |-------------------------------------------------------------
+    //--------------------
+
+    /**
+     * N getter
+     * @return size of problem
+     */
+    public int getN()
+    {
+        return N;
+    }
+
+    /**
+     * Cells getter
+     * @return pre-filled cells (null for holes), null if nothing is pre-filled
+     */
+    public Integer[][] getCells()
+    {
+        return cells;
+    }
+
+    /**
+     * Algorithm getter
+     * @return search algorithm
+     */
+    public Algorithm getAlgorithm()
+    {
+        return algorithm;
+    }
+
+    /**
+     * Algorithm setter
+     * @param _algorithm search algorithm
+     */
+    public void setAlgorithm(Algorithm _algorithm)
+    {
+        this.algorithm = _algorithm;
+    }
+
+    /**
+     * VarOrdering getter
+     * @return variable ordering
+     */
+    public VarOrdering getVarOrdering()
+    {
+        return varOrdering;
+    }
+
+    /**
+     * VarOrdering setter
+     * @param _varOrdering variable ordering
+     */
+    public void setVarOrdering(VarOrdering _varOrdering)
+    {
+        this.varOrdering = _varOrdering;
+    }
+
+    /**
+     * TimeLimit getter
+     * @return time limit of search in milliseconds (0 if unlimited)
+     */
+    public long getTimeLimit()
+    {
+        return timeLimit;
+    }
+
+    /**
+     * TimeLimit setter
+     * @param _timeLimit time limit of search in milliseconds (0 if unlimited)
+     */
+    public void setTimeLimit(long _timeLimit)
+    {
+        this.timeLimit = _timeLimit;
+    }
+
+    /**
+     * NodeLimit getter
+     * @return node limit of search (0 if unlimited)
+     */
+    public long getNodeLimit()
+    {
+        return nodeLimit;
+    }
+
+    /**
+     * NodeLimit setter
+     * @param _nodeLimit node limit of search (0 if unlimited)
+     */
+    public void setNodeLimit(long _nodeLimit)
+    {
+        this.nodeLimit = _nodeLimit;
+    }
+}
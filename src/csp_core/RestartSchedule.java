@@ -0,0 +1,78 @@
+package csp_core;
+
+/**
+ * Failure limits of consecutive runs of a restarting search.
+ * Luby schedule multiplies unit by the Luby sequence (1, 1, 2, 1, 1, 2, 4, 1, 1, 2, ...), which is
+ * within a logarithmic factor of the best fixed limit for any runtime distribution. Geometric schedule
+ * multiplies the first limit by factor after each run. Randomized searches with restarts cut off
+ * the heavy tail of runtimes - a run stuck in a hopeless subtree is abandoned and another order is tried.
+ */
+public class RestartSchedule
+{
+    private long unit;          //Limit of the first run (unit of Luby sequence)
+    private double factor;      //Growth of limit after each run (0 for Luby schedule)
+
+    /**
+     * RestartSchedule constructor
+     * @param _unit limit of the first run
+     * @param _factor growth of limit after each run, 0 for Luby schedule
+     */
+    private RestartSchedule(long _unit, double _factor)
+    {
+        this.unit = Math.max(1, _unit);
+        this.factor = _factor;
+    }
+
+    /**
+     * Creates Luby schedule
+     * @param _unit amount of failures of the shortest run
+     * @return schedule with limits _unit * luby(run)
+     */
+    public static RestartSchedule luby(long _unit)
+    {
+        return new RestartSchedule(_unit, 0);
+    }
+
+    /**
+     * Creates geometric schedule
+     * @param _first amount of failures of the first run
+     * @param _factor growth of limit after each run (greater than 1)
+     * @return schedule with limits _first * _factor ^ run
+     */
+    public static RestartSchedule geometric(long _first, double _factor)
+    {
+        return new RestartSchedule(_first, Math.max(1, _factor));
+    }
+
+    //----------
+    // METHODS |-----------------------------------------------------------
+    //----------
+
+    /**
+     * Gets failure limit of a run
+     * @param _run number of run (0 for the first one)
+     * @return maximal amount of failures of the run
+     */
+    public long getLimit(int _run)
+    {
+        if(factor == 0) return unit * lubyElement(_run + 1);
+        double limit = unit * Math.pow(factor, _run);
+        return limit >= Long.MAX_VALUE ? Long.MAX_VALUE : (long) limit;
+    }
+
+    /**
+     * Counts an element of Luby sequence - 2^(k-1) if _i is 2^k - 1, otherwise element of the repeated prefix
+     * @param _i index of element (from 1)
+     * @return element of Luby sequence
+     */
+    private static long lubyElement(long _i)
+    {
+        while(true)
+        {
+            //The smallest k with 2^k - 1 >= _i
+            int k = 64 - Long.numberOfLeadingZeros(_i);
+            if(_i == (1L << k) - 1) return 1L << (k - 1);
+            _i -= (1L << (k - 1)) - 1;
+        }
+    }
+}
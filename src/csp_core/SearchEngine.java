@@ -0,0 +1,1287 @@
+package csp_core;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Iterative search shared by CSPGrid and CSPLatinSquare - Backtracking, ForwardChecking, MAC (with restarts) and
+ * conflict-directed backjumping over an explicit stack of choice points, enumeration of solutions, pause / resume,
+ * checkpoints and limited search. Problems implement only their variable and value choice, constraint checks
+ * and propagation, variables are positions of N x N grid (index row*N+col)
+ */
+public abstract class SearchEngine
+{
+    private static final int DEFAULT_NOGOODS = 4096;        //Default maximal amount of learned nogoods
+    private static final int DEFAULT_NOGOOD_LENGTH = 8;     //Default maximal amount of assignments in nogood
+    private static final int DEFAULT_STOP_CHECK_INTERVAL = 1024; //Default amount of nodes between polls of stop condition
+
+    private boolean endB;   //End of backtracking flag
+    private boolean endFC;  //End of forward-checking flag
+    private boolean endMAC; //End of maintaining arc consistency flag
+    private Integer[][] solution;            //Found solution (copy of Grid array), null if not found yet
+    private boolean printSolution;           //Print a found solution flag
+    private BooleanSupplier stopCondition;   //Cooperative cancellation polled every stopCheckInterval nodes (null if not used)
+    private int stopCheckInterval;           //Amount of nodes between polls of stop condition
+    private long stopChecks;                 //Amount of stop checks since the beginning of search
+    private long nextStopCheck;              //Stop check at which stop condition is polled
+    private boolean stopped;                 //Stop condition was fulfilled in the current search flag
+    private SolutionConsumer consumer;       //Consumer of enumerated solutions (null for count-only enumeration)
+    private long solutionsCount;             //Amount of enumerated solutions
+    private boolean endEnum;                 //End of enumeration flag
+    private SearchStats stats;               //Statistics of search
+    private boolean endCBJ;                  //End of conflict-directed backjumping flag
+    private ConflictSets conflictSets;       //Conflict sets of search levels (conflict-directed backjumping)
+    private NogoodStore nogoods;             //Learned nogoods (null if learning is disabled)
+    private int[] nogoodVars;                //Variables of nogood being learned
+    private int[] nogoodVals;                //Values of nogood being learned
+    private Random random;                   //Random order of values and ties of SMALLEST_DOMAIN ordering (null for fixed order)
+    private long failureLimit;               //Failures allowed in the current run of restarting search (-1 if unlimited)
+    private long runFailures;                //Failures of the current run of restarting search
+    private int restarts;                    //Amount of restarts of the last restarting search
+    private int jumpLevel;                   //Level the search jumps back to after all values of a level failed
+    private SearchLimits limits;             //Limits of the current solve call (null if search isn't limited)
+    private Algorithm algorithm;             //Algorithm of the current (or paused) search
+    private boolean enumerating;             //The current search enumerates all solutions flag
+    private boolean end;                     //End of the current search flag (solution found or enumeration stopped)
+    private int baseLevel;                   //Level of the first frame of the current search
+    private int depth;                       //Level of the current frame (top of explicit search stack)
+    private int[] stackVars;                 //Variable chosen at each level
+    private int[] stackVals;                 //Value set (or the last tried) at each level, -1 before the first one
+    private int[] stackFirst;                //The first tried value at each level (random order of values)
+    private long steps;                      //Amount of steps of the current search
+    private boolean paused;                  //Search is paused flag
+    private volatile boolean pauseRequested; //Pause at the next node flag (set by any thread)
+    private RestartSchedule schedule;        //Failure limits of runs of restarting search (null if search doesn't restart)
+    private int run;                         //Run of restarting search
+    private Path checkpointFile;             //File of periodic checkpoints of enumeration (null if they aren't written)
+    private long checkpointInterval;         //Amount of steps between periodic checkpoints
+    private long nextCheckpoint;             //Step at which the next periodic checkpoint is written
+    private boolean checkpoints;             //The current enumeration writes periodic checkpoints flag
+
+    /**
+     * SearchEngine constructor
+     * @param _varsAmount amount of variables of problem (N * N)
+     */
+    protected SearchEngine(int _varsAmount)
+    {
+        endB = false;
+        endFC = false;
+        endMAC = false;
+        endCBJ = false;
+        printSolution = true;
+        stopCheckInterval = DEFAULT_STOP_CHECK_INTERVAL;
+        stats = new SearchStats(_varsAmount + 1);
+        conflictSets = new ConflictSets(_varsAmount);
+        failureLimit = -1;
+        createNogoods(_varsAmount, DEFAULT_NOGOODS, DEFAULT_NOGOOD_LENGTH);
+    }
+
+    //-----------------
+    // PROBLEM HOOKS |-----------------------------------------------------------
+    //-----------------
+
+    /**
+     * Size of problem
+     * @return N (variables are positions of N x N grid)
+     */
+    protected abstract int getSize();
+
+    /**
+     * Values of all variables
+     * @return values (index row*N+col, UNSET for not filled positions), kept by problem
+     */
+    protected abstract int[] getValues();
+
+    /**
+     * Domains of all variables
+     * @return domains (index row*N+col), kept by problem
+     */
+    protected abstract BitDomains getDomains();
+
+    /**
+     * Trail of domain deletions
+     * @return trail of problem
+     */
+    protected abstract Trail getTrail();
+
+    /**
+     * Checks if all positions are filled
+     * @return true if problem is solved, false if it's not
+     */
+    protected abstract boolean isComplete();
+
+    /**
+     * Amount of filled positions
+     * @return amount of filled positions
+     */
+    protected abstract int getFilledAmount();
+
+    /**
+     * Copies the current assignment as a solution
+     * @return N x N array of values
+     */
+    protected abstract Integer[][] copySolution();
+
+    /**
+     * Prints the current assignment
+     */
+    protected abstract void printGrid();
+
+    /**
+     * Chooses a not filled position by variable ordering and keeps it for level
+     * @param _level search level
+     * @return index of variable at chosen position
+     */
+    protected abstract int selectVar(int _level);
+
+    /**
+     * Keeps a position for level (replay of checkpoint)
+     * @param _level search level
+     * @param _var index of variable
+     */
+    protected abstract void setVar(int _level, int _var);
+
+    /**
+     * Gets the smallest value from domain of position of level
+     * @param _level search level
+     * @return the smallest value, -1 if domain is empty
+     */
+    protected abstract int firstValue(int _level);
+
+    /**
+     * Gets the next value from domain of position of level (bit-scan)
+     * @param _level search level
+     * @param _val previous value
+     * @return the next value, -1 if there is no greater one
+     */
+    protected abstract int nextValue(int _level, int _val);
+
+    /**
+     * Gets size of domain of position of level
+     * @param _level search level
+     * @return amount of values in domain
+     */
+    protected abstract int domainSize(int _level);
+
+    /**
+     * Sets a value at position of level if it satisfies constraints, the position is marked as filled.
+     * Explained rejection adds culprits to the conflict set of level and checks learned nogoods (isRejectedByNogood)
+     * @param _level search level
+     * @param _val value to set
+     * @param _explain explain rejection (conflict-directed backjumping)
+     * @return true if value has been set, false if it's rejected (nothing is set)
+     */
+    protected abstract boolean assign(int _level, int _val, boolean _explain);
+
+    /**
+     * Sets a value at position of level without checks and marks the position as filled (replay of checkpoint)
+     * @param _level search level
+     * @param _val value to set
+     */
+    protected abstract void fill(int _level, int _val);
+
+    /**
+     * Deletes values conflicting with value set at position of level from domains forward
+     * @param _level search level
+     * @param _val set value
+     * @return amount of wiped out domains
+     */
+    protected abstract int forwardCheck(int _level, int _val);
+
+    /**
+     * Deletes values conflicting with value set at position of level and propagates deletions to fixpoint
+     * @param _level search level
+     * @param _val set value
+     * @return true if no domain has been wiped out, false if one has
+     */
+    protected abstract boolean maintainArcConsistency(int _level, int _val);
+
+    /**
+     * Takes back deletions of the last propagation (from the last trail mark)
+     */
+    protected abstract void restoreDomains();
+
+    /**
+     * Takes back the value at position of level and marks it as not filled
+     * @param _level search level
+     */
+    protected abstract void unassign(int _level);
+
+    /**
+     * Counts values of position of level (the last not filled one) which satisfy constraints
+     * @param _level search level
+     * @return amount of solutions completed by this position
+     */
+    protected abstract int countLastValues(int _level);
+
+    /**
+     * Sets generator breaking ties of SMALLEST_DOMAIN ordering
+     * @param _random random generator (null for the first position of ties)
+     */
+    protected abstract void setTieBreaker(Random _random);
+
+    /**
+     * Variable ordering getter
+     * @return heuristic used to choose the next position to fill
+     */
+    public abstract VarOrdering getVarOrdering();
+
+    /**
+     * Variable ordering setter
+     * @param _varOrdering heuristic used to choose the next position to fill
+     */
+    public abstract void setVarOrdering(VarOrdering _varOrdering);
+
+    /**
+     * Relaxes problem when search has failed from the root (e.g. expands domains by one more value) -
+     * by default the problem can't be relaxed. It can also finish search by endSearch (e.g. a known solution is taken)
+     * @return true if search starts again from the root, false if it's finished
+     */
+    protected boolean relax()
+    {
+        return false;
+    }
+
+    //---------------------------------
+    // BACKTRACKING & FORWARD-CHECKING |-----------------------------------------------------------
+    //---------------------------------
+
+    /**
+     * Backtracking - a value is set only if it satisfies constraints with filled positions
+     * @param level search depth (0 for the whole Grid)
+     * @return amount of steps (so far, if search has been paused)
+     */
+    public long Backtracking(int level)
+    {
+        if(paused) abandon();
+        resetStop();
+        if(endB || isStopped()) return 0;
+        return start(Algorithm.BACKTRACKING, false, level);
+    }
+
+    /**
+     * ForwardChecking - like Backtracking, but values conflicting with each set value are deleted from domains forward
+     * @param level search depth (0 for the whole Grid)
+     * @return amount of steps (so far, if search has been paused)
+     */
+    public long ForwardChecking(int level)
+    {
+        if(paused) abandon();
+        resetStop();
+        if(endFC || isStopped()) return 0;
+        return start(Algorithm.FORWARD_CHECKING, false, level);
+    }
+
+    /**
+     * Maintaining Arc Consistency (MAC) - like ForwardChecking, but after each assignment deletions are propagated
+     * until all arcs between not filled positions are consistent, subtree is skipped if a domain is wiped out
+     * @param level search depth (0 for the whole Grid)
+     * @return amount of steps (so far, if search has been paused)
+     */
+    public long MaintainingArcConsistency(int level)
+    {
+        if(paused) abandon();
+        resetStop();
+        if(endMAC || isStopped()) return 0;
+        return start(Algorithm.MAINTAINING_ARC_CONSISTENCY, false, level);
+    }
+
+    //-----------
+    // RESTARTS |-----------------------------------------------------------
+    //-----------
+
+    /**
+     * MaintainingArcConsistency with restarts (see SearchWithRestarts)
+     * @param _schedule failure limits of consecutive runs (e.g. RestartSchedule.luby(100))
+     * @return amount of steps of all runs
+     */
+    public long MaintainingArcConsistencyWithRestarts(RestartSchedule _schedule)
+    {
+        return SearchWithRestarts(Algorithm.MAINTAINING_ARC_CONSISTENCY, _schedule);
+    }
+
+    /**
+     * Search with restarts - each run is abandoned after the amount of failures given by schedule and search starts
+     * again from the root with another random order of values and ties of SMALLEST_DOMAIN ordering.
+     * A run which finishes within its limit has found a solution or proved there is none.
+     * Random order is seeded with 0 if setSeed wasn't called, so searches are reproducible.
+     * Nogoods learned by conflict-directed backjumping are dropped at each restart
+     * @param _algorithm search algorithm of runs
+     * @param _schedule failure limits of consecutive runs (e.g. RestartSchedule.luby(100))
+     * @return amount of steps of all runs
+     */
+    public long SearchWithRestarts(Algorithm _algorithm, RestartSchedule _schedule)
+    {
+        if(random == null) setSeed(0);
+        if(paused) abandon();
+        restarts = 0;
+        resetStop();
+        if(isEnd(_algorithm) || isStopped()) return 0;
+        schedule = _schedule;
+        run = 0;
+        failureLimit = schedule.getLimit(run);
+        runFailures = 0;
+        return start(_algorithm, false, 0);
+    }
+
+    /**
+     * Checks end flag of algorithm
+     * @param _algorithm search algorithm
+     * @return true if search of algorithm has ended, false if it hasn't
+     */
+    private boolean isEnd(Algorithm _algorithm)
+    {
+        switch(_algorithm)
+        {
+            case BACKTRACKING:
+                return endB;
+            case FORWARD_CHECKING:
+                return endFC;
+            case CONFLICT_DIRECTED_BACKJUMPING:
+                return endCBJ;
+            default:
+                return endMAC;
+        }
+    }
+
+    /**
+     * Checks if the current run of restarting search exceeded its failure limit
+     * @return true if failure limit is set and exceeded, false if it's not
+     */
+    private boolean isCutOff()
+    {
+        return failureLimit >= 0 && runFailures > failureLimit;
+    }
+
+    /**
+     * Gets the first value to try at level
+     * @param _level search level
+     * @return random value from domain if random order is used, the smallest one otherwise (-1 if domain is empty)
+     */
+    private int getFirstVal(int _level)
+    {
+        int result = firstValue(_level);
+        if(random == null || result == -1) return result;
+        for(int k = random.nextInt(domainSize(_level)); k > 0; k--) result = nextValue(_level, result);
+        return result;
+    }
+
+    /**
+     * Gets the next value to try at level - values are taken cyclically from the first one
+     * @param _level search level
+     * @param _val previous value
+     * @param _first the first tried value
+     * @return the next value, -1 if all values have been tried
+     */
+    private int getNextVal(int _level, int _val, int _first)
+    {
+        int result = nextValue(_level, _val);
+        if(random == null) return result;
+        if(result == -1) result = firstValue(_level);
+        return result != _first ? result : -1;
+    }
+
+    //---------------------------------
+    // CONFLICT-DIRECTED BACKJUMPING |-----------------------------------------------------------
+    //---------------------------------
+
+    /**
+     * Conflict-directed backjumping (CBJ) with nogood learning - like Backtracking, but each level remembers
+     * earlier levels which rejected its values. When all values fail, search jumps straight back to the deepest
+     * of them and skips levels between (their other values can't repair the failure). Assignments of failed
+     * level's conflict set are learned as a nogood (if it's short enough) and reject values in other branches.
+     * @param level search depth (0 for the whole Grid)
+     * @return amount of steps
+     */
+    public long ConflictDirectedBackjumping(int level)
+    {
+        if(paused) abandon();
+        resetStop();
+        if(endCBJ || isStopped()) return 0;
+        return start(Algorithm.CONFLICT_DIRECTED_BACKJUMPING, false, level);
+    }
+
+    /**
+     * All values of level failed - learns a nogood and chooses the deepest culprit to jump back to
+     * @param _level search level (above 0, search which failed at level 0 is finished or relaxed)
+     */
+    private void learnNogood(int _level)
+    {
+        if(nogoods != null)
+        {
+            int length = conflictSets.getNogood(_level, nogoodVars, nogoodVals);
+            if(length > 0) nogoods.add(nogoodVars, nogoodVals, length);
+        }
+        jumpLevel = conflictSets.backjump(_level);
+        stats.backjump(_level - 1 - jumpLevel);
+    }
+
+    /**
+     * Checks if a learned nogood rejects a value, levels of its assignments are added to the conflict set of level
+     * @param _var index of variable
+     * @param _val value of variable
+     * @param _level search level
+     * @return true if value is rejected, false if it's not
+     */
+    protected boolean isRejectedByNogood(int _var, int _val, int _level)
+    {
+        int nogood = nogoods != null ? nogoods.find(_var, _val, getValues()) : -1;
+        if(nogood == -1) return false;
+        for(int k = 0; k < nogoods.getLength(nogood); k++) conflictSets.addCulprit(_level, nogoods.getVar(nogood, k));
+        return true;
+    }
+
+    /**
+     * ConflictSets getter - problems add culprits of rejected values to them
+     * @return conflict sets of search levels
+     */
+    protected ConflictSets getConflictSets()
+    {
+        return conflictSets;
+    }
+
+    //----------------------------------
+    // SOLUTIONS ENUMERATION & COUNTING |-----------------------------------------------------------
+    //----------------------------------
+
+    /**
+     * Enumerates all solutions from the current Grid, each one is streamed to consumer and isn't kept in memory
+     * @param _consumer consumer of solutions (null to only count them), it can stop enumeration by returning false
+     * @param _forwardChecking true to delete values from domains forward, false for plain backtracking
+     * @param _checkpoints write periodic checkpoints (only if positions filled before are filled again on restore)
+     * @return amount of enumerated solutions
+     */
+    protected long enumerate(SolutionConsumer _consumer, boolean _forwardChecking, boolean _checkpoints)
+    {
+        if(paused) abandon();
+        solutionsCount = 0;
+        endEnum = false;
+        resetStop();
+        if(isStopped()) return solutionsCount;
+        consumer = _consumer;
+        checkpoints = _checkpoints;
+        start(_forwardChecking ? Algorithm.FORWARD_CHECKING : Algorithm.BACKTRACKING, true, 0);
+        return solutionsCount;
+    }
+
+    /**
+     * Checks if the search should be stopped (cooperative cancellation) - limits are checked at each call,
+     * stop condition is polled only at the first call and then every stopCheckInterval calls
+     * @return true if a limit is exceeded or stop condition has been fulfilled, false if search can continue
+     */
+    protected boolean isStopped()
+    {
+        if(limits != null && limits.check(stats.getNodes(), getTrail().getSize())) return true;
+        if(stopped) return true;
+        if(stopCondition == null || ++stopChecks < nextStopCheck) return false;
+        nextStopCheck = stopChecks + stopCheckInterval;
+        stopped = stopCondition.getAsBoolean();
+        return stopped;
+    }
+
+    /**
+     * Starts polling of stop condition again - the first check of a new search polls it
+     */
+    private void resetStop()
+    {
+        stopped = false;
+        stopChecks = 0;
+        nextStopCheck = 0;
+    }
+
+    //--------------
+    // SEARCH LOOP |-----------------------------------------------------------
+    //--------------
+
+    /**
+     * Starts a search from level - frames are pushed on explicit stack instead of recursion
+     * @param _algorithm search algorithm (BACKTRACKING or FORWARD_CHECKING for enumeration)
+     * @param _enumerating enumerate all solutions instead of stopping at the first one
+     * @param _level level of the first frame (filled positions of lower levels are kept)
+     * @return amount of steps (so far, if search has been paused)
+     */
+    private long start(Algorithm _algorithm, boolean _enumerating, int _level)
+    {
+        ensureStacks();
+        algorithm = _algorithm;
+        enumerating = _enumerating;
+        if(!enumerating) checkpoints = false;
+        baseLevel = _level;
+        end = false;
+        steps = 0;
+        nextCheckpoint = checkpointInterval;
+        depth = _level;
+        openFrame();
+        return search();
+    }
+
+    /**
+     * Allocates explicit search stack for all levels of Grid (kept while it's big enough)
+     */
+    private void ensureStacks()
+    {
+        int levels = getSize() * getSize() + 1;
+        if(stackVals == null || stackVals.length < levels)
+        {
+            stackVars = new int[levels];
+            stackVals = new int[levels];
+            stackFirst = new int[levels];
+        }
+    }
+
+    /**
+     * Iterative search - choice points are kept in stackVars / stackVals, depth is limited only by heap.
+     * At each iteration the frame at depth has its last tried value already taken back.
+     * @return amount of steps (so far, if search has been paused)
+     */
+    private long search()
+    {
+        do
+        {
+            while(depth >= baseLevel)
+            {
+                if(end || isStopped())
+                {
+                    unwind();
+                    break;
+                }
+                if(pauseRequested)
+                {
+                    paused = true;
+                    return steps;
+                }
+                if(checkpoints && checkpointFile != null && steps >= nextCheckpoint) writeCheckpoint();
+
+                int val = nextVal(depth);
+                //All values tried - backing to the previous frame (failed root finishes or relaxes search)
+                if(val == -1)
+                {
+                    if(algorithm == Algorithm.CONFLICT_DIRECTED_BACKJUMPING && depth > 0) learnNogood(depth);
+                    closeFrame();
+                    continue;
+                }
+                stackVals[depth] = val;
+
+                steps++;
+                stats.node(depth);
+                //Checking constraints (culprits of CBJ are added to conflict set)
+                long time = stats.startTimer();
+                boolean allowed = assign(depth, val, algorithm == Algorithm.CONFLICT_DIRECTED_BACKJUMPING);
+                stats.addCheckTime(time);
+                if(!allowed)
+                {
+                    stats.failure(depth);
+                    runFailures++;
+                    continue;
+                }
+
+                //Going deeper only if no domain has been wiped out
+                if(propagate(val))
+                {
+                    depth++;
+                    openFrame();
+                    continue;
+                }
+                stats.wipeout(depth, 1);
+                runFailures++;
+                retract(depth);
+                //Failure limit of restarting search is exceeded - abandoning the run
+                if(isCutOff()) closeFrame();
+            }
+        }
+        while(nextRun());
+        finish();
+        return steps;
+    }
+
+    /**
+     * Opens a frame at depth - chooses a position by variable ordering or handles a completed Grid
+     */
+    private void openFrame()
+    {
+        //Grid CSP completed!
+        if(isComplete())
+        {
+            if(enumerating)
+            {
+                solutionsCount++;
+                if(consumer != null && !consumer.accept(getValues(), getSize())) end = true;
+            }
+            else
+            {
+                solution = copySolution();
+                if(printSolution)
+                {
+                    printGrid();
+                    System.out.println();
+                }
+                end = true;
+                stats.publishSnapshot(depth);
+            }
+            closeFrame();
+            return;
+        }
+        //Conflict sets and nogoods are valid only for the current (relaxed) problem
+        if(algorithm == Algorithm.CONFLICT_DIRECTED_BACKJUMPING && depth == 0)
+        {
+            conflictSets.reset();
+            if(nogoods != null) nogoods.clear();
+        }
+
+        //Get a position and its domain
+        long time = stats.startTimer();
+        int var = selectVar(depth);                  //Founded position (by chosen variable ordering)
+        stats.addSelectionTime(time);
+        stackVars[depth] = var;
+        stackVals[depth] = -1;
+        if(algorithm == Algorithm.CONFLICT_DIRECTED_BACKJUMPING) conflictSets.open(depth, var);
+
+        //Count-only fast path - each allowed value of the last position is a solution
+        if(enumerating && consumer == null && getFilledAmount() == getSize() * getSize() - 1)
+        {
+            solutionsCount += countLastValues(depth);
+            closeFrame();
+        }
+    }
+
+    /**
+     * Gets the next value to try at level (bit-scan over domain of position, from a random value if random order is used).
+     * Enumeration keeps the fixed order, so its checkpoints are replayed by the same order
+     * @param _level search level
+     * @return the next value, -1 if all values have been tried
+     */
+    private int nextVal(int _level)
+    {
+        boolean randomOrder = !enumerating;
+        if(stackVals[_level] == -1)
+        {
+            stackFirst[_level] = randomOrder ? getFirstVal(_level) : firstValue(_level);
+            return stackFirst[_level];
+        }
+        return randomOrder ? getNextVal(_level, stackVals[_level], stackFirst[_level])
+                : nextValue(_level, stackVals[_level]);
+    }
+
+    /**
+     * Propagates a value just set at depth
+     * @param _val set value
+     * @return true if search goes deeper, false if a domain has been wiped out (MAC)
+     */
+    private boolean propagate(int _val)
+    {
+        long time;
+        switch(algorithm)
+        {
+            case BACKTRACKING:
+                return true;
+            case CONFLICT_DIRECTED_BACKJUMPING:
+                conflictSets.assign(depth, _val);
+                return true;
+            case FORWARD_CHECKING:
+                time = stats.startTimer();
+                int wipeouts = forwardCheck(depth, _val);
+                stats.wipeout(depth, wipeouts);
+                stats.addPropagationTime(time);
+                //A wiped out domain fails the subtree (counted for failure limit of restarting search)
+                if(wipeouts > 0) runFailures++;
+                stats.prune(depth, getTrail().getSize() - getTrail().getLastMark());
+                return true;
+            default:
+                time = stats.startTimer();
+                boolean consistent = maintainArcConsistency(depth, _val);
+                stats.addPropagationTime(time);
+                stats.prune(depth, getTrail().getSize() - getTrail().getLastMark());
+                return consistent;
+        }
+    }
+
+    /**
+     * Takes back the value set at level (cleaning after backing from its subtree)
+     * @param _level search level
+     */
+    private void undo(int _level)
+    {
+        if(algorithm == Algorithm.CONFLICT_DIRECTED_BACKJUMPING) conflictSets.unassign(_level);
+        else if(algorithm != Algorithm.BACKTRACKING)
+        {
+            long time = stats.startTimer();
+            restoreDomains();
+            stats.addPropagationTime(time);
+        }
+        unassign(_level);
+    }
+
+    /**
+     * Takes back the value set at level and counts a backtrack
+     * @param _level search level
+     */
+    private void retract(int _level)
+    {
+        undo(_level);
+        if(!end) stats.backtrack(_level);
+    }
+
+    /**
+     * Closes the frame at depth and takes back the value of the previous one. Previous frames are closed too
+     * while the failure limit of restarting search is exceeded or CBJ jumps over them
+     */
+    private void closeFrame()
+    {
+        while(--depth >= baseLevel)
+        {
+            retract(depth);
+            boolean jumped = algorithm == Algorithm.CONFLICT_DIRECTED_BACKJUMPING && jumpLevel < depth;
+            if(!jumped && !isCutOff()) return;
+        }
+    }
+
+    /**
+     * Takes back all values set by search (it has ended or has been stopped)
+     */
+    private void unwind()
+    {
+        while(--depth >= baseLevel) undo(depth);
+    }
+
+    /**
+     * Starts search again from the root when it has returned there without solution - the next run of restarting
+     * search if the last one exceeded its failure limit, or search of relaxed problem (from level 0)
+     * @return true if search starts again from the root, false if it's finished
+     */
+    private boolean nextRun()
+    {
+        if(end || isStopped()) return false;
+        if(isCutOff())
+        {
+            restarts++;
+            failureLimit = schedule.getLimit(++run);
+            runFailures = 0;
+        }
+        else if(enumerating || baseLevel != 0 || !relax()) return false;
+        depth = baseLevel;
+        openFrame();
+        return true;
+    }
+
+    /**
+     * Finishes the current search from relax - a solution has been found without search
+     */
+    protected void endSearch()
+    {
+        end = true;
+    }
+
+    /**
+     * Finishes search - sets end flag of its algorithm and drops settings of this search
+     */
+    private void finish()
+    {
+        if(end)
+        {
+            if(enumerating) endEnum = true;
+            else if(algorithm == Algorithm.BACKTRACKING) endB = true;
+            else if(algorithm == Algorithm.FORWARD_CHECKING) endFC = true;
+            else if(algorithm == Algorithm.CONFLICT_DIRECTED_BACKJUMPING) endCBJ = true;
+            else endMAC = true;
+        }
+        consumer = null;
+        schedule = null;
+        failureLimit = -1;
+    }
+
+    /**
+     * Drops a paused search - takes back all its values
+     */
+    protected void abandon()
+    {
+        unwind();
+        paused = false;
+        pauseRequested = false;
+        finish();
+    }
+
+    /**
+     * Asks the running search to pause at the next node - safe to call from any thread (if no search is running,
+     * the next one pauses before its first node). The paused search keeps its stack and Grid, resume continues it
+     * and any other search (or reset) drops it
+     */
+    public void pause()
+    {
+        pauseRequested = true;
+    }
+
+    /**
+     * Continues a paused search (or an enumeration restored from checkpoint)
+     * @return amount of steps since the beginning of search (so far, if it has been paused again)
+     */
+    public long resume()
+    {
+        if(!paused) return steps;
+        paused = false;
+        pauseRequested = false;
+        return search();
+    }
+
+    //-------------
+    // CHECKPOINT |-----------------------------------------------------------
+    //-------------
+
+    /**
+     * Saves the state of a paused enumeration
+     * @return checkpoint of enumeration, null if no enumeration is paused
+     */
+    public Checkpoint getCheckpoint()
+    {
+        if(!paused || !enumerating) return null;
+        return snapshot();
+    }
+
+    /**
+     * Captures the state of enumeration between two nodes (the last tried value of frame at depth is taken back)
+     * @return checkpoint of enumeration
+     */
+    private Checkpoint snapshot()
+    {
+        int vars = getSize() * getSize();
+        BitDomains domains = getDomains();
+        long[] words = new long[vars * domains.getWordsPerVar()];
+        for(int var = 0, i = 0; var < vars; var++)
+        {
+            for(int w = 0; w < domains.getWordsPerVar(); w++) words[i++] = domains.getWord(var, w);
+        }
+        return new Checkpoint(algorithm, enumerating, getVarOrdering(), depth, Arrays.copyOf(stackVars, depth + 1),
+                Arrays.copyOf(stackVals, depth + 1), steps, solutionsCount, Arrays.copyOf(getValues(), vars), words);
+    }
+
+    /**
+     * Writes a periodic checkpoint of the running enumeration to checkpoint file
+     */
+    private void writeCheckpoint()
+    {
+        try
+        {
+            CheckpointFile.write(checkpointFile, snapshot());
+        }
+        catch(IOException e)
+        {
+            throw new UncheckedIOException(e);
+        }
+        nextCheckpoint = steps + checkpointInterval;
+    }
+
+    /**
+     * Checks if checkpoint fits problem of this size
+     * @param _checkpoint checkpoint of enumeration
+     * @return true if its assignment, domains and depth fit this problem, false if they don't
+     */
+    protected boolean fits(Checkpoint _checkpoint)
+    {
+        int vars = getSize() * getSize();
+        return _checkpoint.getValues().length == vars && _checkpoint.getDepth() < vars
+                && _checkpoint.getDomains().length == vars * getDomains().getWordsPerVar();
+    }
+
+    /**
+     * Restores a paused enumeration from checkpoint, it continues by resume. Values are replayed with the same
+     * propagation, replayed assignment and domains are compared with the ones kept in checkpoint
+     * @param _checkpoint checkpoint of enumeration which fits this problem
+     * @param _consumer consumer of the rest of solutions (null to only count them)
+     * @return true if enumeration has been restored, false if replay differs from checkpoint (nothing is restored)
+     * @throws IllegalArgumentException if checkpoint isn't of Backtracking or ForwardChecking enumeration
+     */
+    protected boolean replay(Checkpoint _checkpoint, SolutionConsumer _consumer)
+    {
+        if(paused) abandon();
+        if(!_checkpoint.isEnumerating() || _checkpoint.getAlgorithm() == Algorithm.CONFLICT_DIRECTED_BACKJUMPING
+                || _checkpoint.getAlgorithm() == Algorithm.MAINTAINING_ARC_CONSISTENCY)
+            throw new IllegalArgumentException("Only Backtracking and ForwardChecking enumeration can be restored");
+        int vars = getSize() * getSize();
+        int[] values = _checkpoint.getValues();
+        long[] words = _checkpoint.getDomains();
+        BitDomains domains = getDomains();
+
+        ensureStacks();
+        algorithm = _checkpoint.getAlgorithm();
+        enumerating = true;
+        checkpoints = true;
+        setVarOrdering(_checkpoint.getVarOrdering());
+        baseLevel = 0;
+        end = false;
+        endEnum = false;
+        steps = _checkpoint.getSteps();
+        nextCheckpoint = steps + checkpointInterval;
+        solutionsCount = _checkpoint.getSolutionsCount();
+        consumer = _consumer;
+        stats.reset();
+        resetStop();
+        for(depth = 0; depth <= _checkpoint.getDepth(); depth++)
+        {
+            stackVars[depth] = _checkpoint.getVars()[depth];
+            stackVals[depth] = _checkpoint.getVals()[depth];
+            setVar(depth, stackVars[depth]);
+            if(depth == _checkpoint.getDepth()) break;
+            fill(depth, stackVals[depth]);
+            propagate(stackVals[depth]);
+        }
+        paused = true;
+        pauseRequested = false;
+
+        //Replayed enumeration has to be exactly the saved one
+        boolean same = Arrays.equals(values, Arrays.copyOf(getValues(), vars));
+        for(int var = 0, i = 0; same && var < vars; var++)
+        {
+            for(int w = 0; w < domains.getWordsPerVar(); w++) same &= domains.getWord(var, w) == words[i++];
+        }
+        if(!same) abandon();
+        return same;
+    }
+
+    //-----------------
+    // LIMITED SEARCH |-----------------------------------------------------------
+    //-----------------
+
+    /**
+     * Runs search with limits of time, nodes, trail and heap, limits are checked every few nodes and search can be
+     * cancelled by _limits.cancel() (or by stop condition) from another thread. Search starts from the current
+     * Grid (e.g. after loading pre-filled cells), end flags, solution and statistics of previous calls are cleared.
+     * A paused call returns LIMIT (CANCELLED), resume continues its search without limits.
+     * @param _algorithm search algorithm
+     * @param _limits limits of this call (started by this call), null for unlimited search
+     * @return SOLVED with solution, UNSAT if search finished without solution, LIMIT if it was stopped
+     */
+    public SearchResult solve(Algorithm _algorithm, SearchLimits _limits)
+    {
+        endB = false;
+        endFC = false;
+        endMAC = false;
+        endCBJ = false;
+        endEnum = false;
+        solution = null;
+        stats.reset();
+        limits = _limits;
+        if(limits != null) limits.start();
+        long start = System.nanoTime();
+        long steps;
+        try
+        {
+            switch(_algorithm)
+            {
+                case BACKTRACKING:
+                    steps = Backtracking(0);
+                    break;
+                case FORWARD_CHECKING:
+                    steps = ForwardChecking(0);
+                    break;
+                case CONFLICT_DIRECTED_BACKJUMPING:
+                    steps = ConflictDirectedBackjumping(0);
+                    break;
+                default:
+                    steps = MaintainingArcConsistency(0);
+            }
+        }
+        finally
+        {
+            limits = null;
+        }
+        SearchResult.Status status = SearchResult.statusOf(solution, _limits, paused || stopped);
+        SearchLimits.Reason reason = null;
+        if(status == SearchResult.Status.LIMIT)
+            reason = _limits != null && _limits.getReason() != null ? _limits.getReason() : SearchLimits.Reason.CANCELLED;
+        return new SearchResult(status, reason, solution, steps, stats.copy(), System.nanoTime() - start);
+    }
+
+    //--------
+    // RESET |-----------------------------------------------------------
+    //--------
+
+    /**
+     * Clears search state for the next problem - drops solution, end flags, paused search, statistics, conflict sets
+     * and learned nogoods. Settings (seed, stop condition, nogood limits, printing) are kept
+     */
+    protected void resetSearch()
+    {
+        setTieBreaker(random);
+        endB = false;
+        endFC = false;
+        endMAC = false;
+        endCBJ = false;
+        endEnum = false;
+        solution = null;
+        solutionsCount = 0;
+        stats.reset();
+        conflictSets.reset();
+        if(nogoods != null) nogoods.clear();
+        failureLimit = -1;
+        runFailures = 0;
+        restarts = 0;
+        schedule = null;
+        consumer = null;
+        paused = false;
+        pauseRequested = false;
+        resetStop();
+    }
+
+    /**
+     * Makes conflict sets and nogoods big enough for a resized problem (they are reused if they are)
+     * @param _varsAmount new amount of variables (N * N)
+     */
+    protected void ensureCapacity(int _varsAmount)
+    {
+        conflictSets.ensureCapacity(_varsAmount);
+        if(nogoods != null) nogoods.ensureCapacity(_varsAmount);
+    }
+
+    //--------------------
+    // SETTERS & GETTERS |-------------------------------------------------------------
+    //--------------------
+
+    /**
+     * EndB (End of backtracking flag) getter
+     * @return End of backtracking flag
+     */
+    public boolean isEndB()
+    {
+        return endB;
+    }
+
+    /**
+     * EndB (End of backtracking flag) setter
+     * @param endB New backtracking flag value to replace with this
+     */
+    public void setEndB(boolean endB)
+    {
+        this.endB = endB;
+    }
+
+    /**
+     * EndFC (End of forward-checking flag) getter
+     * @return End of forward-checking flag
+     */
+    public boolean isEndFC()
+    {
+        return endFC;
+    }
+
+    /**
+     * EndFC (End of forward-checking flag) setter
+     * @param endFC New forward-checking flag value to replace with this
+     */
+    public void setEndFC(boolean endFC)
+    {
+        this.endFC = endFC;
+    }
+
+    /**
+     * EndMAC (End of maintaining arc consistency flag) getter
+     * @return End of maintaining arc consistency flag
+     */
+    public boolean isEndMAC()
+    {
+        return endMAC;
+    }
+
+    /**
+     * EndMAC (End of maintaining arc consistency flag) setter
+     * @param endMAC New maintaining arc consistency flag value to replace with this
+     */
+    public void setEndMAC(boolean endMAC)
+    {
+        this.endMAC = endMAC;
+    }
+
+    /**
+     * EndCBJ (End of conflict-directed backjumping flag) getter
+     * @return End of conflict-directed backjumping flag
+     */
+    public boolean isEndCBJ()
+    {
+        return endCBJ;
+    }
+
+    /**
+     * EndCBJ (End of conflict-directed backjumping flag) setter
+     * @param endCBJ New conflict-directed backjumping flag value to replace with this
+     */
+    public void setEndCBJ(boolean endCBJ)
+    {
+        this.endCBJ = endCBJ;
+    }
+
+    /**
+     * Seed setter - values of every algorithm (except enumeration of solutions) are tried in random order and ties
+     * of SMALLEST_DOMAIN ordering are broken randomly, the same seed gives the same search
+     * @param _seed seed of random generator
+     */
+    public void setSeed(long _seed)
+    {
+        random = new Random(_seed);
+        setTieBreaker(random);
+    }
+
+    /**
+     * Restarts getter
+     * @return amount of restarts of the last restarting search
+     */
+    public int getRestarts()
+    {
+        return restarts;
+    }
+
+    /**
+     * Nogoods getter
+     * @return learned nogoods of conflict-directed backjumping (null if learning is disabled)
+     */
+    public NogoodStore getNogoods()
+    {
+        return nogoods;
+    }
+
+    /**
+     * Nogood limits setter - bounds memory of learned nogoods, nogoods not used recently are evicted
+     * @param _capacity maximal amount of nogoods (0 to disable learning)
+     * @param _maxLength maximal amount of assignments in nogood (longer ones aren't learned)
+     */
+    public void setNogoodLimits(int _capacity, int _maxLength)
+    {
+        createNogoods(getSize() * getSize(), _capacity, _maxLength);
+    }
+
+    /**
+     * Creates store of learned nogoods
+     * @param _varsAmount amount of variables
+     * @param _capacity maximal amount of nogoods (0 to disable learning)
+     * @param _maxLength maximal amount of assignments in nogood
+     */
+    private void createNogoods(int _varsAmount, int _capacity, int _maxLength)
+    {
+        nogoods = _capacity > 0 ? new NogoodStore(_varsAmount, _capacity, _maxLength) : null;
+        nogoodVars = new int[Math.max(1, _maxLength)];
+        nogoodVals = new int[nogoodVars.length];
+    }
+
+    /**
+     * Solution getter
+     * @return found solution (copy of Grid array), null if solution wasn't found
+     */
+    public Integer[][] getSolution()
+    {
+        return solution;
+    }
+
+    /**
+     * Solution setter - a solution found without search (e.g. greedy coloring)
+     * @param _solution N x N array of values
+     */
+    protected void setSolution(Integer[][] _solution)
+    {
+        this.solution = _solution;
+    }
+
+    /**
+     * SolutionsCount getter
+     * @return amount of solutions enumerated by the last (or paused) enumeration
+     */
+    public long getSolutionsCount()
+    {
+        return solutionsCount;
+    }
+
+    /**
+     * SolutionsCount setter - a count combined from several enumerations (e.g. by symmetry)
+     * @param _solutionsCount amount of solutions
+     */
+    protected void setSolutionsCount(long _solutionsCount)
+    {
+        this.solutionsCount = _solutionsCount;
+    }
+
+    /**
+     * Paused getter
+     * @return true if search is paused (it can be continued by resume), false if it's not
+     */
+    public boolean isPaused()
+    {
+        return paused;
+    }
+
+    /**
+     * Stats getter - filled by Backtracking, ForwardChecking and ConflictDirectedBackjumping, its snapshot can be read by a monitoring thread
+     * @return statistics of search
+     */
+    public SearchStats getStats()
+    {
+        return stats;
+    }
+
+    /**
+     * PrintSolution getter
+     * @return true if a found solution is printed, false if it's only kept
+     */
+    protected boolean isPrintSolution()
+    {
+        return printSolution;
+    }
+
+    /**
+     * PrintSolution setter
+     * @param _printSolution true if a found solution should be printed, false if it should be only kept
+     */
+    public void setPrintSolution(boolean _printSolution)
+    {
+        this.printSolution = _printSolution;
+    }
+
+    /**
+     * CheckpointFile setter - enumeration writes its state to file every _interval steps, so it can be restored
+     * after a restart of JVM (restore, then resume)
+     * @param _file checkpoint file (null to disable periodic checkpoints)
+     * @param _interval amount of steps between checkpoints
+     */
+    public void setCheckpointFile(Path _file, long _interval)
+    {
+        this.checkpointFile = _file;
+        this.checkpointInterval = Math.max(1, _interval);
+        this.nextCheckpoint = steps + checkpointInterval;
+    }
+
+    /**
+     * StopCondition getter
+     * @return condition polled every stopCheckInterval nodes (null if not used)
+     */
+    protected BooleanSupplier getStopCondition()
+    {
+        return stopCondition;
+    }
+
+    /**
+     * StopCondition setter
+     * @param _stopCondition condition polled every stopCheckInterval nodes, search returns when it's fulfilled
+     *                       (null to disable)
+     */
+    public void setStopCondition(BooleanSupplier _stopCondition)
+    {
+        this.stopCondition = _stopCondition;
+    }
+
+    /**
+     * StopCheckInterval getter
+     * @return amount of nodes between polls of stop condition
+     */
+    protected int getStopCheckInterval()
+    {
+        return stopCheckInterval;
+    }
+
+    /**
+     * StopCheckInterval setter
+     * @param _stopCheckInterval amount of nodes between polls of stop condition (1 polls it at each node)
+     */
+    public void setStopCheckInterval(int _stopCheckInterval)
+    {
+        this.stopCheckInterval = Math.max(1, _stopCheckInterval);
+    }
+}
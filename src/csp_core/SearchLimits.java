@@ -0,0 +1,205 @@
+package csp_core;
+
+/**
+ * Budget of one search call - wall-clock time, nodes, trail entries and used heap.
+ * Solvers call check at each node, but only the node limit is tested every time (one comparison),
+ * time, trail, heap and cancellation are tested every checkInterval calls. Search can be cancelled
+ * from any thread by cancel(), a cancelled SearchLimits stays cancelled.
+ * The first exceeded limit is kept as reason, solver returns SearchResult with LIMIT status.
+ */
+public class SearchLimits
+{
+    /**
+     * Limit which stopped search
+     */
+    public enum Reason
+    {
+        TIME,           //Wall-clock time limit exceeded
+        NODES,          //Node limit exceeded
+        TRAIL,          //Trail (memory of prunings) limit exceeded
+        HEAP,           //Used heap limit exceeded
+        CANCELLED       //Cancelled by another thread
+    }
+
+    private static final int DEFAULT_CHECK_INTERVAL = 1024;   //Default amount of nodes between checks of time, trail and heap
+
+    private long timeLimit;             //Time limit in milliseconds (0 if unlimited)
+    private long nodeLimit;             //Node limit (0 if unlimited)
+    private int trailLimit;             //Trail entries limit (0 if unlimited)
+    private long heapLimit;             //Used heap limit in bytes (0 if unlimited)
+    private int checkInterval;          //Amount of nodes between checks of time, trail, heap and cancellation
+
+    private long deadline;              //System.nanoTime() at which time limit is exceeded
+    private long calls;                 //Amount of check calls since start
+    private long nextCheck;             //Call at which time, trail, heap and cancellation are checked
+    private volatile boolean cancelled; //Cancel request (set by any thread)
+    private volatile Reason reason;     //Limit which stopped search, null if search wasn't stopped
+
+    /**
+     * SearchLimits constructor - no limits, checked every 1024 nodes
+     */
+    public SearchLimits()
+    {
+        checkInterval = DEFAULT_CHECK_INTERVAL;
+    }
+
+    //----------
+    // METHODS |-----------------------------------------------------------
+    //----------
+
+    /**
+     * Starts measuring a search call - time is measured and nodes are counted from now
+     */
+    public void start()
+    {
+        deadline = System.nanoTime() + timeLimit * 1000000L;
+        calls = 0;
+        nextCheck = 0;
+        reason = cancelled ? Reason.CANCELLED : null;
+    }
+
+    /**
+     * Checks limits at a search node
+     * @param _nodes amount of nodes of search so far
+     * @param _trailSize current amount of trail entries
+     * @return true if search should stop, false if it can continue
+     */
+    public boolean check(long _nodes, int _trailSize)
+    {
+        if(reason != null) return true;
+        if(nodeLimit > 0 && _nodes >= nodeLimit)
+        {
+            reason = Reason.NODES;
+            return true;
+        }
+        if(calls++ < nextCheck) return false;
+        nextCheck = calls + checkInterval;
+
+        if(cancelled) reason = Reason.CANCELLED;
+        else if(timeLimit > 0 && System.nanoTime() - deadline > 0) reason = Reason.TIME;
+        else if(trailLimit > 0 && _trailSize > trailLimit) reason = Reason.TRAIL;
+        else if(heapLimit > 0 && usedHeap() > heapLimit) reason = Reason.HEAP;
+        return reason != null;
+    }
+
+    /**
+     * Counts used heap (including garbage not collected yet, so it's an upper bound)
+     * @return used heap in bytes
+     */
+    private static long usedHeap()
+    {
+        Runtime runtime = Runtime.getRuntime();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    /**
+     * Asks search to stop at the next check - safe to call from any thread
+     */
+    public void cancel()
+    {
+        cancelled = true;
+    }
+
+    //--------------------
+    // SETTERS & GETTERS |-------------------------------------------------------------
+    //--------------------
+
+    /**
+     * Reason getter
+     * @return limit which stopped search, null if search wasn't stopped
+     */
+    public Reason getReason()
+    {
+        return reason;
+    }
+
+    /**
+     * Cancelled getter
+     * @return true if cancel has been called, false if it's not
+     */
+    public boolean isCancelled()
+    {
+        return cancelled;
+    }
+
+    /**
+     * TimeLimit getter
+     * @return time limit in milliseconds (0 if unlimited)
+     */
+    public long getTimeLimit()
+    {
+        return timeLimit;
+    }
+
+    /**
+     * TimeLimit setter
+     * @param _timeLimit time limit in milliseconds (0 if unlimited)
+     */
+    public void setTimeLimit(long _timeLimit)
+    {
+        this.timeLimit = _timeLimit;
+    }
+
+    /**
+     * NodeLimit getter
+     * @return node limit (0 if unlimited)
+     */
+    public long getNodeLimit()
+    {
+        return nodeLimit;
+    }
+
+    /**
+     * NodeLimit setter
+     * @param _nodeLimit maximal amount of nodes (0 if unlimited)
+     */
+    public void setNodeLimit(long _nodeLimit)
+    {
+        this.nodeLimit = _nodeLimit;
+    }
+
+    /**
+     * TrailLimit getter
+     * @return trail entries limit (0 if unlimited)
+     */
+    public int getTrailLimit()
+    {
+        return trailLimit;
+    }
+
+    /**
+     * TrailLimit setter
+     * @param _trailLimit maximal amount of trail entries (0 if unlimited)
+     */
+    public void setTrailLimit(int _trailLimit)
+    {
+        this.trailLimit = _trailLimit;
+    }
+
+    /**
+     * HeapLimit getter
+     * @return used heap limit in bytes (0 if unlimited)
+     */
+    public long getHeapLimit()
+    {
+        return heapLimit;
+    }
+
+    /**
+     * HeapLimit setter
+     * @param _heapLimit maximal used heap in bytes (0 if unlimited)
+     */
+    public void setHeapLimit(long _heapLimit)
+    {
+        this.heapLimit = _heapLimit;
+    }
+
+    /**
+     * CheckInterval setter
+     * @param _checkInterval amount of nodes between checks of time, trail, heap and cancellation
+     */
+    public void setCheckInterval(int _checkInterval)
+    {
+        this.checkInterval = Math.max(1, _checkInterval);
+    }
+}
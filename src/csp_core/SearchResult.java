@@ -0,0 +1,127 @@
+package csp_core;
+
+/**
+ * Result of a limited search call - status, solution and statistics
+ */
+public class SearchResult
+{
+    /**
+     * Outcome of search
+     */
+    public enum Status
+    {
+        SOLVED,     //Solution has been found
+        UNSAT,      //Search finished without solution (there is none)
+        LIMIT       //Search was stopped by a limit or cancellation before it finished
+    }
+
+    private Status status;                  //Outcome of search
+    private SearchLimits.Reason reason;     //Limit which stopped search (only for LIMIT status)
+    private Integer[][] solution;           //Found solution, null if not found
+    private long steps;                     //Amount of search steps
+    private SearchStats stats;              //Statistics of search
+    private long nanos;                     //Time of search in nanoseconds
+
+    /**
+     * SearchResult constructor
+     * @param _status outcome of search
+     * @param _reason limit which stopped search (null if status isn't LIMIT)
+     * @param _solution found solution, null if not found
+     * @param _steps amount of search steps
+     * @param _stats statistics of search
+     * @param _nanos time of search in nanoseconds
+     */
+    public SearchResult(Status _status, SearchLimits.Reason _reason, Integer[][] _solution, long _steps,
+                        SearchStats _stats, long _nanos)
+    {
+        status = _status;
+        reason = _reason;
+        solution = _solution;
+        steps = _steps;
+        stats = _stats;
+        nanos = _nanos;
+    }
+
+    //----------
+    // METHODS |-----------------------------------------------------------
+    //----------
+
+    /**
+     * Chooses status of a finished search call
+     * @param _solution found solution, null if not found
+     * @param _limits limits of the call (null if search wasn't limited)
+     * @param _stopped stop condition of solver is fulfilled (search was cancelled)
+     * @return SOLVED if solution is found, LIMIT if a limit or stop condition stopped search, UNSAT otherwise
+     */
+    public static Status statusOf(Integer[][] _solution, SearchLimits _limits, boolean _stopped)
+    {
+        if(_solution != null) return Status.SOLVED;
+        if(_stopped || (_limits != null && _limits.getReason() != null)) return Status.LIMIT;
+        return Status.UNSAT;
+    }
+
+    @Override
+    public String toString()
+    {
+        return status + (reason != null ? " (" + reason + ")" : "") + " | steps: " + steps
+                + " | time: " + nanos / 1000 + " us | " + stats;
+    }
+
+    //--------------------
+    // SETTERS & GETTERS |-------------------------------------------------------------
+    //--------------------
+
+    /**
+     * Status getter
+     * @return outcome of search
+     */
+    public Status getStatus()
+    {
+        return status;
+    }
+
+    /**
+     * Reason getter
+     * @return limit which stopped search, null if status isn't LIMIT
+     */
+    public SearchLimits.Reason getReason()
+    {
+        return reason;
+    }
+
+    /**
+     * Solution getter
+     * @return found solution, null if not found
+     */
+    public Integer[][] getSolution()
+    {
+        return solution;
+    }
+
+    /**
+     * Steps getter
+     * @return amount of search steps
+     */
+    public long getSteps()
+    {
+        return steps;
+    }
+
+    /**
+     * Stats getter
+     * @return statistics of search (copy taken when search returned - it isn't changed by the next call)
+     */
+    public SearchStats getStats()
+    {
+        return stats;
+    }
+
+    /**
+     * Nanos getter
+     * @return time of search in nanoseconds
+     */
+    public long getNanos()
+    {
+        return nanos;
+    }
+}
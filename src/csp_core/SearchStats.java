@@ -0,0 +1,547 @@
+package csp_core;
+
+import java.util.Arrays;
+
+/**
+ * Statistics of a search filled by solver.
+ * Counters are kept per search depth in plain long arrays written only by the searching thread.
+ * Every snapshotInterval nodes an immutable Snapshot is published through a volatile field,
+ * so a monitoring thread can read progress without synchronizing with the search.
+ * Time of search phases isn't measured unless it's turned on by setTimed(true).
+ */
+public class SearchStats
+{
+    private long[] nodes;           //Values tried at each depth
+    private long[] failures;        //Values rejected by constraints at each depth
+    private long[] backtracks;      //Assignments undone at each depth (subtree without solution)
+    private long[] prunings;        //Values deleted from domains forward at each depth
+    private long[] wipeouts;        //Domains emptied by deleting values forward at each depth
+    private long totalNodes;        //Values tried at all depths
+    private int maxDepth;           //The deepest reached depth
+    private long backjumps;         //Jumps back over at least one level (conflict-directed backjumping)
+    private long skippedLevels;     //Levels skipped by all backjumps
+
+    private boolean timed;          //Measure time of search phases flag
+    private long selectionNanos;    //Time of choosing variables
+    private long checkNanos;        //Time of checking constraints
+    private long propagationNanos;  //Time of deleting values forward (and backing them)
+
+    private long startNanos;                //Time of the beginning of search
+    private long snapshotMask;              //Snapshot is taken when (totalNodes & snapshotMask) == 0
+    private volatile Snapshot snapshot;     //The last published progress snapshot
+
+    /**
+     * SearchStats constructor
+     * @param _depthCapacity expected maximal search depth (arrays grow if it's exceeded)
+     */
+    public SearchStats(int _depthCapacity)
+    {
+        int capacity = Math.max(1, _depthCapacity);
+        nodes = new long[capacity];
+        failures = new long[capacity];
+        backtracks = new long[capacity];
+        prunings = new long[capacity];
+        wipeouts = new long[capacity];
+        timed = false;
+        setSnapshotInterval(1 << 16);
+        reset();
+    }
+
+    //----------
+    // METHODS |-----------------------------------------------------------
+    //----------
+
+    /**
+     * Clears all counters and timings, search time is counted from now
+     */
+    public void reset()
+    {
+        Arrays.fill(nodes, 0);
+        Arrays.fill(failures, 0);
+        Arrays.fill(backtracks, 0);
+        Arrays.fill(prunings, 0);
+        Arrays.fill(wipeouts, 0);
+        totalNodes = 0;
+        maxDepth = 0;
+        backjumps = 0;
+        skippedLevels = 0;
+        selectionNanos = 0;
+        checkNanos = 0;
+        propagationNanos = 0;
+        startNanos = System.nanoTime();
+        snapshot = null;
+    }
+
+    /**
+     * Grows counters to fit the depth
+     * @param _depth search depth
+     */
+    private void ensureDepth(int _depth)
+    {
+        if(_depth < nodes.length) return;
+        int capacity = Math.max(_depth + 1, nodes.length * 2);
+        nodes = Arrays.copyOf(nodes, capacity);
+        failures = Arrays.copyOf(failures, capacity);
+        backtracks = Arrays.copyOf(backtracks, capacity);
+        prunings = Arrays.copyOf(prunings, capacity);
+        wipeouts = Arrays.copyOf(wipeouts, capacity);
+    }
+
+    /**
+     * Counts a tried value (search node), publishes a snapshot every snapshotInterval nodes
+     * @param _depth search depth
+     */
+    public void node(int _depth)
+    {
+        ensureDepth(_depth);
+        nodes[_depth]++;
+        if(_depth > maxDepth) maxDepth = _depth;
+        if((++totalNodes & snapshotMask) == 0) publishSnapshot(_depth);
+    }
+
+    /**
+     * Counts a value rejected by constraints
+     * @param _depth search depth
+     */
+    public void failure(int _depth)
+    {
+        failures[_depth]++;
+    }
+
+    /**
+     * Counts an assignment undone because its subtree has no solution
+     * @param _depth search depth
+     */
+    public void backtrack(int _depth)
+    {
+        backtracks[_depth]++;
+    }
+
+    /**
+     * Counts values deleted from domains forward
+     * @param _depth search depth
+     * @param _amount amount of deleted values
+     */
+    public void prune(int _depth, int _amount)
+    {
+        prunings[_depth] += _amount;
+    }
+
+    /**
+     * Counts domains emptied by deleting values forward
+     * @param _depth search depth
+     * @param _amount amount of emptied domains
+     */
+    public void wipeout(int _depth, int _amount)
+    {
+        wipeouts[_depth] += _amount;
+    }
+
+    /**
+     * Counts a jump back from a level which all values failed to the culprit level
+     * @param _skipped amount of levels between them (their other values aren't tried)
+     */
+    public void backjump(int _skipped)
+    {
+        if(_skipped <= 0) return;
+        backjumps++;
+        skippedLevels += _skipped;
+    }
+
+    /**
+     * Starts measuring time of a search phase
+     * @return current time in nanoseconds, 0 if timing is disabled
+     */
+    public long startTimer()
+    {
+        return timed ? System.nanoTime() : 0;
+    }
+
+    /**
+     * Adds time of choosing a variable
+     * @param _start time returned by startTimer
+     */
+    public void addSelectionTime(long _start)
+    {
+        if(timed) selectionNanos += System.nanoTime() - _start;
+    }
+
+    /**
+     * Adds time of checking constraints
+     * @param _start time returned by startTimer
+     */
+    public void addCheckTime(long _start)
+    {
+        if(timed) checkNanos += System.nanoTime() - _start;
+    }
+
+    /**
+     * Adds time of deleting values forward (or backing them)
+     * @param _start time returned by startTimer
+     */
+    public void addPropagationTime(long _start)
+    {
+        if(timed) propagationNanos += System.nanoTime() - _start;
+    }
+
+    /**
+     * Publishes the current progress for monitoring threads
+     * @param _depth current search depth
+     */
+    public void publishSnapshot(int _depth)
+    {
+        if(_depth > maxDepth) maxDepth = _depth;
+        snapshot = new Snapshot(totalNodes, getFailures(), getBacktracks(), getPrunings(), getWipeouts(),
+                _depth, maxDepth, System.nanoTime() - startNanos);
+    }
+
+    /**
+     * Adds counters and timings of other statistics (e.g. of a parallel subproblem) to this one
+     * @param _other SearchStats to add
+     */
+    public synchronized void merge(SearchStats _other)
+    {
+        ensureDepth(_other.nodes.length - 1);
+        for(int d = 0; d < _other.nodes.length; d++)
+        {
+            nodes[d] += _other.nodes[d];
+            failures[d] += _other.failures[d];
+            backtracks[d] += _other.backtracks[d];
+            prunings[d] += _other.prunings[d];
+            wipeouts[d] += _other.wipeouts[d];
+        }
+        totalNodes += _other.totalNodes;
+        maxDepth = Math.max(maxDepth, _other.maxDepth);
+        backjumps += _other.backjumps;
+        skippedLevels += _other.skippedLevels;
+        selectionNanos += _other.selectionNanos;
+        checkNanos += _other.checkNanos;
+        propagationNanos += _other.propagationNanos;
+        publishSnapshot(maxDepth);
+    }
+
+    /**
+     * Copies counters, timings and the last snapshot - the copy isn't changed by further search
+     * @return SearchStats with the same values
+     */
+    public SearchStats copy()
+    {
+        SearchStats result = new SearchStats(nodes.length);
+        System.arraycopy(nodes, 0, result.nodes, 0, nodes.length);
+        System.arraycopy(failures, 0, result.failures, 0, failures.length);
+        System.arraycopy(backtracks, 0, result.backtracks, 0, backtracks.length);
+        System.arraycopy(prunings, 0, result.prunings, 0, prunings.length);
+        System.arraycopy(wipeouts, 0, result.wipeouts, 0, wipeouts.length);
+        result.totalNodes = totalNodes;
+        result.maxDepth = maxDepth;
+        result.backjumps = backjumps;
+        result.skippedLevels = skippedLevels;
+        result.timed = timed;
+        result.selectionNanos = selectionNanos;
+        result.checkNanos = checkNanos;
+        result.propagationNanos = propagationNanos;
+        result.startNanos = startNanos;
+        result.snapshotMask = snapshotMask;
+        result.snapshot = snapshot;
+        return result;
+    }
+
+    /**
+     * Sums counters of all depths
+     * @param _counters counters per depth
+     * @return sum of counters
+     */
+    private static long sum(long[] _counters)
+    {
+        long result = 0;
+        for(long counter : _counters) result += counter;
+        return result;
+    }
+
+    /**
+     * Gets a counter at depth
+     * @param _counters counters per depth
+     * @param _depth search depth
+     * @return counter at depth, 0 if depth wasn't reached
+     */
+    private static long at(long[] _counters, int _depth)
+    {
+        return _depth >= 0 && _depth < _counters.length ? _counters[_depth] : 0;
+    }
+
+    @Override
+    public String toString()
+    {
+        return "nodes: " + totalNodes + " | failures: " + getFailures() + " | backtracks: " + getBacktracks()
+                + " | prunings: " + getPrunings() + " | wipeouts: " + getWipeouts() + " | max depth: " + maxDepth
+                + (backjumps > 0 ? " | backjumps: " + backjumps + " (skipped levels: " + skippedLevels + ")" : "")
+                + (timed ? " | selection: " + selectionNanos / 1000 + " us | checks: " + checkNanos / 1000
+                + " us | propagation: " + propagationNanos / 1000 + " us" : "");
+    }
+
+    //--------------------
+    // SETTERS & GETTERS |-------------------------------------------------------------
+    //--------------------
+
+    /**
+     * Backjumps getter
+     * @return amount of jumps back over at least one level
+     */
+    public long getBackjumps()
+    {
+        return backjumps;
+    }
+
+    /**
+     * SkippedLevels getter
+     * @return amount of levels skipped by all backjumps
+     */
+    public long getSkippedLevels()
+    {
+        return skippedLevels;
+    }
+
+    /**
+     * Nodes getter
+     * @return amount of values tried at all depths
+     */
+    public long getNodes()
+    {
+        return totalNodes;
+    }
+
+    /**
+     * Nodes at depth getter
+     * @param _depth search depth
+     * @return amount of values tried at depth
+     */
+    public long getNodes(int _depth)
+    {
+        return at(nodes, _depth);
+    }
+
+    /**
+     * Failures getter
+     * @return amount of values rejected by constraints at all depths
+     */
+    public long getFailures()
+    {
+        return sum(failures);
+    }
+
+    /**
+     * Failures at depth getter
+     * @param _depth search depth
+     * @return amount of values rejected by constraints at depth
+     */
+    public long getFailures(int _depth)
+    {
+        return at(failures, _depth);
+    }
+
+    /**
+     * Backtracks getter
+     * @return amount of undone assignments at all depths
+     */
+    public long getBacktracks()
+    {
+        return sum(backtracks);
+    }
+
+    /**
+     * Backtracks at depth getter
+     * @param _depth search depth
+     * @return amount of undone assignments at depth
+     */
+    public long getBacktracks(int _depth)
+    {
+        return at(backtracks, _depth);
+    }
+
+    /**
+     * Prunings getter
+     * @return amount of values deleted from domains forward at all depths
+     */
+    public long getPrunings()
+    {
+        return sum(prunings);
+    }
+
+    /**
+     * Prunings at depth getter
+     * @param _depth search depth
+     * @return amount of values deleted from domains forward at depth
+     */
+    public long getPrunings(int _depth)
+    {
+        return at(prunings, _depth);
+    }
+
+    /**
+     * Wipeouts getter
+     * @return amount of domains emptied by deleting values forward at all depths
+     */
+    public long getWipeouts()
+    {
+        return sum(wipeouts);
+    }
+
+    /**
+     * Wipeouts at depth getter
+     * @param _depth search depth
+     * @return amount of domains emptied by deleting values forward at depth
+     */
+    public long getWipeouts(int _depth)
+    {
+        return at(wipeouts, _depth);
+    }
+
+    /**
+     * MaxDepth getter
+     * @return the deepest reached depth
+     */
+    public int getMaxDepth()
+    {
+        return maxDepth;
+    }
+
+    /**
+     * Selection time getter
+     * @return time of choosing variables in nanoseconds
+     */
+    public long getSelectionNanos()
+    {
+        return selectionNanos;
+    }
+
+    /**
+     * Check time getter
+     * @return time of checking constraints in nanoseconds
+     */
+    public long getCheckNanos()
+    {
+        return checkNanos;
+    }
+
+    /**
+     * Propagation time getter
+     * @return time of deleting values forward (and backing them) in nanoseconds
+     */
+    public long getPropagationNanos()
+    {
+        return propagationNanos;
+    }
+
+    /**
+     * Timed setter
+     * @param _timed true to measure time of search phases (two System.nanoTime calls per phase), false by default
+     */
+    public void setTimed(boolean _timed)
+    {
+        this.timed = _timed;
+    }
+
+    /**
+     * Snapshot interval setter
+     * @param _interval amount of nodes between snapshots (rounded up to a power of 2)
+     */
+    public void setSnapshotInterval(int _interval)
+    {
+        long interval = Long.highestOneBit(Math.max(1, _interval));
+        if(interval < _interval) interval <<= 1;
+        snapshotMask = interval - 1;
+    }
+
+    /**
+     * Snapshot getter - safe to call from any thread
+     * @return the last published progress snapshot, null if none has been published yet
+     */
+    public Snapshot getSnapshot()
+    {
+        return snapshot;
+    }
+
+    /**
+     * Immutable progress of search at some moment
+     */
+    public static final class Snapshot
+    {
+        private final long nodes;
+        private final long failures;
+        private final long backtracks;
+        private final long prunings;
+        private final long wipeouts;
+        private final int depth;
+        private final int maxDepth;
+        private final long elapsedNanos;
+
+        Snapshot(long _nodes, long _failures, long _backtracks, long _prunings, long _wipeouts,
+                 int _depth, int _maxDepth, long _elapsedNanos)
+        {
+            nodes = _nodes;
+            failures = _failures;
+            backtracks = _backtracks;
+            prunings = _prunings;
+            wipeouts = _wipeouts;
+            depth = _depth;
+            maxDepth = _maxDepth;
+            elapsedNanos = _elapsedNanos;
+        }
+
+        public long getNodes()
+        {
+            return nodes;
+        }
+
+        public long getFailures()
+        {
+            return failures;
+        }
+
+        public long getBacktracks()
+        {
+            return backtracks;
+        }
+
+        public long getPrunings()
+        {
+            return prunings;
+        }
+
+        public long getWipeouts()
+        {
+            return wipeouts;
+        }
+
+        public int getDepth()
+        {
+            return depth;
+        }
+
+        public int getMaxDepth()
+        {
+            return maxDepth;
+        }
+
+        public long getElapsedNanos()
+        {
+            return elapsedNanos;
+        }
+
+        /**
+         * Counts search speed
+         * @return nodes per second since the beginning of search
+         */
+        public double getNodesPerSecond()
+        {
+            return elapsedNanos > 0 ? nodes * 1e9 / elapsedNanos : 0;
+        }
+
+        @Override
+        public String toString()
+        {
+            return String.format("nodes: %d (%.0f/s) | backtracks: %d | depth: %d (max %d) | %.3f s",
+                    nodes, getNodesPerSecond(), backtracks, depth, maxDepth, elapsedNanos / 1e9);
+        }
+    }
+}
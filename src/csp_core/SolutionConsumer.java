@@ -0,0 +1,16 @@
+package csp_core;
+
+/**
+ * Consumer of solutions streamed by enumeration - solutions aren't kept in memory by solver
+ */
+public interface SolutionConsumer
+{
+    /**
+     * Accepts a found solution
+     * @param _solution live flat Grid array with the solution, index row*N+col (valid only during the call, copy it to keep;
+     *                  only the first N*N entries are used)
+     * @param _N Grid size
+     * @return true to continue enumeration, false to stop it
+     */
+    boolean accept(int[] _solution, int _N);
+}
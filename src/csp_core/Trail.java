@@ -0,0 +1,142 @@
+package csp_core;
+
+import java.util.Arrays;
+
+/**
+ * Trail of domain prunings made by forward-checking.
+ * Each entry is a pair (variable index, deleted value) kept in primitive arrays.
+ * Every search level opens a mark, backing from the level pops exactly the entries pushed after its mark.
+ */
+public class Trail
+{
+    private int[] vars;     //Indexes of variables which domains were pruned
+    private int[] vals;     //Values deleted from domains
+    private int size;       //Amount of entries on trail
+    private int[] marks;    //Trail size at the beginning of each level
+    private int levels;     //Amount of opened levels
+
+    /**
+     * Trail constructor - preallocates the trail
+     * @param _capacity expected maximal amount of entries
+     * @param _levelsCapacity expected maximal amount of levels
+     */
+    public Trail(int _capacity, int _levelsCapacity)
+    {
+        vars = new int[Math.max(1, _capacity)];
+        vals = new int[vars.length];
+        marks = new int[Math.max(1, _levelsCapacity)];
+        size = 0;
+        levels = 0;
+    }
+
+    /**
+     * Trail copy constructor
+     * @param _other Trail to copy
+     */
+    public Trail(Trail _other)
+    {
+        vars = _other.vars.clone();
+        vals = _other.vals.clone();
+        marks = _other.marks.clone();
+        size = _other.size;
+        levels = _other.levels;
+    }
+
+    //----------
+    // METHODS |-----------------------------------------------------------
+    //----------
+
+    /**
+     * Opens a new level - entries pushed from now will be popped by popToLastMark
+     */
+    public void mark()
+    {
+        if(levels == marks.length) marks = Arrays.copyOf(marks, marks.length * 2);
+        marks[levels++] = size;
+    }
+
+    /**
+     * Pushes a pruning on trail
+     * @param _var index of variable which domain was pruned
+     * @param _val value deleted from domain
+     */
+    public void push(int _var, int _val)
+    {
+        if(size == vars.length)
+        {
+            vars = Arrays.copyOf(vars, vars.length * 2);
+            vals = Arrays.copyOf(vals, vals.length * 2);
+        }
+        vars[size] = _var;
+        vals[size] = _val;
+        size++;
+    }
+
+    /**
+     * Closes the last level and drops its entries (they should be restored by caller before)
+     */
+    public void popToLastMark()
+    {
+        size = marks[--levels];
+    }
+
+    /**
+     * Empties trail and drops all levels
+     */
+    public void clear()
+    {
+        size = 0;
+        levels = 0;
+    }
+
+    //--------------------
+    // SETTERS & GETTERS |-------------------------------------------------------------
+    //--------------------
+
+    /**
+     * Size getter
+     * @return amount of entries on trail
+     */
+    public int getSize()
+    {
+        return size;
+    }
+
+    /**
+     * Last mark getter
+     * @return trail size at the beginning of the last opened level
+     */
+    public int getLastMark()
+    {
+        return marks[levels - 1];
+    }
+
+    /**
+     * Levels getter
+     * @return amount of opened levels
+     */
+    public int getLevels()
+    {
+        return levels;
+    }
+
+    /**
+     * Variable of entry getter
+     * @param _i index of entry
+     * @return index of variable which domain was pruned
+     */
+    public int getVar(int _i)
+    {
+        return vars[_i];
+    }
+
+    /**
+     * Value of entry getter
+     * @param _i index of entry
+     * @return value deleted from domain
+     */
+    public int getVal(int _i)
+    {
+        return vals[_i];
+    }
+}
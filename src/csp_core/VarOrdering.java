@@ -0,0 +1,12 @@
+package csp_core;
+
+/**
+ * Variable ordering heuristics used to choose the next not filled position
+ */
+public enum VarOrdering
+{
+    FIRST_NOT_FILLED,           //First not filled position (row by row)
+    MOST_UNFILLED_NEIGHBOURS,   //Position with the most not filled neighbours (degree heuristic)
+    SMALLEST_DOMAIN,            //Position with the smallest domain (full rescan)
+    INCREMENTAL_MRV             //Smallest domain, ties by degree (bucketed, updated incrementally)
+}
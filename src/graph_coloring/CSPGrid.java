@@ -1,16 +1,32 @@
 package graph_coloring;
 
-import java.util.ArrayList;
-import java.util.HashSet;
-import java.util.List;
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
+import csp_core.BitDomains;
+import csp_core.Checkpoint;
+import csp_core.CheckpointFile;
+import csp_core.ConflictSets;
+import csp_core.SearchEngine;
+import csp_core.SolutionConsumer;
+import csp_core.Trail;
+import csp_core.VarOrdering;
 
-public class CSPGrid
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Grid coloring solver - search of SearchEngine, a color is set only if it differs by at least 2 from neighbours
+ * and from positions distant by 2. If there is no coloring with the current amount of colors, domains are expanded
+ * by 1 color and search runs again (the smallest amount of colors is found)
+ */
+public class CSPGrid extends SearchEngine
 {
-    private Grid grid;      //Grid to solve by CSPGrid
-    private boolean endB;   //End of backtracking flag
-    private boolean endFC;  //End of forward-checking flag
+    private Grid grid;                       //Grid to solve by CSPGrid
+    private Position[] stackPositions;       //Position chosen at each level
+    private boolean expandColors;            //Expand domains and search again when colors are not enough flag
+    private int maxColors;                   //Maximal amount of colors domains are expanded to
+    private Integer[][] greedySolution;      //Greedy coloring of warm start (null if not used)
+    private int greedyColors;                //Amount of colors of greedy coloring (upper bound of search)
 
     /**
      * CSPGrid constructor
@@ -18,142 +34,506 @@ public class CSPGrid
      */
     public CSPGrid(int _gSize)
     {
+        super(_gSize * _gSize);
         grid = new Grid(_gSize);
-        endB = false;
-        endFC = false;
+        stackPositions = new Position[_gSize * _gSize + 1];
+        expandColors = true;
+        maxColors = Grid.MAX_COLORS;
     }
 
-    //---------------------------------
-    // BACKTRACKING & FORWARD-CHECKING |-----------------------------------------------------------
-    //---------------------------------
+    /**
+     * CSPGrid constructor - solves an already prepared Grid (e.g. a subproblem of parallel search)
+     * @param _grid Grid to solve by CSPGrid
+     */
+    CSPGrid(Grid _grid)
+    {
+        super(_grid.getN() * _grid.getN());
+        grid = _grid;
+        stackPositions = new Position[_grid.getN() * _grid.getN() + 1];
+        expandColors = true;
+        maxColors = Grid.MAX_COLORS;
+    }
 
-    public int Backtracking(int level)
+    //-----------------------
+    // COLORS & CONSTRAINTS |-----------------------------------------------------------
+    //-----------------------
+
+    @Override
+    protected int selectVar(int _level)
     {
-//        int levell = level;
-        int amountOfSteps = 0;
-        if(endB) return amountOfSteps;
-        //Grid CSP completed!
-        if(grid.hasFilledNodes())
-        {
-            grid.printGrid();
-            System.out.println();
-            endB = true;
-            return amountOfSteps;
-        }
+        Position pos = grid.selectNotFilledPosition();              //Founded position (by chosen variable ordering)
+        setPosition(_level, pos);
+        return pos.getRow() * grid.getN() + pos.getColumn();
+    }
 
-        //Get a position and its domain
-        Position pos = grid.getNotFilledPosition();                 //Founded position
-//        Position pos = grid.getNotFilledPositionMostUncoloredNeighbours();
-        ConcurrentHashMap<Integer, Integer> posDomain = grid.getDomainAtPosition(pos); //domain of this position
+    @Override
+    protected void setVar(int _level, int _var)
+    {
+        setPosition(_level, new Position(_var / grid.getN(), _var % grid.getN()));
+    }
 
-//        amountOfSteps++;
-        //Choosing a color from domain at position (Constraints CHECKING)
-        for(Object o : posDomain.entrySet())
+    /**
+     * Keeps position of level (stack of positions grows with Grid)
+     * @param _level search level
+     * @param _p Position of variable
+     */
+    private void setPosition(int _level, Position _p)
+    {
+        if(stackPositions.length <= _level)
+            stackPositions = Arrays.copyOf(stackPositions, Math.max(grid.getN() * grid.getN() + 1, _level + 1));
+        stackPositions[_level] = _p;
+    }
+
+    @Override
+    protected int firstValue(int _level)
+    {
+        return grid.getFirstColorFromDomain(stackPositions[_level]);
+    }
+
+    @Override
+    protected int nextValue(int _level, int _color)
+    {
+        return grid.getNextColorFromDomain(stackPositions[_level], _color);
+    }
+
+    @Override
+    protected int domainSize(int _level)
+    {
+        return grid.getDomainSizeAtPosition(stackPositions[_level]);
+    }
+
+    /**
+     * Sets a color from domain and checks constraints, for CBJ the neighbour assigned at the earliest level
+     * explains rejection, learned nogoods are checked too
+     */
+    @Override
+    protected boolean assign(int _level, int _color, boolean _explain)
+    {
+        Position pos = stackPositions[_level];
+        grid.setColorAtPosition(_color, pos);
+        boolean ok = _explain ? isAllowed(pos.getRow() * grid.getN() + pos.getColumn(), _color, _level)
+                : grid.hasDifferentColorsWithNeighbours(pos, 2) && grid.hasDifferentColorsWithPositionsDistantBy2(pos);
+        if(!ok)
         {
-            amountOfSteps++;
-            Map.Entry pair = (Map.Entry) o;
-            Integer color = (Integer) pair.getKey();
-            //Setting a first color from domain
-            grid.setColorAtPosition(color, pos);
-            boolean ok = true;
+            grid.unsetColorAtPosition(pos);
+            return false;
+        }
+        grid.setPositionAsFilled(pos);
+        return true;
+    }
 
-            //Checking constraints
-            if(grid.hasDifferentColorsWithNeighbours(pos, 2)
-                    && grid.hasDifferentColorsWithPositionsDistantBy2(pos))
+    /**
+     * Checks if color set at position satisfies constraints with its neighbours and no learned nogood rejects it.
+     * Otherwise levels of assignments which reject the color are added to the conflict set of level
+     * @param _var index of variable at position (its color is already set)
+     * @param _color color of variable
+     * @param _level search level
+     * @return true if color is allowed, false if it's not
+     */
+    private boolean isAllowed(int _var, int _color, int _level)
+    {
+        ConflictSets conflictSets = getConflictSets();
+        int[] values = grid.getGrid_values();
+        //One neighbour explains rejection - the one assigned at the earliest level jumps the furthest
+        int culprit = -1;
+        int culpritLevel = Integer.MAX_VALUE;
+        for(int neighbour : grid.getNeighbours_1()[_var])
+        {
+            if(values[neighbour] != Grid.UNSET && Math.abs(values[neighbour] - _color) < 2
+                    && conflictSets.getLevelOf(neighbour) < culpritLevel)
             {
-                grid.setPositionAsFilled(pos);
+                culprit = neighbour;
+                culpritLevel = conflictSets.getLevelOf(neighbour);
             }
-            else
+        }
+        for(int neighbour : grid.getNeighbours_2()[_var])
+        {
+            if(values[neighbour] == _color && conflictSets.getLevelOf(neighbour) < culpritLevel)
             {
-                grid.unsetColorAtPosition(pos);
-                ok = false;
+                culprit = neighbour;
+                culpritLevel = conflictSets.getLevelOf(neighbour);
             }
+        }
+        if(culprit != -1)
+        {
+            conflictSets.addCulprit(_level, culprit);
+            return false;
+        }
+        return !isRejectedByNogood(_var, _color, _level);
+    }
 
-            if(ok)
-            {
-//                grid.printGrid();
-                amountOfSteps += Backtracking(level + 1);
-                //Cleaning after backing from recursion
-                grid.unsetPositionAsFilled(pos);
-                grid.unsetColorAtPosition(pos);
-            }
+    @Override
+    protected void fill(int _level, int _color)
+    {
+        grid.setColorAtPosition(_color, stackPositions[_level]);
+        grid.setPositionAsFilled(stackPositions[_level]);
+    }
+
+    @Override
+    protected int forwardCheck(int _level, int _color)
+    {
+        return grid.deleteDomainsForward(stackPositions[_level], _color);
+    }
+
+    @Override
+    protected boolean maintainArcConsistency(int _level, int _color)
+    {
+        return grid.maintainArcConsistency(stackPositions[_level], _color);
+    }
+
+    @Override
+    protected void restoreDomains()
+    {
+        grid.backDeletedColorFromDomains();
+    }
+
+    @Override
+    protected void unassign(int _level)
+    {
+        grid.unsetPositionAsFilled(stackPositions[_level]);
+        grid.unsetColorAtPosition(stackPositions[_level]);
+    }
+
+    @Override
+    protected int countLastValues(int _level)
+    {
+        Position pos = stackPositions[_level];
+        int result = 0;
+        for(int color = grid.getFirstColorFromDomain(pos); color != -1; color = grid.getNextColorFromDomain(pos, color))
+        {
+            grid.setColorAtPosition(color, pos);
+            if(grid.hasDifferentColorsWithNeighbours(pos, 2)
+                    && grid.hasDifferentColorsWithPositionsDistantBy2(pos)) result++;
+            grid.unsetColorAtPosition(pos);
         }
+        return result;
+    }
 
-        //if we are on the first Backtracking level our colors amount is not enough
-        //We need to expand domains and run Backtracking again
-        if(level == 0 && !endB)
+    /**
+     * Our colors amount is not enough - domains are expanded by 1 color and search runs again,
+     * greedy coloring of warm start doesn't need more colors than the next search
+     */
+    @Override
+    protected boolean relax()
+    {
+        if(!canExpandColors()) return false;
+        if(acceptGreedySolution())
         {
-            grid.expandDomains();
-            amountOfSteps += Backtracking(0);
+            endSearch();
+            return false;
         }
+        grid.expandDomains();
+        return true;
+    }
+
+    //---------------------------------
+    // GREEDY COLORING & WARM START |-----------------------------------------------------------
+    //---------------------------------
 
-        return amountOfSteps;
+    /**
+     * Approximate mode - colors Grid greedily by DSATUR without search (linear in amount of positions)
+     * @return amount of used colors (not always the smallest one)
+     */
+    public int Dsatur()
+    {
+        return acceptGreedyColoring(grid.colorGreedyDsatur());
     }
 
-    public int ForwardChecking(int level)
+    /**
+     * Approximate mode - colors Grid greedily by Welsh-Powell without search (linear in amount of positions)
+     * @return amount of used colors (not always the smallest one)
+     */
+    public int WelshPowell()
     {
-//        int levell = level;
-        int amountOfSteps = 0;
-        if(endFC) return amountOfSteps;
-        //Grid CSP completed!
-        if(grid.hasFilledNodes())
+        return acceptGreedyColoring(grid.colorGreedyWelshPowell());
+    }
+
+    /**
+     * Keeps greedy coloring as a solution
+     * @param _colors colors of all positions (index row*N+col)
+     * @return amount of used colors
+     */
+    private int acceptGreedyColoring(int[] _colors)
+    {
+        setSolution(toArray(_colors, grid.getN()));
+        if(isPrintSolution())
         {
-            grid.printGrid();
+            grid.printColors(_colors);
             System.out.println();
-            endFC = true;
-            return amountOfSteps;
         }
+        return colorsUsed(_colors);
+    }
 
-        //Get a position and its domain
-        Position pos = grid.getNotFilledPosition();                 //Founded position
-//        Position pos = grid.getNotFilledPositionMostUncoloredNeighbours();
-//        Position pos = grid.getNotFilledPositionSmallestDomain();
-        ConcurrentHashMap<Integer, Integer> posDomain = grid.getDomainAtPosition(pos); //domain of this position
+    /**
+     * Warm start - colors Grid greedily before search (the better of DSATUR and Welsh-Powell). Its amount of colors
+     * is the upper bound of search: when domains would be expanded to this amount, the greedy coloring is taken
+     * as the solution instead of searching again, so search returns the greedy coloring or one with fewer colors.
+     * @return amount of colors of greedy coloring (upper bound)
+     */
+    public int warmStart()
+    {
+        int[] colors = grid.colorGreedyDsatur();
+        int[] welshPowell = grid.colorGreedyWelshPowell();
+        if(colorsUsed(welshPowell) < colorsUsed(colors)) colors = welshPowell;
+        greedySolution = toArray(colors, grid.getN());
+        greedyColors = colorsUsed(colors);
+        return greedyColors;
+    }
 
-//        amountOfSteps++;
-        //Choosing a color from domain at position (Constraints CHECKING)
-        for(Object o : posDomain.entrySet())
+    /**
+     * Takes greedy coloring of warm start as the solution if the next search would have as many colors as it uses
+     * @return true if greedy coloring has been taken, false if it's not (or warm start isn't used)
+     */
+    private boolean acceptGreedySolution()
+    {
+        if(greedySolution == null || grid.getColors_amount() + 1 < greedyColors) return false;
+        setSolution(greedySolution);
+        if(isPrintSolution())
         {
-            amountOfSteps++;
-            Map.Entry pair = (Map.Entry) o;
-            Integer color = (Integer) pair.getKey();
-            //Setting a first color from domain
-            grid.setColorAtPosition(color, pos);
-            boolean ok = true;
+            grid.printColors(toValues(greedySolution));
+            System.out.println();
+        }
+        return true;
+    }
 
-            List<String> backupColorsList = new ArrayList<>();
-            //Checking constraints
-            if(grid.hasDifferentColorsWithNeighbours(pos, 2)
-                    && grid.hasDifferentColorsWithPositionsDistantBy2(pos))
-            {
-                grid.setPositionAsFilled(pos);
-                backupColorsList = grid.deleteDomainsForward(pos, color);
-            }
-            else
-            {
-                grid.unsetColorAtPosition(pos);
-                ok = false;
-            }
+    /**
+     * Counts colors used by coloring
+     * @param _colors colors of all positions
+     * @return the highest color + 1
+     */
+    static int colorsUsed(int[] _colors)
+    {
+        int result = 0;
+        for(int color : _colors) result = Math.max(result, color + 1);
+        return result;
+    }
 
-            if(ok)
+    /**
+     * Counts colors used by coloring
+     * @param _colors colors as N x N array
+     * @return the highest color + 1
+     */
+    static int colorsUsed(Integer[][] _colors)
+    {
+        int result = 0;
+        for(Integer[] row : _colors)
+        {
+            for(Integer color : row) result = Math.max(result, color + 1);
+        }
+        return result;
+    }
+
+    /**
+     * Converts flat colors into Grid array
+     * @param _colors colors of all positions (index row*N+col)
+     * @param _n size of Grid
+     * @return colors as N x N array
+     */
+    static Integer[][] toArray(int[] _colors, int _n)
+    {
+        Integer[][] result = new Integer[_n][_n];
+        for(int i = 0; i < _colors.length; i++) result[i / _n][i % _n] = _colors[i];
+        return result;
+    }
+
+    /**
+     * Converts Grid array into flat colors
+     * @param _colors colors as N x N array
+     * @return colors of all positions (index row*N+col)
+     */
+    private static int[] toValues(Integer[][] _colors)
+    {
+        int n = _colors.length;
+        int[] result = new int[n * n];
+        for(int i = 0; i < result.length; i++) result[i] = _colors[i / n][i % n];
+        return result;
+    }
+
+    //--------------------
+    // PRE-COLORED CELLS |-----------------------------------------------------------
+    //--------------------
+
+    /**
+     * Loads pre-colored cells - search (e.g. MaintainingArcConsistency(0)) colors only the other positions.
+     * Colors must be lower than maxColors (and Grid.MAX_COLORS), the most colors domains can be expanded to.
+     * Should be called before search on a new solver
+     * @param _cells N x N array of pre-colored cells (colors 0..maxColors-1), null for not colored ones
+     * @return true if pre-colored cells satisfy all constraints, false if two of them clash
+     */
+    public boolean loadPartialGrid(Integer[][] _cells)
+    {
+        int n = grid.getN();
+        int colors = Math.min(maxColors, Grid.MAX_COLORS);
+        if(_cells.length != n) throw new IllegalArgumentException("Partial grid must have " + n + " rows");
+        int[] values = new int[n * n];
+        for(int r = 0; r < n; r++)
+        {
+            if(_cells[r].length != n) throw new IllegalArgumentException("Partial grid must have " + n + " columns");
+            for(int c = 0; c < n; c++)
             {
-                amountOfSteps += ForwardChecking(level);
-                //Cleaning after backing from recursion
-                grid.backDeletedColorFromDomains(pos, color, backupColorsList);
-                grid.unsetPositionAsFilled(pos);
-                grid.unsetColorAtPosition(pos);
+                Integer color = _cells[r][c];
+                if(color != null && (color < 0 || color >= colors))
+                    throw new IllegalArgumentException("Color " + color + " at " + r + "/" + c + " is out of range 0.." + (colors - 1));
+                values[r * n + c] = color != null ? color : Grid.UNSET;
             }
         }
+        return grid.loadPartial(values);
+    }
 
-        //if we are on the first Backtracking level our colors amount is not enough
-        //We need to expand domains and run Backtracking again
-        if(level == 0 && !endFC)
+    //----------------------------------
+    // SOLUTIONS ENUMERATION & COUNTING |-----------------------------------------------------------
+    //----------------------------------
+
+    /**
+     * Enumerates all colorings with given amount of colors, each one is streamed to consumer and isn't kept in memory
+     * Grid should be empty, its domains are set to _colorsAmount colors
+     * @param _colorsAmount amount of colors
+     * @param _consumer consumer of solutions (null to only count them), it can stop enumeration by returning false
+     * @param _forwardChecking true to delete colors from domains forward, false for plain backtracking
+     * @return amount of enumerated solutions
+     */
+    public long enumerateSolutions(int _colorsAmount, SolutionConsumer _consumer, boolean _forwardChecking)
+    {
+        if(isPaused()) abandon();
+        setColorsAmount(_colorsAmount);
+        return enumerate(_consumer, _forwardChecking, true);
+    }
+
+    /**
+     * Counts all colorings with given amount of colors without materializing them
+     * Grid should be empty, its domains are set to _colorsAmount colors
+     * @param _colorsAmount amount of colors
+     * @param _forwardChecking true to delete colors from domains forward, false for plain backtracking
+     * @return amount of solutions
+     */
+    public long countSolutions(int _colorsAmount, boolean _forwardChecking)
+    {
+        return enumerateSolutions(_colorsAmount, null, _forwardChecking);
+    }
+
+    /**
+     * Counts all colorings with given amount of colors using symmetry - color c -> (_colorsAmount - 1 - c) reflection
+     * keeps all constraints, so only colorings with the first position colored from the lower half are counted
+     * (by forward-checking) and doubled. Grid should be empty, its domains are set to _colorsAmount colors.
+     * Counting by symmetry doesn't write checkpoints
+     * @param _colorsAmount amount of colors
+     * @return amount of solutions
+     */
+    public long countSolutionsBySymmetry(int _colorsAmount)
+    {
+        if(isPaused()) abandon();
+        setColorsAmount(_colorsAmount);
+        long result = 0;
+        Position first = new Position(0, 0);
+
+        for(int color = 0; color <= _colorsAmount - 1 - color; color++)
         {
-            grid.expandDomains();
-            amountOfSteps += ForwardChecking(0);
+            grid.setColorAtPosition(color, first);
+            grid.setPositionAsFilled(first);
+            grid.deleteDomainsForward(first, color);
+
+            //The first position is colored outside of search stack, so checkpoints of sub-counts couldn't be restored
+            long count = enumerate(null, true, false);
+            //A paused partial count can't be continued - pause stops counting like stop condition
+            boolean interrupted = isPaused();
+            if(interrupted) abandon();
+            //The middle color is its own reflection
+            result += (color == _colorsAmount - 1 - color ? 1 : 2) * count;
+
+            grid.backDeletedColorFromDomains();
+            grid.unsetPositionAsFilled(first);
+            grid.unsetColorAtPosition(first);
+            if(interrupted || isStopped()) break;
         }
+        setSolutionsCount(result);
+        return result;
+    }
 
-        return amountOfSteps;
+    /**
+     * Sets domains of all variables to _colorsAmount colors
+     * @param _colorsAmount amount of colors
+     */
+    void setColorsAmount(int _colorsAmount)
+    {
+        while(grid.getColors_amount() < _colorsAmount) grid.expandDomains();
+        while(grid.getColors_amount() > _colorsAmount) grid.reduceDomains();
+    }
+
+    /**
+     * Checks if domains can be expanded by one more color
+     * @return true if expanding is enabled and maxColors isn't reached, false if it's not
+     */
+    private boolean canExpandColors()
+    {
+        return expandColors && grid.getColors_amount() < maxColors;
+    }
+
+    //-------------
+    // CHECKPOINT |-----------------------------------------------------------
+    //-------------
+
+    /**
+     * Restores a paused enumeration from checkpoint, it continues by resume. Grid should be empty (as for
+     * enumerateSolutions), its domains are set to _colorsAmount colors. Colors are replayed with the same
+     * propagation, replayed assignment and domains are compared with the ones kept in checkpoint
+     * @param _colorsAmount amount of colors of enumeration
+     * @param _checkpoint checkpoint of enumeration (of a Grid of the same size)
+     * @param _consumer consumer of the rest of solutions (null to only count them)
+     * @throws IllegalArgumentException if checkpoint doesn't belong to this Grid and amount of colors or isn't of enumeration
+     */
+    public void restore(int _colorsAmount, Checkpoint _checkpoint, SolutionConsumer _consumer)
+    {
+        if(isPaused()) abandon();
+        setColorsAmount(_colorsAmount);
+        if(!fits(_checkpoint))
+            throw new IllegalArgumentException("Checkpoint doesn't belong to Grid of size " + grid.getN());
+        if(!replay(_checkpoint, _consumer))
+            throw new IllegalArgumentException("Checkpoint doesn't belong to this Grid and amount of colors");
+    }
+
+    /**
+     * Restores a paused enumeration from checkpoint file, it continues by resume
+     * @param _colorsAmount amount of colors of enumeration
+     * @param _file checkpoint file (written by periodic checkpoints or CheckpointFile.write)
+     * @param _consumer consumer of the rest of solutions (null to only count them)
+     * @throws IOException if file can't be read or it's truncated or corrupted
+     * @throws IllegalArgumentException if checkpoint doesn't belong to this Grid and amount of colors or isn't of enumeration
+     */
+    public void restore(int _colorsAmount, Path _file, SolutionConsumer _consumer) throws IOException
+    {
+        restore(_colorsAmount, CheckpointFile.read(_file), _consumer);
+    }
+
+    //--------
+    // RESET |-----------------------------------------------------------
+    //--------
+
+    /**
+     * Clears the solver for the next problem of the same size - empties Grid (assignments and domains),
+     * drops solution, greedy coloring of warm start, end flags, paused search, statistics, conflict sets and learned nogoods.
+     * Settings (variable ordering, seed, stop condition, nogood limits, printing, expanding colors) are kept
+     * and all arrays are reused
+     */
+    public void reset()
+    {
+        VarOrdering varOrdering = grid.getVar_ordering();
+        grid.reset();
+        grid.setVar_ordering(varOrdering);
+        greedySolution = null;
+        greedyColors = 0;
+        resetSearch();
+    }
+
+    /**
+     * Changes size of Grid and clears the solver (as reset) - Grid arrays, domains and trail, statistics,
+     * conflict sets and nogoods are reused if they are big enough
+     * @param _gSize new size of Grid
+     */
+    public void resize(int _gSize)
+    {
+        grid.resize(_gSize);
+        ensureCapacity(_gSize * _gSize);
+        reset();
     }
 
     //--------------------
@@ -180,38 +560,105 @@ public class CSPGrid
     }
 
     /**
-     * EndB (End of backtracking flag) getter
-     * @return End of backtracking flag
+     * Variable ordering getter
+     * @return heuristic used to choose the next position to fill
      */
-    public boolean isEndB()
+    @Override
+    public VarOrdering getVarOrdering()
     {
-        return endB;
+        return grid.getVar_ordering();
     }
 
     /**
-     * EndB (End of backtracking flag) setter
-     * @param endB New backtracking flag value to replace with this
+     * Variable ordering setter
+     * @param _varOrdering heuristic used to choose the next position to fill
      */
-    public void setEndB(boolean endB)
+    @Override
+    public void setVarOrdering(VarOrdering _varOrdering)
     {
-        this.endB = endB;
+        grid.setVar_ordering(_varOrdering);
     }
 
     /**
-     * EndFC (End of forward-checking flag) getter
-     * @return End of forward-checking flag
+     * ExpandColors setter
+     * @param _expandColors true to expand domains and search again when colors are not enough (the smallest
+     *                      amount of colors is found), false to search only with the current amount of colors
      */
-    public boolean isEndFC()
+    public void setExpandColors(boolean _expandColors)
     {
-        return endFC;
+        this.expandColors = _expandColors;
     }
 
     /**
-     * EndFC (End of forward-checking flag) setter
-     * @param endFC New forward-checking flag value to replace with this
+     * MaxColors getter
+     * @return maximal amount of colors domains are expanded to
      */
-    public void setEndFC(boolean endFC)
+    public int getMaxColors()
+    {
+        return maxColors;
+    }
+
+    /**
+     * MaxColors setter - search with expanding colors fails (UNSAT) if Grid can't be colored with so many colors
+     * @param _maxColors maximal amount of colors domains are expanded to (at most 21 are ever needed)
+     */
+    public void setMaxColors(int _maxColors)
+    {
+        this.maxColors = _maxColors;
+    }
+
+
+    @Override
+    protected int getSize()
+    {
+        return grid.getN();
+    }
+
+    @Override
+    protected int[] getValues()
+    {
+        return grid.getGrid_values();
+    }
+
+    @Override
+    protected BitDomains getDomains()
+    {
+        return grid.getGrid_domains();
+    }
+
+    @Override
+    protected Trail getTrail()
+    {
+        return grid.getTrail();
+    }
+
+    @Override
+    protected boolean isComplete()
+    {
+        return grid.hasFilledNodes();
+    }
+
+    @Override
+    protected int getFilledAmount()
+    {
+        return grid.getFilled_amount();
+    }
+
+    @Override
+    protected Integer[][] copySolution()
+    {
+        return grid.getGrid_array();
+    }
+
+    @Override
+    protected void printGrid()
+    {
+        grid.printGrid();
+    }
+
+    @Override
+    protected void setTieBreaker(Random _random)
     {
-        this.endFC = endFC;
+        grid.setTie_breaker(_random);
     }
 }
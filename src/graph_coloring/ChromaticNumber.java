@@ -0,0 +1,168 @@
+package graph_coloring;
+
+import csp_core.VarOrdering;
+
+import java.util.function.BooleanSupplier;
+
+/**
+ * Finds the smallest amount of colors of Grid (chromatic number) between two bounds instead of expanding domains
+ * by one color after each failed search. Upper bound is taken from greedy coloring (DSATUR or Welsh-Powell),
+ * lower bound is the exact amount of colors of a small subgrid (every coloring of Grid colors its subgrid too).
+ * Amounts of colors between bounds are checked with MAC search without expanding domains - the lower bound
+ * first, then by bisection. Each found coloring lowers upper bound to colors it really uses, each failed
+ * search raises lower bound, search stops as soon as bounds meet.
+ */
+public class ChromaticNumber
+{
+    private static final int SUBGRID_SIZE = 3;  //Size of subgrid colored exactly for the lower bound
+
+    private int N;                              //Grid size
+    private VarOrdering varOrdering;            //Variable ordering of searches
+    private BooleanSupplier stopCondition;      //Cooperative cancellation (null if not used)
+    private int lowerBound;                     //Amount of colors which is surely needed
+    private int upperBound;                     //Amount of colors of the best found coloring
+    private Integer[][] solution;               //The best found coloring
+    private long amountOfSteps;                 //Amount of steps of all searches
+    private int searches;                       //Amount of searches with fixed amount of colors
+
+    /**
+     * ChromaticNumber constructor
+     * @param _gSize size of Grid
+     */
+    public ChromaticNumber(int _gSize)
+    {
+        N = _gSize;
+        varOrdering = VarOrdering.SMALLEST_DOMAIN;
+    }
+
+    //---------
+    // SEARCH |-----------------------------------------------------------
+    //---------
+
+    /**
+     * Finds the chromatic number of Grid (or the best bounds until stop condition is fulfilled)
+     * @return the smallest amount of colors (upper bound if search has been stopped)
+     */
+    public int solve()
+    {
+        amountOfSteps = 0;
+        searches = 0;
+
+        //Upper bound - the better of DSATUR and Welsh-Powell greedy colorings
+        Grid greedy = new Grid(N);
+        int[] colors = greedy.colorGreedyDsatur();
+        int[] welshPowell = greedy.colorGreedyWelshPowell();
+        if(CSPGrid.colorsUsed(welshPowell) < CSPGrid.colorsUsed(colors)) colors = welshPowell;
+        upperBound = CSPGrid.colorsUsed(colors);
+        solution = CSPGrid.toArray(colors, N);
+
+        //Lower bound - the exact amount of colors of a subgrid (searched by expanding domains, it's small)
+        CSPGrid subgrid = new CSPGrid(Math.min(N, SUBGRID_SIZE));
+        subgrid.setPrintSolution(false);
+        subgrid.setStopCondition(stopCondition);
+        amountOfSteps += subgrid.MaintainingArcConsistency(0);
+        lowerBound = subgrid.getSolution() != null ? CSPGrid.colorsUsed(subgrid.getSolution()) : 0;
+
+        //Lower bound is tried first (it's usually reached and tight domains propagate the most),
+        //then bisection between bounds
+        boolean first = true;
+        while(lowerBound < upperBound && !isStopped())
+        {
+            int colorsAmount = first ? lowerBound : (lowerBound + upperBound - 1) / 2;
+            first = false;
+            CSPGrid solver = new CSPGrid(N);
+            solver.setPrintSolution(false);
+            solver.setExpandColors(false);
+            solver.setVarOrdering(varOrdering);
+            solver.setStopCondition(stopCondition);
+            solver.setColorsAmount(colorsAmount);
+            amountOfSteps += solver.MaintainingArcConsistency(0);
+            searches++;
+
+            if(solver.getSolution() != null)
+            {
+                solution = solver.getSolution();
+                upperBound = CSPGrid.colorsUsed(solution);
+            }
+            //Stopped search proves nothing
+            else if(!isStopped()) lowerBound = colorsAmount + 1;
+        }
+        return upperBound;
+    }
+
+    /**
+     * Checks if the search should be stopped (cooperative cancellation)
+     * @return true if stop condition is set and fulfilled, false if it's not
+     */
+    private boolean isStopped()
+    {
+        return stopCondition != null && stopCondition.getAsBoolean();
+    }
+
+    //--------------------
+    // SETTERS & GETTERS |-------------------------------------------------------------
+    //--------------------
+
+    /**
+     * LowerBound getter
+     * @return amount of colors which is surely needed
+     */
+    public int getLowerBound()
+    {
+        return lowerBound;
+    }
+
+    /**
+     * UpperBound getter
+     * @return amount of colors of the best found coloring
+     */
+    public int getUpperBound()
+    {
+        return upperBound;
+    }
+
+    /**
+     * Solution getter
+     * @return the best found coloring
+     */
+    public Integer[][] getSolution()
+    {
+        return solution;
+    }
+
+    /**
+     * AmountOfSteps getter
+     * @return amount of steps of all searches
+     */
+    public long getAmountOfSteps()
+    {
+        return amountOfSteps;
+    }
+
+    /**
+     * Searches getter
+     * @return amount of searches with fixed amount of colors (bisection steps)
+     */
+    public int getSearches()
+    {
+        return searches;
+    }
+
+    /**
+     * Variable ordering setter
+     * @param _varOrdering heuristic used to choose the next position to fill
+     */
+    public void setVarOrdering(VarOrdering _varOrdering)
+    {
+        this.varOrdering = _varOrdering;
+    }
+
+    /**
+     * StopCondition setter
+     * @param _stopCondition condition polled during search, search returns the best bounds when it's fulfilled
+     */
+    public void setStopCondition(BooleanSupplier _stopCondition)
+    {
+        this.stopCondition = _stopCondition;
+    }
+}
@@ -0,0 +1,64 @@
+package graph_coloring;
+
+import csp_core.BatchResult;
+import csp_core.BufferPool;
+import csp_core.ProblemSpec;
+import csp_core.SearchResult;
+
+import java.util.function.BooleanSupplier;
+
+/**
+ * Grid coloring instance (optionally with pre-colored cells) for batch solving.
+ * Solvers (with their Grids) are taken from a per-thread pool and reset after use, so a worker solving many
+ * instances of the same size doesn't allocate new domains, trail and arc queue buffers, statistics and nogood store for each one.
+ */
+public class GraphColoringSpec extends ProblemSpec
+{
+    private static final int POOLED_SOLVERS = 2;    //Kept solvers of each size per thread
+    private static final BufferPool<CSPGrid> SOLVERS = new BufferPool<>(CSPGrid::new, CSPGrid::reset, POOLED_SOLVERS);
+
+    /**
+     * GraphColoringSpec constructor - Grid without pre-colored cells
+     * @param _N size of Grid
+     */
+    public GraphColoringSpec(int _N)
+    {
+        super(_N, null);
+    }
+
+    /**
+     * GraphColoringSpec constructor - Grid with pre-colored cells
+     * @param _cells N x N array of pre-colored cells (colors from 0), null for not colored ones
+     */
+    public GraphColoringSpec(Integer[][] _cells)
+    {
+        super(_cells.length, _cells);
+    }
+
+    //----------
+    // METHODS |-----------------------------------------------------------
+    //----------
+
+    @Override
+    public BatchResult solve(BooleanSupplier _stopCondition)
+    {
+        long start = System.nanoTime();
+        CSPGrid solver = SOLVERS.acquire(getN());
+        try
+        {
+            solver.setPrintSolution(false);
+            solver.setStopCondition(_stopCondition);
+            if(getCells() != null && !solver.loadPartialGrid(getCells()))
+                return new BatchResult(this, SearchResult.Status.UNSAT, null, null, 0, System.nanoTime() - start);
+            solver.setVarOrdering(getVarOrdering());
+            SearchResult result = solver.solve(getAlgorithm(), newLimits());
+            return new BatchResult(this, result.getStatus(), result.getReason(), result.getSolution(),
+                    result.getSteps(), System.nanoTime() - start);
+        }
+        finally
+        {
+            solver.setStopCondition(null);
+            SOLVERS.release(getN(), solver);
+        }
+    }
+}
@@ -1,16 +1,46 @@
 package graph_coloring;
 
-import java.lang.reflect.Array;
+import csp_core.BitDomains;
+import csp_core.MrvBuckets;
+import csp_core.Trail;
+import csp_core.VarOrdering;
+
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
 
 public class Grid
 {
+    static final int UNSET = -1;                //Color of not filled CSP variable
+    //Colors which are always enough - a position has 4 neighbours (forbidding 3 colors each)
+    //and 8 positions distant by 2 (forbidding 1 color each), so one of 21 colors is always allowed
+    static final int MAX_COLORS = 21;
+
+    //UP, RIGHT, DOWN, LEFT
+    private static final int[][] OFFSETS_1 = {{-1, 0}, {0, 1}, {1, 0}, {0, -1}};
+    //N, N-E, E, S-E, S, S-W, W, N-W
+    private static final int[][] OFFSETS_2 = {{-2, 0}, {-1, 1}, {0, 2}, {1, 1}, {2, 0}, {1, -1}, {0, -2}, {-1, -1}};
+    //Neighbour tables shared by all Grids of the same size ({neighbours_1, neighbours_2} for each N)
+    private static final Map<Integer, int[][][]> NEIGHBOURS_CACHE = new ConcurrentHashMap<>();
+
     private int N;                              //Grid size
-    private Integer[][] grid_array;             //Array of CSP variables (Grid implementation)
-    private List<Integer> filled_positions;     //Filled positions
-    private List<ConcurrentHashMap<Integer, Integer>> grid_domains; //domains for each variable (position) (List of positions implement.)
+    private int capacity;                       //The biggest Grid size the arrays are allocated for (grid_array, queue)
+    private int[][] neighbours_1;               //Indexes of positions distant by 1 (inside the Grid) for each position
+    private int[][] neighbours_2;               //Indexes of positions distant by 2 (inside the Grid) for each position
+    private int[] grid_array;                   //Flat array of CSP variables (Grid implementation), index row*N+col
+    private BitSet unfilled_positions;          //Not filled positions (bit per variable index)
+    private int filled_amount;                  //Amount of filled positions
+    private BitDomains grid_domains;            //domains for each variable (position) (bitset per position)
+    private Trail trail;                        //Trail of forward-checking prunings
+    private VarOrdering var_ordering;           //Variable ordering used by selectNotFilledPosition
+    private MrvBuckets mrv_buckets;             //Buckets of not filled positions (only for INCREMENTAL_MRV ordering)
+    private int[] unfilled_neighbours;          //Amount of not filled neighbours of each position (only for INCREMENTAL_MRV)
     private int colors_amount;                  //Amount of color (domain size)
+    private int[] arc_queue;                    //Circular queue of positions which domains changed (arc consistency)
+    private boolean[] in_arc_queue;             //Position is in arc_queue flags
+    private int arc_queue_head;                 //Index of the first position in arc_queue
+    private int arc_queue_size;                 //Amount of positions in arc_queue
+    private int[] residues;                     //The last found support for each (position, direction, color)
+    private Random tie_breaker;                 //Random choice between equally small domains (null to take the first one)
 
     /**
      * Grid constructor - creates a Grid instance with randomized N size
@@ -20,13 +50,21 @@ public class Grid
         //Randomized N (from 1 to 10)
         Random rand = new Random();
         N = rand.nextInt(10) + 1;
-        grid_array = new Integer[N][N];
-        filled_positions = new ArrayList<>();
+        grid_array = new int[N * N];
+        Arrays.fill(grid_array, UNSET);
+        capacity = N;
+        initNeighbours();
+        unfilled_positions = new BitSet(N * N);
+        unfilled_positions.set(0, N * N);
+        filled_amount = 0;
+        var_ordering = VarOrdering.FIRST_NOT_FILLED;
         colors_amount = 0;
 
-        //Initializing a HashSet for each CSP variable in array
-        grid_domains = new ArrayList<>();
-        for(int i = 0; i < N * N; i++) grid_domains.add(new ConcurrentHashMap<>());
+        //Initializing an empty bitset domain for each CSP variable in array
+        grid_domains = new BitDomains(N * N, 0);
+
+        //Each assignment prunes at most 3 colors of 4 neighbours and 1 color of 8 positions distant by 2
+        trail = new Trail(N * N * 20, N * N + 1);
     }
 
     /**
@@ -36,13 +74,79 @@ public class Grid
     Grid(int _N)
     {
         this.N = _N;
-        grid_array = new Integer[N][N];
-        filled_positions = new ArrayList<>();
+        grid_array = new int[N * N];
+        Arrays.fill(grid_array, UNSET);
+        capacity = N;
+        initNeighbours();
+        unfilled_positions = new BitSet(N * N);
+        unfilled_positions.set(0, N * N);
+        filled_amount = 0;
+        var_ordering = VarOrdering.FIRST_NOT_FILLED;
         colors_amount = 0;
 
-        //Initializing a HashSet for each CSP variable in array
-        grid_domains = new ArrayList<>();
-        for(int i = 0; i < N * N; i++) grid_domains.add(new ConcurrentHashMap<>());
+        //Initializing an empty bitset domain for each CSP variable in array
+        grid_domains = new BitDomains(N * N, 0);
+
+        //Each assignment prunes at most 3 colors of 4 neighbours and 1 color of 8 positions distant by 2
+        trail = new Trail(N * N * 20, N * N + 1);
+    }
+
+    /**
+     * Grid copy constructor - creates an independent copy of Grid state (assignments, domains, trail and heuristics).
+     * Random tie breaker isn't shared - the copy gets its own one seeded from the copied one
+     * @param _other Grid to copy
+     */
+    Grid(Grid _other)
+    {
+        this.N = _other.N;
+        capacity = _other.capacity;
+        grid_array = _other.grid_array.clone();
+        neighbours_1 = _other.neighbours_1;
+        neighbours_2 = _other.neighbours_2;
+        unfilled_positions = (BitSet) _other.unfilled_positions.clone();
+        filled_amount = _other.filled_amount;
+        grid_domains = new BitDomains(_other.grid_domains);
+        trail = new Trail(_other.trail);
+        colors_amount = _other.colors_amount;
+        var_ordering = _other.var_ordering;
+        mrv_buckets = _other.mrv_buckets != null ? new MrvBuckets(_other.mrv_buckets) : null;
+        unfilled_neighbours = _other.unfilled_neighbours != null ? _other.unfilled_neighbours.clone() : null;
+        tie_breaker = _other.tie_breaker != null ? new Random(_other.tie_breaker.nextLong()) : null;
+    }
+
+    /**
+     * Takes neighbour tables for Grid size from cache (computes them once for each size)
+     */
+    private void initNeighbours()
+    {
+        int[][][] tables = NEIGHBOURS_CACHE.computeIfAbsent(N, n -> new int[][][]{
+                buildNeighbours(n, OFFSETS_1), buildNeighbours(n, OFFSETS_2)});
+        neighbours_1 = tables[0];
+        neighbours_2 = tables[1];
+    }
+
+    /**
+     * Computes indexes of neighbours (positions moved by offsets which are inside the Grid) of each position
+     * @param _N Grid size
+     * @param _offsets row and column offsets of neighbours
+     * @return array of neighbour indexes for each position index
+     */
+    private static int[][] buildNeighbours(int _N, int[][] _offsets)
+    {
+        int[][] result = new int[_N * _N][];
+        int[] buffer = new int[_offsets.length];
+        for(int i = 0; i < _N * _N; i++)
+        {
+            int amount = 0;
+            for(int[] offset : _offsets)
+            {
+                int row = i / _N + offset[0];
+                int column = i % _N + offset[1];
+                if(row >= 0 && row < _N && column >= 0 && column < _N) buffer[amount++] = row * _N + column;
+            }
+            result[i] = Arrays.copyOf(buffer, amount);
+        }
+        return result;
     }
 
     //----------
@@ -55,7 +159,54 @@ public class Grid
      */
     boolean hasFilledNodes()
     {
-        return filled_positions.size() == this.getVarAmount();
+        return filled_amount == this.getVarAmount();
+    }
+
+    /**
+     * Empties Grid for the next problem of the same size (e.g. when Grid is reused by a pool) - clears colors,
+     * empties domains (no colors), drops trail and heuristics state, arrays are reused
+     */
+    public void reset()
+    {
+        Arrays.fill(grid_array, 0, getVarAmount(), UNSET);
+        unfilled_positions.set(0, getVarAmount());
+        filled_amount = 0;
+        colors_amount = 0;
+        grid_domains.fillAll(0);
+        trail.clear();
+        var_ordering = VarOrdering.FIRST_NOT_FILLED;
+        mrv_buckets = null;
+        unfilled_neighbours = null;
+        tie_breaker = null;
+        if(arc_queue != null) prepareArcQueue();
+    }
+
+    /**
+     * Changes Grid size and empties it - arrays, domains, trail and bitset are reused while the new size
+     * doesn't exceed capacity and reallocated only when Grid grows over it (the flat Grid array then keeps
+     * N*N used entries at its beginning), neighbour tables are taken for the new size
+     * @param _N new Grid size
+     */
+    public void resize(int _N)
+    {
+        if(_N != N)
+        {
+            if(in_arc_queue != null) Arrays.fill(in_arc_queue, false);
+            N = _N;
+            if(N > capacity)
+            {
+                capacity = N;
+                grid_array = new int[N * N];
+                arc_queue = null;
+                in_arc_queue = null;
+            }
+            initNeighbours();
+            unfilled_positions.clear();
+            grid_domains.resize(N * N, 0);
+            arc_queue_head = 0;
+            arc_queue_size = 0;
+        }
+        reset();
     }
 
     /**
@@ -73,13 +224,8 @@ public class Grid
      */
     Position getNotFilledPosition()
     {
-        int i = 0;
-        while(i < getVarAmount())
-        {
-            if(!filled_positions.contains(i)) return new Position(i/N, i%N);
-            i++;
-        }
-        return null;
+        int i = unfilled_positions.nextSetBit(0);
+        return i >= 0 ? new Position(i/N, i%N) : null;
     }
 
     /**
@@ -89,11 +235,13 @@ public class Grid
      */
     private int countUncoloredNeighbours(Position _p)
     {
-        int result = 0;
-        if(getColorAtPositionIfExists(new Position(_p.getRow() + 1, _p.getColumn())) == null) result++;
-        if(getColorAtPositionIfExists(new Position(_p.getRow() - 1, _p.getColumn())) == null) result++;
-        if(getColorAtPositionIfExists(new Position(_p.getRow(), _p.getColumn() + 1)) == null) result++;
-        if(getColorAtPositionIfExists(new Position(_p.getRow(), _p.getColumn() - 1)) == null) result++;
+        int i = _p.getRow() * N + _p.getColumn();
+        //Positions outside the Grid are counted as uncolored
+        int result = OFFSETS_1.length - neighbours_1[i].length;
+        for(int neighbour : neighbours_1[i])
+        {
+            if(grid_array[neighbour] == UNSET) result++;
+        }
         return result;
     }
 
@@ -103,22 +251,18 @@ public class Grid
      */
     Position getNotFilledPositionMostUncoloredNeighbours()
     {
-        int i = 0;
         Position best = null;
         int uncoloredNeighbours = -1;
 
-        while(i < getVarAmount() && uncoloredNeighbours < 4)
+        //Iterating only through not filled positions
+        for(int i = unfilled_positions.nextSetBit(0); i >= 0 && uncoloredNeighbours < 4; i = unfilled_positions.nextSetBit(i + 1))
         {
-            if(!filled_positions.contains(i))
+            int positionUncoloredNeighbours = countUncoloredNeighbours(new Position(i/N, i%N));
+            if(positionUncoloredNeighbours > uncoloredNeighbours)
             {
-                int positionUncoloredNeighbours = countUncoloredNeighbours(new Position(i/N, i%N));
-                if(positionUncoloredNeighbours > uncoloredNeighbours)
-                {
-                    best = new Position(i/N, i%N);
-                    uncoloredNeighbours = positionUncoloredNeighbours;
-                }
+                best = new Position(i/N, i%N);
+                uncoloredNeighbours = positionUncoloredNeighbours;
             }
-            i++;
         }
         return best;
     }
@@ -129,43 +273,126 @@ public class Grid
      */
     Position getNotFilledPositionSmallestDomain()
     {
-        int i = 0;
         Position best = null;
         int domainSize = colors_amount + 1; //to reduce finding if domainSize will be 0
+        int ties = 0;                       //Amount of positions with the same domain size
 
-        while(i < getVarAmount() && domainSize > 0)
+        //Iterating only through not filled positions
+        for(int i = unfilled_positions.nextSetBit(0); i >= 0 && domainSize > 0; i = unfilled_positions.nextSetBit(i + 1))
         {
-            if(!filled_positions.contains(i))
+            int positionDomainSize = grid_domains.size(i);
+            if(positionDomainSize < domainSize)
             {
-                int positionDomainSize = getDomainAtPosition(new Position(i/N, i%N)).size();
-                if(positionDomainSize < domainSize)
-                {
-                    best = new Position(i/N, i%N);
-                    domainSize = positionDomainSize;
-                }
+                best = new Position(i/N, i%N);
+                domainSize = positionDomainSize;
+                ties = 1;
             }
-            i++;
+            //Each of equally good positions is taken with the same probability (reservoir sampling)
+            else if(positionDomainSize == domainSize && tie_breaker != null
+                    && tie_breaker.nextInt(++ties) == 0) best = new Position(i/N, i%N);
         }
         return best;
     }
 
     /**
-     * If _p position exists return a color of its
-     * @param _p Position which color we want to get
-     * @return Color of _p position if exists, null if it's not
+     * Finds a unfilled position with the smallest domain using incrementally updated buckets
+     * For equal domains the position with most unfilled neighbours is taken
+     * @return position of unfilled Graph variable with the smallest domain
+     */
+    Position getNotFilledPositionIncrementalMrv()
+    {
+        int i = mrv_buckets.peekMin();
+        return i >= 0 ? new Position(i/N, i%N) : null;
+    }
+
+    /**
+     * Finds a unfilled position using the chosen variable ordering (var_ordering)
+     * @return position of unfilled Graph variable
      */
-    Integer getColorAtPositionIfExists(Position _p)
+    Position selectNotFilledPosition()
     {
-        try
+        switch(var_ordering)
         {
-            return grid_array[_p.getRow()][_p.getColumn()];
+            case MOST_UNFILLED_NEIGHBOURS:
+                return getNotFilledPositionMostUncoloredNeighbours();
+            case SMALLEST_DOMAIN:
+                return getNotFilledPositionSmallestDomain();
+            case INCREMENTAL_MRV:
+                return getNotFilledPositionIncrementalMrv();
+            default:
+                return getNotFilledPosition();
         }
-        catch (ArrayIndexOutOfBoundsException | NullPointerException r)
+    }
+
+    //------------------------
+    // INCREMENTAL MRV BUCKETS |-----------------------------------------------------------
+    //------------------------
+
+    /**
+     * Builds buckets of not filled positions and counts not filled neighbours (inside the Grid) of each position
+     */
+    private void buildMrvBuckets()
+    {
+        mrv_buckets = new MrvBuckets(getVarAmount(), colors_amount, 4);
+        unfilled_neighbours = new int[getVarAmount()];
+        for(int i = 0; i < getVarAmount(); i++)
+        {
+            for(int neighbour : neighbours_1[i])
+            {
+                if(unfilled_positions.get(neighbour)) unfilled_neighbours[i]++;
+            }
+        }
+        for(int i = unfilled_positions.nextSetBit(0); i >= 0; i = unfilled_positions.nextSetBit(i + 1))
         {
-            return null;
+            mrv_buckets.insert(i, grid_domains.size(i), unfilled_neighbours[i]);
         }
     }
 
+    /**
+     * Moves position to the bucket of its current domain size and amount of unfilled neighbours
+     * @param _i index of position
+     */
+    private void updateMrvBucket(int _i)
+    {
+        if(mrv_buckets != null) mrv_buckets.update(_i, grid_domains.size(_i), unfilled_neighbours[_i]);
+    }
+
+    /**
+     * Changes amount of unfilled neighbours of each neighbour (up, down, left, right) of position
+     * @param _i index of position
+     * @param _diff change of amount (-1 when position is filled, 1 when it's unfilled)
+     */
+    private void changeUnfilledNeighbours(int _i, int _diff)
+    {
+        for(int neighbour : neighbours_1[_i])
+        {
+            changeUnfilledNeighboursAt(neighbour, _diff);
+        }
+    }
+
+    /**
+     * Changes amount of unfilled neighbours of position and updates its bucket
+     * @param _i index of position
+     * @param _diff change of amount
+     */
+    private void changeUnfilledNeighboursAt(int _i, int _diff)
+    {
+        unfilled_neighbours[_i] += _diff;
+        updateMrvBucket(_i);
+    }
+
+    /**
+     * If position exists return a color of its
+     * @param _row row of position
+     * @param _column column of position
+     * @return Color of position if exists, UNSET if it's not or it isn't colored
+     */
+    int getColorAtPositionIfExists(int _row, int _column)
+    {
+        if(_row < 0 || _row >= N || _column < 0 || _column >= N) return UNSET;
+        return grid_array[_row * N + _column];
+    }
+
     /**
      * Checks if _p Position is filled
      * @param _p Position which we checking
@@ -173,17 +400,38 @@ public class Grid
      */
     boolean isFilledPosition(Position _p)
     {
-        return getColorAtPositionIfExists(_p) != null;
+        return getColorAtPositionIfExists(_p.getRow(), _p.getColumn()) != UNSET;
+    }
+
+    /**
+     * Gets a size of domain of variable at position
+     * @param _p Position of variable which domain size we want
+     * @return Amount of colors in domain of variable at _p position
+     */
+    int getDomainSizeAtPosition(Position _p)
+    {
+        return _p != null ? grid_domains.size((N * _p.getRow()) + _p.getColumn()) : 0;
+    }
+
+    /**
+     * Gets the first color from domain of variable at position
+     * @param _p Position of variable
+     * @return the smallest color in domain of variable at _p position, -1 if domain is empty
+     */
+    int getFirstColorFromDomain(Position _p)
+    {
+        return _p != null ? grid_domains.first((N * _p.getRow()) + _p.getColumn()) : -1;
     }
 
     /**
-     * Gets a domain of variable at position
-     * @param _p Position of variable which domain we want
-     * @return Domain of variable at _p position
+     * Gets the next color from domain of variable at position
+     * @param _p Position of variable
+     * @param _color previous color taken from domain
+     * @return the smallest color greater than _color in domain of variable at _p position, -1 if there is no such color
      */
-    ConcurrentHashMap<Integer, Integer> getDomainAtPosition(Position _p)
+    int getNextColorFromDomain(Position _p, int _color)
     {
-        return _p != null ? grid_domains.get((N * _p.getRow()) + _p.getColumn()) : new ConcurrentHashMap<>();
+        return grid_domains.next((N * _p.getRow()) + _p.getColumn(), _color + 1);
     }
 
     /**
@@ -191,9 +439,9 @@ public class Grid
      * @param _c Color which we want to set
      * @param _p Position of CSP variable which color we want to set
      */
-    void setColorAtPosition(Integer _c, Position _p)
+    void setColorAtPosition(int _c, Position _p)
     {
-        grid_array[_p.getRow()][_p.getColumn()] = _c;
+        grid_array[_p.getRow() * N + _p.getColumn()] = _c;
     }
 
     /**
@@ -202,7 +450,7 @@ public class Grid
      */
     void unsetColorAtPosition(Position _p)
     {
-        grid_array[_p.getRow()][_p.getColumn()] = null;
+        grid_array[_p.getRow() * N + _p.getColumn()] = UNSET;
     }
 
     /**
@@ -210,9 +458,9 @@ public class Grid
      * @param _p Position of CSP variable which color we want to get
      * @return color at specified position (value of CSP variable at position)
      */
-    private Integer getColorAtPosition(Position _p)
+    private int getColorAtPosition(Position _p)
     {
-        return grid_array[_p.getRow()][_p.getColumn()];
+        return grid_array[_p.getRow() * N + _p.getColumn()];
     }
 
     /**
@@ -221,7 +469,17 @@ public class Grid
      */
     void setPositionAsFilled(Position _p)
     {
-        filled_positions.add((_p.getRow() * N) + _p.getColumn());
+        int i = (_p.getRow() * N) + _p.getColumn();
+        if(unfilled_positions.get(i))
+        {
+            unfilled_positions.clear(i);
+            filled_amount++;
+            if(mrv_buckets != null)
+            {
+                mrv_buckets.remove(i);
+                changeUnfilledNeighbours(i, -1);
+            }
+        }
     }
 
     /**
@@ -230,7 +488,17 @@ public class Grid
      */
     void unsetPositionAsFilled(Position _p)
     {
-        filled_positions.remove(Integer.valueOf((_p.getRow() * N) + _p.getColumn()));
+        int i = (_p.getRow() * N) + _p.getColumn();
+        if(!unfilled_positions.get(i))
+        {
+            unfilled_positions.set(i);
+            filled_amount--;
+            if(mrv_buckets != null)
+            {
+                changeUnfilledNeighbours(i, 1);
+                mrv_buckets.insert(i, grid_domains.size(i), unfilled_neighbours[i]);
+            }
+        }
     }
 
     /**
@@ -238,11 +506,10 @@ public class Grid
      */
     void expandDomains()
     {
-        for(ConcurrentHashMap<Integer, Integer> domain : grid_domains)
-        {
-            domain.put(colors_amount, colors_amount);
-        }
+        grid_domains.ensureCapacity(colors_amount + 1);
+        grid_domains.addToAll(colors_amount);
         colors_amount++;
+        if(mrv_buckets != null) buildMrvBuckets();
 
     }
 
@@ -252,38 +519,35 @@ public class Grid
     void reduceDomains()
     {
         colors_amount--;
-        for(ConcurrentHashMap<Integer, Integer> domain : grid_domains)
-        {
-            domain.remove(colors_amount);
-        }
+        grid_domains.removeFromAll(colors_amount);
+        if(mrv_buckets != null) buildMrvBuckets();
     }
 
-    //-------------
-    // CONSTRAINTS |-------------------------------------------------------------
-    //-------------
-
-    //CONSTRAINT 1 - Different color with neighbours
     /**
-     * Checks if variables at specified positions have different colors (different values)
-     * @param _p1 Position of 1st variable
-     * @param _p2 Position of 2nd variable
-     * @return True if has different colors, false if it's not
+     * Loads pre-colored cells - each one is set and checked against the already loaded ones. Domains aren't pruned,
+     * because they grow when colors are not enough (expandDomains), constraints with pre-colored cells are checked
+     * when a position is colored. Grid should be empty
+     * @param _colors colors of all positions (index row*N+col, UNSET for not colored ones)
+     * @return true if pre-colored cells satisfy all constraints, false if two of them clash
      */
-    private boolean hasDifferentColorsAtPositions(Position _p1, Position _p2)
+    boolean loadPartial(int[] _colors)
     {
-        try
+        for(int i = 0; i < getVarAmount(); i++)
         {
-            Integer color1 = getColorAtPosition(_p1);
-            Integer color2 = getColorAtPosition(_p2);
-
-            return !color1.equals(color2);
-        }
-        catch (ArrayIndexOutOfBoundsException | NullPointerException e)
-        {
-            return true;
+            if(_colors[i] == UNSET) continue;
+            Position p = new Position(i / N, i % N);
+            setColorAtPosition(_colors[i], p);
+            if(!hasDifferentColorsWithNeighbours(p, 2) || !hasDifferentColorsWithPositionsDistantBy2(p)) return false;
+            setPositionAsFilled(p);
         }
+        return true;
     }
 
+    //-------------
+    // CONSTRAINTS |-------------------------------------------------------------
+    //-------------
+
+    //CONSTRAINT 1 - Different color with neighbours
     /**
      * Checks if the variable at specified position has different colors (values) with its neighbours
      * @param _p Position of variable
@@ -291,34 +555,17 @@ public class Grid
      */
     boolean hasDifferentColorsWithNeighbours(Position _p)
     {
-        return (hasDifferentColorsAtPositions(_p, new Position(_p.getRow() - 1, _p.getColumn()))          //UP
-                && hasDifferentColorsAtPositions(_p, new Position(_p.getRow(), _p.getColumn() + 1))     //RIGHT
-                && hasDifferentColorsAtPositions(_p, new Position(_p.getRow() + 1, _p.getColumn()))       //DOWN
-                && hasDifferentColorsAtPositions(_p, new Position(_p.getRow(), _p.getColumn() - 1)));   //LEFT
-    }
-
-    //CONSTRAINT 2 - Values of colors with neighbours are different by at least 2
-    /**
-     * Checks if variables at specified positions have different values of colors (at least by _diff)
-     * @param _p1 Position of 1st variable
-     * @param _p2 Position of 2nd variable
-     * @param _diff Minimal difference between values of colors
-     * @return True if have different values of colors at least by _diff, false if it's not
-     */
-    private boolean hasDifferentColorsAtPositions(Position _p1, Position _p2, int _diff)
-    {
-        try
-        {
-            Integer color1 = getColorAtPosition(_p1);
-            Integer color2 = getColorAtPosition(_p2);
-            return Math.abs(color1 - color2) >= _diff;
-        }
-        catch (ArrayIndexOutOfBoundsException | NullPointerException e)
+        int i = _p.getRow() * N + _p.getColumn();
+        int color = grid_array[i];
+        if(color == UNSET) return true;
+        for(int neighbour : neighbours_1[i])
         {
-            return true;
+            if(grid_array[neighbour] == color) return false;
         }
+        return true;
     }
 
+    //CONSTRAINT 2 - Values of colors with neighbours are different by at least 2
     /**
      * Checks if variable at specified position has different values of colors (at least by _diff) with its neighbours
      * @param _p Position of variable
@@ -327,10 +574,15 @@ public class Grid
      */
     boolean hasDifferentColorsWithNeighbours(Position _p, int _diff)
     {
-        return (hasDifferentColorsAtPositions(_p, new Position(_p.getRow() - 1, _p.getColumn()), _diff)          //UP
-                && hasDifferentColorsAtPositions(_p, new Position(_p.getRow(), _p.getColumn() + 1), _diff)     //RIGHT
-                && hasDifferentColorsAtPositions(_p, new Position(_p.getRow() + 1, _p.getColumn()), _diff)       //DOWN
-                && hasDifferentColorsAtPositions(_p, new Position(_p.getRow(), _p.getColumn() - 1), _diff));   //LEFT
+        int i = _p.getRow() * N + _p.getColumn();
+        int color = grid_array[i];
+        if(color == UNSET) return true;
+        for(int neighbour : neighbours_1[i])
+        {
+            int neighbourColor = grid_array[neighbour];
+            if(neighbourColor != UNSET && Math.abs(color - neighbourColor) < _diff) return false;
+        }
+        return true;
     }
 
     //CONSTRAINT 3 - Different Colors with positions distant by 2
@@ -342,15 +594,14 @@ public class Grid
      */
     boolean hasDifferentColorsWithPositionsDistantBy2(Position _p)
     {
-        return (hasDifferentColorsAtPositions(_p, new Position(_p.getRow() - 2, _p.getColumn()))                    //N
-                && hasDifferentColorsAtPositions(_p, new Position(_p.getRow() - 1, _p.getColumn() + 1))     //N-E
-                && hasDifferentColorsAtPositions(_p, new Position(_p.getRow(), _p.getColumn() + 2))               //E
-                && hasDifferentColorsAtPositions(_p, new Position(_p.getRow() + 1, _p.getColumn() + 1))     //S-E
-                && hasDifferentColorsAtPositions(_p, new Position(_p.getRow() + 2, _p.getColumn()))                 //S
-                && hasDifferentColorsAtPositions(_p, new Position(_p.getRow() + 1, _p.getColumn() - 1))     //S-W
-                && hasDifferentColorsAtPositions(_p, new Position(_p.getRow(), _p.getColumn() - 2))               //W
-                && hasDifferentColorsAtPositions(_p, new Position(_p.getRow() - 1, _p.getColumn() - 1))     //N-W
-        );
+        int i = _p.getRow() * N + _p.getColumn();
+        int color = grid_array[i];
+        if(color == UNSET) return true;
+        for(int neighbour : neighbours_2[i])
+        {
+            if(grid_array[neighbour] == color) return false;
+        }
+        return true;
     }
 
     //--------------------------------------
@@ -358,127 +609,352 @@ public class Grid
     //--------------------------------------
 
     /**
-     * Deletes a color from variable's domain at specified position
-     * @param _p Position of variable
+     * Deletes a color from variable's domain at specified index and pushes the pruning on trail
+     * Filled positions are skipped, only colors which really were in domain are pushed
+     * @param _i index of variable
      * @param _color color (variable from domain) to delete
+     * @return 1 if the domain has been emptied (wipeout), 0 if it's not
      */
-    private Integer deleteColorFromDomainAtPosition(Position _p, Integer _color)
+    private int deleteColorFromDomainAtPosition(int _i, int _color)
     {
-        try
-        {
-            return grid_domains.get(_p.getRow() * N + _p.getColumn()).remove(_color);
-        }
-        catch (IndexOutOfBoundsException e)
+        if(grid_array[_i] == UNSET && grid_domains.remove(_i, _color))
         {
-            return null;
+            trail.push(_i, _color);
+            updateMrvBucket(_i);
+            return grid_domains.isEmpty(_i) ? 1 : 0;
         }
+        return 0;
     }
 
     /**
-     * Backs a deleted _color from domain at specified position
+     * Deletes associated _color with variable at position from grid_domains forward
+     * Opens a new trail level, so the deleted colors can be backed by backDeletedColorFromDomains
      * @param _p Position of variable
-     * @param _color color which will be backed (added again)
+     * @param _color color (value to delete)
+     * @return amount of emptied domains (wipeouts)
      */
-    private void backDeletedColorFromDomainAtPosition(Position _p, Integer _color)
+    int deleteDomainsForward(Position _p, int _color)
     {
-        try
+        trail.mark();
+        int wipeouts = 0;
+        int i = _p.getRow() * N + _p.getColumn();
+
+        //Delete from up, right, down and left position (color and colors distant by 1)
+        for(int neighbour : neighbours_1[i])
         {
-            grid_domains.get(_p.getRow() * N + _p.getColumn()).put(_color, _color);
+            wipeouts += deleteColorFromDomainAtPosition(neighbour, _color - 1);
+            wipeouts += deleteColorFromDomainAtPosition(neighbour, _color);
+            wipeouts += deleteColorFromDomainAtPosition(neighbour, _color + 1);
         }
-        catch (IndexOutOfBoundsException e)
+
+        //Delete from distant by 2
+        for(int neighbour : neighbours_2[i])
         {
-            //
+            wipeouts += deleteColorFromDomainAtPosition(neighbour, _color);
         }
+        return wipeouts;
     }
 
     /**
-     * Deletes associated _color with variable at position from grid_domains forward
+     * Backs colors deleted by the last deleteDomainsForward call (pops the last trail level)
+     */
+    void backDeletedColorFromDomains()
+    {
+        for(int i = trail.getSize() - 1; i >= trail.getLastMark(); i--)
+        {
+            grid_domains.add(trail.getVar(i), trail.getVal(i));
+            updateMrvBucket(trail.getVar(i));
+        }
+        trail.popToLastMark();
+    }
+
+    //-----------------------------------
+    // ARC CONSISTENCY (MAC) PROPAGATION |-------------------------------------------------------------
+    //-----------------------------------
+
+    /**
+     * Deletes associated _color with variable at position from grid_domains forward (as deleteDomainsForward)
+     * and then propagates deletions (AC-3 with queue of changed positions) until all arcs between not filled
+     * positions are consistent. All deleted colors are on the same trail level, so they are backed
+     * by a single backDeletedColorFromDomains call (also when a domain was wiped out)
      * @param _p Position of variable
      * @param _color color (value to delete)
-     * @return backup list for repair domain after back a colors to in
-     */
-    List<String> deleteDomainsForward(Position _p, Integer _color)
-    {
-        //Delete from distant by 1 and color > 1 and < 1
-        List<String> backupList = new ArrayList<>();
-        //UP color + 1
-        if(deleteColorFromDomainAtPosition(new Position(_p.getRow() - 1, _p.getColumn()), _color + 1) != null)
-            backupList.add((_p.getRow() - 1) + "," + _p.getColumn() + "," + (_color + 1));
-        //UP color - 1
-        if(deleteColorFromDomainAtPosition(new Position(_p.getRow() - 1, _p.getColumn()), _color - 1) != null)
-            backupList.add((_p.getRow() - 1) + "," + _p.getColumn() + "," + (_color - 1));
-        //RIGHT color + 1
-        if(deleteColorFromDomainAtPosition(new Position(_p.getRow(), _p.getColumn() + 1), _color + 1) != null)
-            backupList.add(_p.getRow() + "," + (_p.getColumn() + 1) + "," + (_color + 1));
-        //RIGHT color - 1
-        if(deleteColorFromDomainAtPosition(new Position(_p.getRow(), _p.getColumn() + 1), _color - 1) != null)
-            backupList.add(_p.getRow() + "," + (_p.getColumn() + 1) + "," + (_color - 1));
-        //DOWN color + 1
-        if(deleteColorFromDomainAtPosition(new Position(_p.getRow() + 1, _p.getColumn()), _color + 1) != null)
-            backupList.add((_p.getRow() + 1) + "," + _p.getColumn() + "," + (_color + 1));
-        //DOWN color - 1
-        if(deleteColorFromDomainAtPosition(new Position(_p.getRow() + 1, _p.getColumn()), _color - 1) != null)
-            backupList.add((_p.getRow() + 1) + "," + _p.getColumn() + "," + (_color - 1));
-        //LEFT color + 1
-        if(deleteColorFromDomainAtPosition(new Position(_p.getRow(), _p.getColumn() - 1), _color + 1) != null)
-            backupList.add(_p.getRow() + "," + (_p.getColumn() - 1) + "," + (_color + 1));
-        //LEFT color - 1
-        if(deleteColorFromDomainAtPosition(new Position(_p.getRow(), _p.getColumn() - 1), _color - 1) != null)
-            backupList.add(_p.getRow() + "," + (_p.getColumn() - 1) + "," + (_color - 1));
-
-
-        //Delete from up, right, down and left position
-        deleteColorFromDomainAtPosition(new Position(_p.getRow() - 1, _p.getColumn()), _color);                      //UP
-        deleteColorFromDomainAtPosition(new Position(_p.getRow(), _p.getColumn() + 1), _color);                      //RIGHT
-        deleteColorFromDomainAtPosition(new Position(_p.getRow() + 1, _p.getColumn()), _color);                      //DOWN
-        deleteColorFromDomainAtPosition(new Position(_p.getRow(), _p.getColumn() - 1), _color);                      //LEFT
+     * @return true if all domains are not empty, false if a domain has been wiped out
+     */
+    boolean maintainArcConsistency(Position _p, int _color)
+    {
+        if(deleteDomainsForward(_p, _color) > 0) return false;
+        prepareArcQueue();
+        for(int t = trail.getLastMark(); t < trail.getSize(); t++) enqueueArc(trail.getVar(t));
 
-        //Delete from distant by 2
-        deleteColorFromDomainAtPosition(new Position(_p.getRow() - 2, _p.getColumn()), _color);                     //N
-        deleteColorFromDomainAtPosition(new Position(_p.getRow() - 1, _p.getColumn() + 1), _color);         //N-E
-        deleteColorFromDomainAtPosition(new Position(_p.getRow(), _p.getColumn() + 2), _color);                   //E
-        deleteColorFromDomainAtPosition(new Position(_p.getRow() + 1, _p.getColumn() + 1), _color);          //S-E
-        deleteColorFromDomainAtPosition(new Position(_p.getRow() + 2, _p.getColumn()), _color);                     //S
-        deleteColorFromDomainAtPosition(new Position(_p.getRow() + 1, _p.getColumn() - 1), _color);         //S-W
-        deleteColorFromDomainAtPosition(new Position(_p.getRow(), _p.getColumn() - 2), _color);                  //W
-        deleteColorFromDomainAtPosition(new Position(_p.getRow() - 1, _p.getColumn() - 1), _color);         //N-W
+        while(arc_queue_size > 0)
+        {
+            int var = dequeueArc();
+            //Values of neighbours have to be different by at least 2 from some value of var
+            for(int neighbour : neighbours_1[var])
+            {
+                if(grid_array[neighbour] == UNSET && !reviseDistantColors(neighbour, var)) return false;
+            }
+            //Positions distant by 2 can't take the only color of var
+            if(grid_domains.size(var) == 1)
+            {
+                int color = grid_domains.first(var);
+                for(int neighbour : neighbours_2[var])
+                {
+                    if(grid_array[neighbour] == UNSET && grid_domains.contains(neighbour, color))
+                    {
+                        if(deleteColorFromDomainAtPosition(neighbour, color) > 0) return false;
+                        enqueueArc(neighbour);
+                    }
+                }
+            }
+        }
+        return true;
+    }
 
-        return backupList;
+    /**
+     * Deletes colors of variable which have no support (color different by at least 2) in domain of its neighbour
+     * @param _var index of variable to revise
+     * @param _other index of neighbour (distant by 1)
+     * @return true if domain of variable is not empty, false if it has been wiped out
+     */
+    private boolean reviseDistantColors(int _var, int _other)
+    {
+        int slotBase = (_var * 4 + directionOf(_var, _other)) * grid_domains.getCapacity();
+        boolean changed = false;
+        for(int color = grid_domains.first(_var); color != -1; )
+        {
+            int next = grid_domains.next(_var, color + 1);
+            if(!hasDistantSupport(slotBase + color, color, _other))
+            {
+                if(deleteColorFromDomainAtPosition(_var, color) > 0) return false;
+                changed = true;
+            }
+            color = next;
+        }
+        if(changed) enqueueArc(_var);
+        return true;
     }
 
     /**
-     * Backs a deleted _color from domains related with _p variable position
-     * @param _p Position of variable
-     * @param _color color (value) to back
-     * @param _backupList List with non regular positions and colors to backup after delete
+     * Checks if neighbour's domain has a color different by at least 2 from _color
+     * The last found support (residue) is checked first, it's searched again only if it was deleted
+     * @param _slot index of residue
+     * @param _color color to support
+     * @param _other index of neighbour
+     * @return true if a support exists, false if it's not
+     */
+    private boolean hasDistantSupport(int _slot, int _color, int _other)
+    {
+        int residue = residues[_slot];
+        if(residue != UNSET && Math.abs(residue - _color) >= 2 && grid_domains.contains(_other, residue)) return true;
+        for(int color = grid_domains.first(_other); color != -1; color = grid_domains.next(_other, color + 1))
+        {
+            if(Math.abs(color - _color) >= 2)
+            {
+                residues[_slot] = color;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Gets direction of neighbour
+     * @param _var index of variable
+     * @param _other index of neighbour (distant by 1)
+     * @return 0 - up, 1 - right, 2 - down, 3 - left
+     */
+    private int directionOf(int _var, int _other)
+    {
+        int diff = _other - _var;
+        if(diff == -N) return 0;
+        if(diff == 1) return 1;
+        if(diff == N) return 2;
+        return 3;
+    }
+
+    /**
+     * Empties arc queue and allocates it (and residues) if it's needed
      */
-    void backDeletedColorFromDomains(Position _p, Integer _color, List<String> _backupList)
+    private void prepareArcQueue()
     {
-        //Back to distant by 1 and color > 1 and < 1
-        //backupList contains a information in format row,column,color, we need to split them
-        //through all position in list
-        for (String backElem : _backupList)
+        if(arc_queue == null)
         {
-            String[] partsOfBackupList = backElem.split(",");
-            backDeletedColorFromDomainAtPosition(new Position(Integer.valueOf(partsOfBackupList[0]),
-                    Integer.valueOf(partsOfBackupList[1])), Integer.valueOf(partsOfBackupList[2]));
+            arc_queue = new int[getVarAmount()];
+            in_arc_queue = new boolean[getVarAmount()];
         }
+        while(arc_queue_size > 0) dequeueArc();
+        arc_queue_head = 0;
 
-        //Back to up, right, down and left position
-        backDeletedColorFromDomainAtPosition(new Position(_p.getRow() - 1, _p.getColumn()), _color);                      //UP
-        backDeletedColorFromDomainAtPosition(new Position(_p.getRow(), _p.getColumn() + 1), _color);                      //RIGHT
-        backDeletedColorFromDomainAtPosition(new Position(_p.getRow() + 1, _p.getColumn()), _color);                      //DOWN
-        backDeletedColorFromDomainAtPosition(new Position(_p.getRow(), _p.getColumn() - 1), _color);                      //LEFT
+        //Residues are only hints (always checked), so they aren't backed - only grown with domains
+        int residuesLength = getVarAmount() * 4 * grid_domains.getCapacity();
+        if(residues == null || residues.length < residuesLength)
+        {
+            residues = new int[residuesLength];
+            Arrays.fill(residues, UNSET);
+        }
+    }
 
-        //Back to distant by 2
-        backDeletedColorFromDomainAtPosition(new Position(_p.getRow() - 2, _p.getColumn()), _color);                     //N
-        backDeletedColorFromDomainAtPosition(new Position(_p.getRow() - 1, _p.getColumn() + 1), _color);         //N-E
-        backDeletedColorFromDomainAtPosition(new Position(_p.getRow(), _p.getColumn() + 2), _color);                   //E
-        backDeletedColorFromDomainAtPosition(new Position(_p.getRow() + 1, _p.getColumn() + 1), _color);          //S-E
-        backDeletedColorFromDomainAtPosition(new Position(_p.getRow() + 2, _p.getColumn()), _color);                     //S
-        backDeletedColorFromDomainAtPosition(new Position(_p.getRow() + 1, _p.getColumn() - 1), _color);         //S-W
-        backDeletedColorFromDomainAtPosition(new Position(_p.getRow(), _p.getColumn() - 2), _color);                  //W
-        backDeletedColorFromDomainAtPosition(new Position(_p.getRow() - 1, _p.getColumn() - 1), _color);         //N-W
+    /**
+     * Adds a position to arc queue (if it's not already there)
+     * @param _var index of variable
+     */
+    private void enqueueArc(int _var)
+    {
+        if(in_arc_queue[_var]) return;
+        in_arc_queue[_var] = true;
+        arc_queue[(arc_queue_head + arc_queue_size++) % arc_queue.length] = _var;
+    }
+
+    /**
+     * Takes the first position from arc queue
+     * @return index of variable
+     */
+    private int dequeueArc()
+    {
+        int var = arc_queue[arc_queue_head];
+        arc_queue_head = (arc_queue_head + 1) % arc_queue.length;
+        arc_queue_size--;
+        in_arc_queue[var] = false;
+        return var;
+    }
+
+    //-----------------
+    // GREEDY COLORING |-------------------------------------------------------------
+    //-----------------
+
+    /**
+     * Colors all not filled positions greedily by DSATUR - the position with the most forbidden colors
+     * (ties by the most not colored neighbours) gets the lowest allowed color. Filled positions keep their colors.
+     * Positions are kept in MrvBuckets (free colors as domain size), so coloring is linear in amount of positions.
+     * Grid isn't changed. A position has at most 4 neighbours forbidding 3 colors and 8 positions distant by 2
+     * forbidding 1 color, so no more than 21 colors are used.
+     * @return colors of all positions (index row*N+col)
+     */
+    int[] colorGreedyDsatur()
+    {
+        int[] colors = Arrays.copyOf(grid_array, getVarAmount());
+        long[] forbidden = new long[getVarAmount()];        //Colors forbidden by colored neighbours (bit per color)
+        for(int i = 0; i < getVarAmount(); i++)
+        {
+            if(unfilled_positions.get(i)) colors[i] = UNSET;
+            else if(colors[i] != UNSET) forbidColor(i, colors[i], forbidden);
+        }
+
+        int[] uncolored = new int[getVarAmount()];          //Amount of not colored neighbours of each position
+        MrvBuckets buckets = new MrvBuckets(getVarAmount(), Long.SIZE, OFFSETS_1.length + OFFSETS_2.length);
+        for(int i = unfilled_positions.nextSetBit(0); i >= 0; i = unfilled_positions.nextSetBit(i + 1))
+        {
+            uncolored[i] = countUncolored(neighbours_1[i], colors) + countUncolored(neighbours_2[i], colors);
+            buckets.insert(i, Long.SIZE - Long.bitCount(forbidden[i]), uncolored[i]);
+        }
+
+        for(int i = buckets.peekMin(); i != -1; i = buckets.peekMin())
+        {
+            buckets.remove(i);
+            colors[i] = Long.numberOfTrailingZeros(~forbidden[i]);
+            forbidColor(i, colors[i], forbidden);
+            updateGreedyBuckets(neighbours_1[i], colors, forbidden, uncolored, buckets);
+            updateGreedyBuckets(neighbours_2[i], colors, forbidden, uncolored, buckets);
+        }
+        return colors;
+    }
+
+    /**
+     * Colors all not filled positions greedily by Welsh-Powell - positions in order of decreasing degree
+     * (ties by index) get the lowest allowed color. Filled positions keep their colors, Grid isn't changed.
+     * Degrees are at most 12, so positions are ordered by counting sort and coloring is linear.
+     * @return colors of all positions (index row*N+col)
+     */
+    int[] colorGreedyWelshPowell()
+    {
+        int[] colors = Arrays.copyOf(grid_array, getVarAmount());
+        long[] forbidden = new long[getVarAmount()];        //Colors forbidden by colored neighbours (bit per color)
+        int maxDegree = OFFSETS_1.length + OFFSETS_2.length;
+        int[] starts = new int[maxDegree + 2];               //Start of each degree in order (the biggest degree first)
+        for(int i = 0; i < getVarAmount(); i++)
+        {
+            if(unfilled_positions.get(i))
+            {
+                colors[i] = UNSET;
+                starts[maxDegree - (neighbours_1[i].length + neighbours_2[i].length) + 1]++;
+            }
+            else if(colors[i] != UNSET) forbidColor(i, colors[i], forbidden);
+        }
+        for(int d = 1; d < starts.length; d++) starts[d] += starts[d - 1];
+        int[] order = new int[starts[starts.length - 1]];
+        for(int i = unfilled_positions.nextSetBit(0); i >= 0; i = unfilled_positions.nextSetBit(i + 1))
+        {
+            order[starts[maxDegree - (neighbours_1[i].length + neighbours_2[i].length)]++] = i;
+        }
+
+        for(int i : order)
+        {
+            colors[i] = Long.numberOfTrailingZeros(~forbidden[i]);
+            forbidColor(i, colors[i], forbidden);
+        }
+        return colors;
+    }
+
+    /**
+     * Forbids colors conflicting with a colored position at its neighbours and positions distant by 2
+     * @param _i index of colored position
+     * @param _color color of position
+     * @param _forbidden forbidden colors of each position
+     */
+    private void forbidColor(int _i, int _color, long[] _forbidden)
+    {
+        //Colors _color-1, _color and _color+1
+        long near = colorBit(_color - 1) | colorBit(_color) | colorBit(_color + 1);
+        for(int neighbour : neighbours_1[_i]) _forbidden[neighbour] |= near;
+        for(int neighbour : neighbours_2[_i]) _forbidden[neighbour] |= colorBit(_color);
+    }
+
+    /**
+     * Gets bit of color in forbidden colors - only colors 0..63 are kept (greedy coloring uses at most 21 colors,
+     * so a higher color can't forbid any color it could choose)
+     * @param _color color
+     * @return bit of color, 0 if color isn't in 0..63
+     */
+    private static long colorBit(int _color)
+    {
+        return _color >= 0 && _color < Long.SIZE ? 1L << _color : 0L;
+    }
+
+    /**
+     * Counts not colored positions
+     * @param _positions indexes of positions
+     * @param _colors colors of all positions
+     * @return amount of positions without color
+     */
+    private static int countUncolored(int[] _positions, int[] _colors)
+    {
+        int result = 0;
+        for(int i : _positions)
+        {
+            if(_colors[i] == UNSET) result++;
+        }
+        return result;
+    }
+
+    /**
+     * Moves not colored positions to buckets of their new saturation and amount of not colored neighbours
+     * @param _positions indexes of positions next to a just colored position
+     * @param _colors colors of all positions
+     * @param _forbidden forbidden colors of each position
+     * @param _uncolored amount of not colored neighbours of each position
+     * @param _buckets not colored positions
+     */
+    private static void updateGreedyBuckets(int[] _positions, int[] _colors, long[] _forbidden, int[] _uncolored,
+                                            MrvBuckets _buckets)
+    {
+        for(int i : _positions)
+        {
+            if(_colors[i] != UNSET) continue;
+            _uncolored[i]--;
+            _buckets.update(i, Long.SIZE - Long.bitCount(_forbidden[i]), _uncolored[i]);
+        }
     }
 
     //-----------
@@ -490,10 +966,22 @@ public class Grid
      */
     void printGrid()
     {
-        for (Integer[] aGrid_array : grid_array)
+        printColors(grid_array);
+    }
+
+    /**
+     * Prints colors of all positions in Grid layout
+     * @param _colors colors of all positions (index row*N+col, UNSET for not colored ones)
+     */
+    void printColors(int[] _colors)
+    {
+        for (int r = 0; r < N; r++)
         {
-            for (Integer anAGrid_array : aGrid_array)
-                System.out.print("\u001B[3" + anAGrid_array + "m" + "[" + anAGrid_array + "]");
+            for (int c = 0; c < N; c++)
+            {
+                String color = _colors[r * N + c] != UNSET ? String.valueOf(_colors[r * N + c]) : "null";
+                System.out.print("\u001B[3" + color + "m" + "[" + color + "]");
+            }
             System.out.println();
         }
     }
@@ -503,15 +991,12 @@ public class Grid
      */
     public void printAllDomains()
     {
-        int i = 0;
-        for(ConcurrentHashMap<Integer, Integer> posDomain : grid_domains)
+        for(int i = 0; i < getVarAmount(); i++)
         {
             System.out.print("Pole " + i/N + "/" + i%N + " domains = ");
-            for (Object o : posDomain.entrySet())
+            for(int color = grid_domains.first(i); color != -1; color = grid_domains.next(i, color + 1))
             {
-                Map.Entry pair = (Map.Entry) o;
-                Integer colorFromDomain = (Integer) pair.getKey();
-                System.out.print(colorFromDomain + " | ");
+                System.out.print(color + " | ");
             }
             System.out.println();
         }
@@ -521,6 +1006,24 @@ public class Grid
     // SETTERS & GETTERS |-------------------------------------------------------------
     //--------------------
 
+    /**
+     * Neighbours_1 getter (shared table, not to modify)
+     * @return indexes of positions distant by 1 for each position
+     */
+    int[][] getNeighbours_1()
+    {
+        return neighbours_1;
+    }
+
+    /**
+     * Neighbours_2 getter (shared table, not to modify)
+     * @return indexes of positions distant by 2 for each position
+     */
+    int[][] getNeighbours_2()
+    {
+        return neighbours_2;
+    }
+
     /**
      * N getter
      * @return value of N variable
@@ -540,46 +1043,73 @@ public class Grid
     }
 
     /**
-     * Grid_array getter
-     * @return Grid_array
+     * Grid_array getter - creates a 2D view (copy) of Grid, null for not filled positions
+     * @return Grid_array as 2D array
      */
     public Integer[][] getGrid_array()
     {
-        return grid_array;
+        Integer[][] result = new Integer[N][N];
+        for(int i = 0; i < getVarAmount(); i++)
+            if(grid_array[i] != UNSET) result[i / N][i % N] = grid_array[i];
+        return result;
     }
 
     /**
-     * Grid_array setter
+     * Grid_array setter - fills Grid from 2D array, null for not filled positions
      * @param _grid_array new grid_array to replace with this
      */
     public void setGrid_array(Integer[][] _grid_array)
     {
-        this.grid_array = _grid_array;
+        for(int i = 0; i < getVarAmount(); i++)
+        {
+            Integer color = _grid_array[i / N][i % N];
+            grid_array[i] = color != null ? color : UNSET;
+        }
+    }
+
+    /**
+     * Flat Grid_array getter (live array, index row*N+col, UNSET for not filled positions, only the first N*N entries are used)
+     * @return flat Grid_array
+     */
+    public int[] getGrid_values()
+    {
+        return grid_array;
+    }
+
+    /**
+     * Unfilled_positions getter
+     * @return Unfilled_positions - bit is set for each not filled variable index
+     */
+    public BitSet getUnfilled_positions()
+    {
+        return unfilled_positions;
     }
 
     /**
-     * Filled_positions getter
-     * @return Filled_positions
+     * Unfilled_positions setter
+     * @param _unfilled_positions new unfilled_positions bitset to replace with this
      */
-    public List<Integer> getFilled_positions()
+    public void setUnfilled_positions(BitSet _unfilled_positions)
     {
-        return filled_positions;
+        this.unfilled_positions = _unfilled_positions;
+        this.filled_amount = getVarAmount() - _unfilled_positions.cardinality();
+        if(mrv_buckets != null) buildMrvBuckets();
     }
 
     /**
-     * Filled_positions setter
-     * @param _filled_positions new filled_position list to replace with this
+     * Filled_amount getter
+     * @return amount of filled positions
      */
-    public void setFilled_positions(List<Integer> _filled_positions)
+    public int getFilled_amount()
     {
-        this.filled_positions = _filled_positions;
+        return filled_amount;
     }
 
     /**
      * Grid_domains getter
-     * @return Grid_domains array - Array of domains of each CSP variable
+     * @return Grid_domains - bitset domains of each CSP variable
      */
-    public List<ConcurrentHashMap<Integer, Integer>> getGrid_domains()
+    public BitDomains getGrid_domains()
     {
         return grid_domains;
     }
@@ -588,9 +1118,10 @@ public class Grid
      * Grid_domains setter
      * @param _grid_domains new Grid_domains (for each CSP variable) to replace with this
      */
-    public void setGrid_domains(List<ConcurrentHashMap<Integer, Integer>> _grid_domains)
+    public void setGrid_domains(BitDomains _grid_domains)
     {
         this.grid_domains = _grid_domains;
+        if(mrv_buckets != null) buildMrvBuckets();
     }
 
     /**
@@ -610,6 +1141,59 @@ public class Grid
     {
         this.colors_amount = _colors_amount;
     }
+
+    /**
+     * Trail getter
+     * @return Trail of forward-checking prunings
+     */
+    public Trail getTrail()
+    {
+        return trail;
+    }
+
+    /**
+     * Trail setter
+     * @param _trail new Trail to replace with this
+     */
+    public void setTrail(Trail _trail)
+    {
+        this.trail = _trail;
+    }
+
+    /**
+     * Var_ordering getter
+     * @return variable ordering used to choose the next position to fill
+     */
+    public VarOrdering getVar_ordering()
+    {
+        return var_ordering;
+    }
+
+    /**
+     * Var_ordering setter - builds incremental MRV buckets when INCREMENTAL_MRV ordering is chosen
+     * @param _var_ordering new variable ordering to replace with this
+     */
+    public void setVar_ordering(VarOrdering _var_ordering)
+    {
+        this.var_ordering = _var_ordering;
+        if(var_ordering == VarOrdering.INCREMENTAL_MRV) buildMrvBuckets();
+        else
+        {
+            mrv_buckets = null;
+            unfilled_neighbours = null;
+        }
+    }
+
+    /**
+     * Tie breaker setter
+     * @param _tie_breaker random generator choosing between positions with the same domain size of SMALLEST_DOMAIN
+     *                     ordering (null to take the first one)
+     */
+    void setTie_breaker(Random _tie_breaker)
+    {
+        this.tie_breaker = _tie_breaker;
+    }
+
     //--------------------------------------------------------------------------------
 }
 
@@ -0,0 +1,363 @@
+package graph_coloring;
+
+import csp_core.ConflictTrace;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Local search for Grid coloring with a fixed amount of colors - min-conflicts with tabu tenure and random restarts.
+ * All positions are always colored, each step recolors the conflicted position to the color with the fewest conflicts
+ * which isn't tabu (a left color is tabu for some steps, unless the move reaches a new best). Conflicts of each
+ * (position, color) are updated incrementally after a move, so a step costs O(conflicted positions * colors)
+ * and nothing is allocated.
+ * It finds good colorings of large Grids quickly, but it can't prove that there is no coloring.
+ */
+public class LocalSearchCSPGrid
+{
+    private Grid grid;                      //Grid to color (its neighbour tables are used)
+    private int N;                          //Grid size
+    private int colorsAmount;               //Amount of colors
+    private int[][] neighbours1;            //Indexes of positions distant by 1 for each position
+    private int[][] neighbours2;            //Indexes of positions distant by 2 for each position
+    private int[] colors;                   //Current color of each position (index row*N+col)
+    private int[] gamma;                    //Conflicts of each position with each color (index i*colorsAmount+color)
+    private int conflicts;                  //Amount of violated constraints (pairs of positions)
+
+    private int[] conflicted;               //Positions with conflicts (unordered set)
+    private int[] conflictedIndex;          //Index of each position in conflicted (-1 if it has no conflicts)
+    private int conflictedSize;             //Amount of positions with conflicts
+
+    private long[] tabuUntil;               //Step until which (position, color) is tabu
+    private int tenure;                     //The least amount of steps a left color is tabu
+    private long restartAfter;              //Amount of steps without improvement before a random restart
+    private Random random;                  //Random generator of moves and restarts
+
+    private int bestConflicts;              //The lowest amount of conflicts
+    private int[] bestColors;               //Coloring with the lowest amount of conflicts
+    private long amountOfSteps;             //Amount of moves of the last search
+    private int restarts;                   //Amount of random restarts of the last search
+    private ConflictTrace trace;            //Conflicts over time of the last search
+    private boolean printSolution;          //Print a found coloring flag
+    private BooleanSupplier stopCondition;  //Cooperative cancellation checked at each step (null if not used)
+
+    /**
+     * LocalSearchCSPGrid constructor
+     * @param _gSize size of Grid
+     * @param _colorsAmount amount of colors
+     * @param _seed seed of random generator (the same seed gives the same search)
+     */
+    public LocalSearchCSPGrid(int _gSize, int _colorsAmount, long _seed)
+    {
+        grid = new Grid(_gSize);
+        N = _gSize;
+        colorsAmount = _colorsAmount;
+        neighbours1 = grid.getNeighbours_1();
+        neighbours2 = grid.getNeighbours_2();
+        colors = new int[N * N];
+        gamma = new int[N * N * colorsAmount];
+        conflicted = new int[N * N];
+        conflictedIndex = new int[N * N];
+        tabuUntil = new long[N * N * colorsAmount];
+        tenure = 10;
+        restartAfter = 100000;
+        random = new Random(_seed);
+        trace = new ConflictTrace(1000);
+        printSolution = true;
+    }
+
+    //----------------
+    // MIN-CONFLICTS |-----------------------------------------------------------
+    //----------------
+
+    /**
+     * Runs min-conflicts tabu search, the first descent starts from Welsh-Powell greedy coloring
+     * (colors over the amount are replaced randomly), restarts start from random colorings
+     * @param _maxSteps maximal amount of moves
+     * @return amount of moves
+     */
+    public long MinConflicts(long _maxSteps)
+    {
+        amountOfSteps = 0;
+        restarts = 0;
+        Arrays.fill(tabuUntil, 0);
+        trace.reset();
+        int[] greedy = grid.colorGreedyWelshPowell();
+        for(int i = 0; i < colors.length; i++)
+        {
+            colors[i] = greedy[i] < colorsAmount ? greedy[i] : random.nextInt(colorsAmount);
+        }
+        initConflicts();
+        bestConflicts = conflicts;
+        bestColors = colors.clone();
+        trace.record(0, conflicts);
+
+        int restartBest = conflicts;            //The lowest amount of conflicts since the last restart
+        long lastImprovement = 0;               //Step of the last improvement since the last restart
+        while(conflicts > 0 && amountOfSteps < _maxSteps && !isStopped())
+        {
+            if(amountOfSteps - lastImprovement > restartAfter)
+            {
+                for(int i = 0; i < colors.length; i++) colors[i] = random.nextInt(colorsAmount);
+                initConflicts();
+                restarts++;
+                restartBest = conflicts;
+                lastImprovement = amountOfSteps;
+            }
+
+            step();
+            amountOfSteps++;
+            trace.record(amountOfSteps, conflicts);
+            if(conflicts < restartBest)
+            {
+                restartBest = conflicts;
+                lastImprovement = amountOfSteps;
+            }
+            if(conflicts < bestConflicts)
+            {
+                bestConflicts = conflicts;
+                System.arraycopy(colors, 0, bestColors, 0, colors.length);
+            }
+        }
+
+        if(printSolution)
+        {
+            grid.printColors(bestColors);
+            System.out.println();
+        }
+        return amountOfSteps;
+    }
+
+    /**
+     * Makes the best not tabu move of all conflicted positions (ties are broken randomly),
+     * the left color is tabu for tenure steps plus a part proportional to the amount of conflicted positions
+     */
+    private void step()
+    {
+        int bestPosition = -1;
+        int bestColor = -1;
+        int bestDelta = Integer.MAX_VALUE;
+        int ties = 0;
+        for(int k = 0; k < conflictedSize; k++)
+        {
+            int i = conflicted[k];
+            int base = i * colorsAmount;
+            int current = gamma[base + colors[i]];
+            for(int color = 0; color < colorsAmount; color++)
+            {
+                if(color == colors[i]) continue;
+                int delta = gamma[base + color] - current;
+                if(delta > bestDelta) continue;
+                //Tabu move is allowed only if it reaches a new best (aspiration)
+                if(tabuUntil[base + color] > amountOfSteps && conflicts + delta >= bestConflicts) continue;
+                if(delta < bestDelta)
+                {
+                    bestDelta = delta;
+                    bestPosition = i;
+                    bestColor = color;
+                    ties = 1;
+                }
+                else if(random.nextInt(++ties) == 0)
+                {
+                    bestPosition = i;
+                    bestColor = color;
+                }
+            }
+        }
+        if(bestPosition == -1) return;
+        int old = colors[bestPosition];
+        move(bestPosition, bestColor);
+        tabuUntil[bestPosition * colorsAmount + old] = amountOfSteps + tenure + random.nextInt(tenure + 1) + conflictedSize * 6 / 10;
+    }
+
+    /**
+     * Changes color of position and updates conflicts of its neighbours
+     * @param _i index of position
+     * @param _color new color
+     */
+    private void move(int _i, int _color)
+    {
+        int old = colors[_i];
+        conflicts += gamma[_i * colorsAmount + _color] - gamma[_i * colorsAmount + old];
+        colors[_i] = _color;
+        for(int neighbour : neighbours1[_i])
+        {
+            addNearColors(neighbour, old, -1);
+            addNearColors(neighbour, _color, 1);
+            updateConflicted(neighbour);
+        }
+        for(int neighbour : neighbours2[_i])
+        {
+            gamma[neighbour * colorsAmount + old]--;
+            gamma[neighbour * colorsAmount + _color]++;
+            updateConflicted(neighbour);
+        }
+        updateConflicted(_i);
+    }
+
+    /**
+     * Changes conflicts of position with colors _color-1, _color and _color+1 (colors too close to a neighbour)
+     * @param _i index of position
+     * @param _color color of neighbour
+     * @param _diff change of conflicts
+     */
+    private void addNearColors(int _i, int _color, int _diff)
+    {
+        int base = _i * colorsAmount;
+        for(int color = Math.max(0, _color - 1); color <= Math.min(colorsAmount - 1, _color + 1); color++)
+        {
+            gamma[base + color] += _diff;
+        }
+    }
+
+    /**
+     * Counts conflicts of all (position, color) pairs for the current coloring from scratch
+     */
+    private void initConflicts()
+    {
+        Arrays.fill(gamma, 0);
+        Arrays.fill(conflictedIndex, -1);
+        conflictedSize = 0;
+        conflicts = 0;
+        for(int i = 0; i < colors.length; i++)
+        {
+            for(int neighbour : neighbours1[i]) addNearColors(neighbour, colors[i], 1);
+            for(int neighbour : neighbours2[i]) gamma[neighbour * colorsAmount + colors[i]]++;
+        }
+        for(int i = 0; i < colors.length; i++)
+        {
+            conflicts += gamma[i * colorsAmount + colors[i]];
+            updateConflicted(i);
+        }
+        //Each violated constraint has been counted by both its positions
+        conflicts /= 2;
+    }
+
+    /**
+     * Adds position to (or removes it from) the set of conflicted positions
+     * @param _i index of position
+     */
+    private void updateConflicted(int _i)
+    {
+        boolean hasConflicts = gamma[_i * colorsAmount + colors[_i]] > 0;
+        if(hasConflicts && conflictedIndex[_i] == -1)
+        {
+            conflictedIndex[_i] = conflictedSize;
+            conflicted[conflictedSize++] = _i;
+        }
+        else if(!hasConflicts && conflictedIndex[_i] != -1)
+        {
+            int last = conflicted[--conflictedSize];
+            conflicted[conflictedIndex[_i]] = last;
+            conflictedIndex[last] = conflictedIndex[_i];
+            conflictedIndex[_i] = -1;
+        }
+    }
+
+    /**
+     * Checks if the search should be stopped (cooperative cancellation)
+     * @return true if stop condition is set and fulfilled, false if it's not
+     */
+    private boolean isStopped()
+    {
+        return stopCondition != null && stopCondition.getAsBoolean();
+    }
+
+    //--------------------
+    // SETTERS & GETTERS |-------------------------------------------------------------
+    //--------------------
+
+    /**
+     * Solution getter
+     * @return the best found coloring (a solution if getConflicts() is 0), null before search
+     */
+    public Integer[][] getSolution()
+    {
+        if(bestColors == null) return null;
+        Integer[][] result = new Integer[N][N];
+        for(int i = 0; i < bestColors.length; i++) result[i / N][i % N] = bestColors[i];
+        return result;
+    }
+
+    /**
+     * Conflicts getter
+     * @return amount of violated constraints of the best found coloring
+     */
+    public int getConflicts()
+    {
+        return bestConflicts;
+    }
+
+    /**
+     * AmountOfSteps getter
+     * @return amount of moves of the last search
+     */
+    public long getAmountOfSteps()
+    {
+        return amountOfSteps;
+    }
+
+    /**
+     * Restarts getter
+     * @return amount of random restarts of the last search
+     */
+    public int getRestarts()
+    {
+        return restarts;
+    }
+
+    /**
+     * Trace getter
+     * @return conflicts over time of the last search
+     */
+    public ConflictTrace getTrace()
+    {
+        return trace;
+    }
+
+    /**
+     * Tenure setter
+     * @param _tenure the least amount of steps a left color is tabu (it grows with the amount of conflicted positions)
+     */
+    public void setTenure(int _tenure)
+    {
+        this.tenure = _tenure;
+    }
+
+    /**
+     * RestartAfter setter
+     * @param _restartAfter amount of steps without improvement before a random restart
+     */
+    public void setRestartAfter(long _restartAfter)
+    {
+        this.restartAfter = _restartAfter;
+    }
+
+    /**
+     * Trace setter
+     * @param _trace conflicts over time recorder (e.g. with another sampling interval)
+     */
+    public void setTrace(ConflictTrace _trace)
+    {
+        this.trace = _trace;
+    }
+
+    /**
+     * PrintSolution setter
+     * @param _printSolution true if the best found coloring should be printed, false if it should be only kept
+     */
+    public void setPrintSolution(boolean _printSolution)
+    {
+        this.printSolution = _printSolution;
+    }
+
+    /**
+     * StopCondition setter
+     * @param _stopCondition condition checked at each step, search returns when it's fulfilled (null to disable)
+     */
+    public void setStopCondition(BooleanSupplier _stopCondition)
+    {
+        this.stopCondition = _stopCondition;
+    }
+}
@@ -1,136 +1,346 @@
 package latin_square;
 
-import java.util.HashSet;
-import java.util.Iterator;
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
+import csp_core.BitDomains;
+import csp_core.Checkpoint;
+import csp_core.CheckpointFile;
+import csp_core.ConflictSets;
+import csp_core.SearchEngine;
+import csp_core.SolutionConsumer;
+import csp_core.Trail;
+import csp_core.VarOrdering;
 
-public class CSPLatinSquare
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Latin square solver - search of SearchEngine, a value is set only if it's not used in row and column yet
+ * and ForwardChecking / MAC delete set values from domains of their row and column
+ */
+public class CSPLatinSquare extends SearchEngine
 {
-    private Grid grid;      //Grid of Latin square to solve by CSPGrid
-    private boolean endB;   //End of backtracking flag
-    private boolean endFC;  //End of forward-checking flag
+    private Grid grid;                       //Grid of Latin square to solve by CSPLatinSquare
+    private Position[] stackPositions;       //Position chosen at each level
 
     /**
-     * CSPGrid constructor
-     * @param _gSize size of Grid to solve by CSPGrid
+     * CSPLatinSquare constructor
+     * @param _gSize size of Latin square to solve
      */
     public CSPLatinSquare(int _gSize)
     {
+        super(_gSize * _gSize);
         grid = new Grid(_gSize);
-        endB = false;
-        endFC = false;
+        stackPositions = new Position[_gSize * _gSize + 1];
+    }
+
+    /**
+     * CSPLatinSquare constructor - solves an already prepared Grid (e.g. a subproblem of parallel search)
+     * @param _grid Grid to solve by CSPLatinSquare
+     */
+    CSPLatinSquare(Grid _grid)
+    {
+        super(_grid.getN() * _grid.getN());
+        grid = _grid;
+        stackPositions = new Position[_grid.getN() * _grid.getN() + 1];
+    }
+
+    //-----------------------
+    // VALUES & CONSTRAINTS |-----------------------------------------------------------
+    //-----------------------
+
+    @Override
+    protected int selectVar(int _level)
+    {
+        Position pos = grid.selectNotFilledPosition();              //Founded position (by chosen variable ordering)
+        setPosition(_level, pos);
+        return pos.getRow() * grid.getN() + pos.getColumn();
+    }
+
+    @Override
+    protected void setVar(int _level, int _var)
+    {
+        setPosition(_level, new Position(_var / grid.getN(), _var % grid.getN()));
+    }
+
+    /**
+     * Keeps position of level (stack of positions grows with Grid)
+     * @param _level search level
+     * @param _p Position of variable
+     */
+    private void setPosition(int _level, Position _p)
+    {
+        if(stackPositions.length <= _level)
+            stackPositions = Arrays.copyOf(stackPositions, Math.max(grid.getN() * grid.getN() + 1, _level + 1));
+        stackPositions[_level] = _p;
     }
 
-    //---------------------------------
-    // BACKTRACKING & FORWARD-CHECKING |-----------------------------------------------------------
-    //---------------------------------
+    @Override
+    protected int firstValue(int _level)
+    {
+        return grid.getFirstValFromDomain(stackPositions[_level]);
+    }
 
-    public int Backtracking(int level)
+    @Override
+    protected int nextValue(int _level, int _val)
     {
+        return grid.getNextValFromDomain(stackPositions[_level], _val);
+    }
 
-        int amountOfSteps = 0;
-        if(endB) return amountOfSteps;
+    @Override
+    protected int domainSize(int _level)
+    {
+        return grid.getDomainSizeAtPosition(stackPositions[_level]);
+    }
 
-        //Grid CSP completed!
-        if(grid.hasFilledNodes())
+    /**
+     * Checks constraints before setting a value (value not used in row and column yet), for CBJ one assignment
+     * with the value in row or column explains rejection, learned nogoods are checked too
+     */
+    @Override
+    protected boolean assign(int _level, int _val, boolean _explain)
+    {
+        Position pos = stackPositions[_level];
+        boolean allowed = _explain ? isAllowed(pos.getRow() * grid.getN() + pos.getColumn(), _val, pos, _level)
+                : grid.isValAllowedAtPosition(_val, pos);
+        if(allowed) fill(_level, _val);
+        return allowed;
+    }
+
+    /**
+     * Checks if a value can be set at position - it's not used in row and column and no learned nogood rejects it.
+     * Otherwise levels of assignments which reject the value are added to the conflict set of level
+     * @param _var index of variable at position
+     * @param _val value to check
+     * @param _p Position of variable
+     * @param _level search level
+     * @return true if value is allowed, false if it's not
+     */
+    private boolean isAllowed(int _var, int _val, Position _p, int _level)
+    {
+        if(!grid.isValAllowedAtPosition(_val, _p))
         {
-            grid.printGrid();
-            System.out.println();
-            endB = true;
-            return amountOfSteps;
+            //One assignment with the value in row or column explains rejection - the earlier one jumps further
+            int culprit = earlierCulprit(grid.findValInRow(_val, _p), grid.findValInColumn(_val, _p));
+            if(culprit != -1) getConflictSets().addCulprit(_level, culprit);
+            return false;
         }
+        return !isRejectedByNogood(_var, _val, _level);
+    }
 
-        //Get a position and its domain
-        Position pos = grid.getNotFilledPosition();                 //Founded position
-//        Position pos = grid.getNotFilledPositionMostUnsetNeighbours();
-        ConcurrentHashMap<Integer, Integer> posDomain = grid.getDomainAtPosition(pos); //domain of this position
+    /**
+     * Chooses an assignment which explains rejection of a value
+     * @param _inRow index of position with the value in row (-1 if there is no such position)
+     * @param _inColumn index of position with the value in column (-1 if there is no such position)
+     * @return index of position assigned at the earlier level, -1 if one of them was filled before search
+     */
+    private int earlierCulprit(int _inRow, int _inColumn)
+    {
+        ConflictSets conflictSets = getConflictSets();
+        if(_inRow == -1) return conflictSets.getLevelOf(_inColumn) != -1 ? _inColumn : -1;
+        if(_inColumn == -1) return conflictSets.getLevelOf(_inRow) != -1 ? _inRow : -1;
+        int rowLevel = conflictSets.getLevelOf(_inRow);
+        int columnLevel = conflictSets.getLevelOf(_inColumn);
+        if(rowLevel == -1 || columnLevel == -1) return -1;
+        return rowLevel < columnLevel ? _inRow : _inColumn;
+    }
 
-//        amountOfSteps++;
-        for (Object o : posDomain.entrySet())
-        {
-            amountOfSteps++;
-            Map.Entry pair = (Map.Entry) o;
-            Integer val = (Integer) pair.getKey();
-            //Setting a first color from domain
-            grid.setValAtPosition(val, pos);
-            boolean ok = true;
-//
-            //Checking constraints
-            if (grid.hasUniqueRow(pos) && grid.hasUniqueColumn(pos))
-            {
-                grid.setPositionAsFilled(pos);
-            }
-            else
-            {
-                grid.unsetValAtPosition(pos);
-                ok = false;
-            }
+    @Override
+    protected void fill(int _level, int _val)
+    {
+        grid.setValAtPosition(_val, stackPositions[_level]);
+        grid.setPositionAsFilled(stackPositions[_level]);
+    }
 
-            if (ok)
-            {
-                amountOfSteps += Backtracking(level + 1);
-                //Cleaning after backing from recursion
-                grid.unsetPositionAsFilled(pos);
-                grid.unsetValAtPosition(pos);
-            }
-        }
-        return amountOfSteps;
+    @Override
+    protected int forwardCheck(int _level, int _val)
+    {
+        return grid.deleteValsFromDomainsForward(stackPositions[_level], _val);
     }
 
-    public int ForwardChecking(int level)
+    @Override
+    protected boolean maintainArcConsistency(int _level, int _val)
     {
+        return grid.maintainArcConsistency(stackPositions[_level], _val);
+    }
 
-        int amountOfSteps = 0;
-        if(endFC) return amountOfSteps;
+    @Override
+    protected void restoreDomains()
+    {
+        grid.backDeletedValsFromDomains();
+    }
 
-        //Grid CSP completed!
-        if(grid.hasFilledNodes())
+    @Override
+    protected void unassign(int _level)
+    {
+        grid.unsetPositionAsFilled(stackPositions[_level]);
+        grid.unsetValAtPosition(stackPositions[_level]);
+    }
+
+    @Override
+    protected int countLastValues(int _level)
+    {
+        Position pos = stackPositions[_level];
+        int result = 0;
+        for (int val = grid.getFirstValFromDomain(pos); val != -1; val = grid.getNextValFromDomain(pos, val))
         {
-            grid.printGrid();
-            System.out.println();
-            endFC = true;
-            return amountOfSteps;
+            if (grid.isValAllowedAtPosition(val, pos)) result++;
         }
+        return result;
+    }
 
-        //Get a position and its domain
-        Position pos = grid.getNotFilledPosition();                 //Founded position
-//        Position pos = grid.getNotFilledPositionMostUnsetNeighbours();
-//        Position pos = grid.getNotFilledPositionSmallestDomain();
-        ConcurrentHashMap<Integer, Integer> posDomain = grid.getDomainAtPosition(pos); //domain of this position
+    //----------------------------------
+    // PARTIAL LATIN SQUARE COMPLETION |-----------------------------------------------------------
+    //----------------------------------
 
-//        amountOfSteps++;
-        for (Object o : posDomain.entrySet())
+    /**
+     * Loads a partial Latin square to complete (quasigroup completion) - pre-filled cells are set and their effect
+     * on domains is propagated once (forward deletion and arc consistency of all rows and columns), then any search
+     * (e.g. MaintainingArcConsistency(0)) fills only the holes. Should be called before search on a new solver
+     * @param _cells N x N array of pre-filled values (0..N-1), null for holes
+     * @return true if the partial square may be completed, false if propagation proved there is no completion
+     */
+    public boolean loadPartialSquare(Integer[][] _cells)
+    {
+        int n = grid.getN();
+        if(_cells.length != n) throw new IllegalArgumentException("Partial square must have " + n + " rows");
+        int[] values = new int[n * n];
+        for(int r = 0; r < n; r++)
         {
-            amountOfSteps++;
-            Map.Entry pair = (Map.Entry) o;
-            Integer val = (Integer) pair.getKey();
-            //Setting a first color from domain
-            grid.setValAtPosition(val, pos);
-            boolean ok = true;
-//
-            //Checking constraints
-            if (grid.hasUniqueRow(pos) && grid.hasUniqueColumn(pos))
-            {
-                grid.setPositionAsFilled(pos);
-                grid.deleteValsFromDomainsForward(pos, val);
-            }
-            else
-            {
-                grid.unsetValAtPosition(pos);
-                ok = false;
-            }
-
-            if (ok)
+            if(_cells[r].length != n) throw new IllegalArgumentException("Partial square must have " + n + " columns");
+            for(int c = 0; c < n; c++)
             {
-                amountOfSteps += ForwardChecking(level + 1);
-                //Cleaning after backing from recursion
-                grid.backDeletedValsFromDomains(pos, val);
-                grid.unsetPositionAsFilled(pos);
-                grid.unsetValAtPosition(pos);
+                Integer val = _cells[r][c];
+                if(val != null && (val < 0 || val >= n))
+                    throw new IllegalArgumentException("Value " + val + " at " + r + "/" + c + " is out of range 0.." + (n - 1));
+                values[r * n + c] = val != null ? val : Grid.UNSET;
             }
         }
-        return amountOfSteps;
+        return grid.loadPartial(values);
+    }
+
+    //----------------------------------
+    // SOLUTIONS ENUMERATION & COUNTING |-----------------------------------------------------------
+    //----------------------------------
+
+    /**
+     * Enumerates all solutions, each one is streamed to consumer and isn't kept in memory
+     * @param _consumer consumer of solutions (null to only count them), it can stop enumeration by returning false
+     * @param _forwardChecking true to delete values from domains forward, false for plain backtracking
+     * @return amount of enumerated solutions
+     */
+    public long enumerateSolutions(SolutionConsumer _consumer, boolean _forwardChecking)
+    {
+        return enumerate(_consumer, _forwardChecking, true);
+    }
+
+    /**
+     * Counts all solutions without materializing them
+     * @param _forwardChecking true to delete values from domains forward, false for plain backtracking
+     * @return amount of solutions
+     */
+    public long countSolutions(boolean _forwardChecking)
+    {
+        return enumerateSolutions(null, _forwardChecking);
+    }
+
+    /**
+     * Counts all Latin squares of order N using symmetry - reduced Latin squares (first row and first column
+     * are 0..N-1) are counted by forward-checking and multiplied by N!(N-1)!
+     * @return amount of Latin squares of order N
+     */
+    public BigInteger countLatinSquaresBySymmetry()
+    {
+        int n = grid.getN();
+        CSPLatinSquare reduced = new CSPLatinSquare(n);
+        reduced.setVarOrdering(getVarOrdering());
+        reduced.setStopCondition(getStopCondition());
+        reduced.setStopCheckInterval(getStopCheckInterval());
+        Grid reducedGrid = reduced.getGrid();
+
+        //Normalized first row and first column (0..N-1)
+        for(int i = 0; i < n; i++) prefill(reducedGrid, new Position(0, i), i);
+        for(int i = 1; i < n; i++) prefill(reducedGrid, new Position(i, 0), i);
+
+        BigInteger result = BigInteger.valueOf(reduced.countSolutions(true));
+        //N! * (N-1)! = product of i * (i-1) for i = 2..N
+        for(int i = 2; i <= n; i++) result = result.multiply(BigInteger.valueOf((long) i * (i - 1)));
+        return result;
+    }
+
+    /**
+     * Sets a value at position before search and deletes it from domains forward
+     * @param _grid Grid to fill
+     * @param _p Position of variable
+     * @param _val value to set
+     */
+    private static void prefill(Grid _grid, Position _p, int _val)
+    {
+        _grid.setValAtPosition(_val, _p);
+        _grid.setPositionAsFilled(_p);
+        _grid.deleteValsFromDomainsForward(_p, _val);
+    }
+
+    //-------------
+    // CHECKPOINT |-----------------------------------------------------------
+    //-------------
+
+    /**
+     * Restores a paused enumeration from checkpoint, it continues by resume. Grid has to be in the state
+     * the enumeration started from (empty, or with the same partial square loaded). Values are replayed with
+     * the same propagation, replayed assignment and domains are compared with the ones kept in checkpoint
+     * @param _checkpoint checkpoint of enumeration (of a Latin square of the same size)
+     * @param _consumer consumer of the rest of solutions (null to only count them)
+     * @throws IllegalArgumentException if checkpoint doesn't belong to this Latin square or isn't of enumeration
+     */
+    public void restore(Checkpoint _checkpoint, SolutionConsumer _consumer)
+    {
+        if(!fits(_checkpoint))
+            throw new IllegalArgumentException("Checkpoint doesn't belong to Latin square of order " + grid.getN());
+        if(!replay(_checkpoint, _consumer))
+            throw new IllegalArgumentException("Checkpoint doesn't belong to this Latin square");
+    }
+
+    /**
+     * Restores a paused enumeration from checkpoint file, it continues by resume
+     * @param _file checkpoint file (written by periodic checkpoints or CheckpointFile.write)
+     * @param _consumer consumer of the rest of solutions (null to only count them)
+     * @throws IOException if file can't be read or it's truncated or corrupted
+     * @throws IllegalArgumentException if checkpoint doesn't belong to this Latin square or isn't of enumeration
+     */
+    public void restore(Path _file, SolutionConsumer _consumer) throws IOException
+    {
+        restore(CheckpointFile.read(_file), _consumer);
+    }
+
+    //--------
+    // RESET |-----------------------------------------------------------
+    //--------
+
+    /**
+     * Clears the solver for the next problem of the same size - empties Grid (assignments and domains),
+     * drops solution, end flags, paused search, statistics, conflict sets and learned nogoods. Settings (variable
+     * ordering, seed, stop condition, nogood limits, printing) are kept and all arrays are reused
+     */
+    public void reset()
+    {
+        VarOrdering varOrdering = grid.getVar_ordering();
+        grid.reset();
+        grid.setVar_ordering(varOrdering);
+        resetSearch();
+    }
+
+    /**
+     * Changes size of Latin square and clears the solver (as reset) - Grid arrays, domains and trail, statistics,
+     * conflict sets and nogoods are reused if they are big enough
+     * @param _gSize new size of Latin square
+     */
+    public void resize(int _gSize)
+    {
+        grid.resize(_gSize);
+        ensureCapacity(_gSize * _gSize);
+        reset();
     }
 
     //--------------------
@@ -139,7 +349,7 @@ public class CSPLatinSquare
 
     /**
      * Grid getter
-     * @return Grid solving by CSPGLatinSquare
+     * @return Grid solved by CSPLatinSquare
      */
     public Grid getGrid()
     {
@@ -156,38 +366,76 @@ public class CSPLatinSquare
     }
 
     /**
-     * EndB (End of backtracking flag) getter
-     * @return End of backtracking flag
+     * Variable ordering getter
+     * @return heuristic used to choose the next position to fill
      */
-    public boolean isEndB()
+    @Override
+    public VarOrdering getVarOrdering()
     {
-        return endB;
+        return grid.getVar_ordering();
     }
 
     /**
-     * EndB (End of backtracking flag) setter
-     * @param endB New backtracking flag value to replace with this
+     * Variable ordering setter
+     * @param _varOrdering heuristic used to choose the next position to fill
      */
-    public void setEndB(boolean endB)
+    @Override
+    public void setVarOrdering(VarOrdering _varOrdering)
     {
-        this.endB = endB;
+        grid.setVar_ordering(_varOrdering);
     }
 
-    /**
-     * EndFC (End of forward-checking flag) getter
-     * @return End of forward-checking flag
-     */
-    public boolean isEndFC()
+    @Override
+    protected int getSize()
     {
-        return endFC;
+        return grid.getN();
     }
 
-    /**
-     * EndFC (End of forward-checking flag) setter
-     * @param endFC New forward-checking flag value to replace with this
-     */
-    public void setEndFC(boolean endFC)
+    @Override
+    protected int[] getValues()
+    {
+        return grid.getGrid_values();
+    }
+
+    @Override
+    protected BitDomains getDomains()
+    {
+        return grid.getGrid_domains();
+    }
+
+    @Override
+    protected Trail getTrail()
+    {
+        return grid.getTrail();
+    }
+
+    @Override
+    protected boolean isComplete()
+    {
+        return grid.hasFilledNodes();
+    }
+
+    @Override
+    protected int getFilledAmount()
+    {
+        return grid.getFilled_amount();
+    }
+
+    @Override
+    protected Integer[][] copySolution()
+    {
+        return grid.getGrid_array();
+    }
+
+    @Override
+    protected void printGrid()
+    {
+        grid.printGrid();
+    }
+
+    @Override
+    protected void setTieBreaker(Random _random)
     {
-        this.endFC = endFC;
+        grid.setTie_breaker(_random);
     }
 }
@@ -1,14 +1,37 @@
 package latin_square;
 
+import csp_core.AllDifferent;
+import csp_core.BitDomains;
+import csp_core.MrvBuckets;
+import csp_core.Trail;
+import csp_core.VarOrdering;
+
 import java.util.*;
-import java.util.concurrent.ConcurrentHashMap;
 
 public class Grid
 {
+    static final int UNSET = -1;                //Value of not filled CSP variable
+
     private int N;                              //Grid size
-    private Integer[][] grid_array;             //Array of CSP variables (Grid implementation)
-    private List<Integer> filled_positions;     //Filled positions
-    private List<ConcurrentHashMap<Integer, Integer>> grid_domains;
+    private int capacity;                       //The biggest Grid size the arrays are allocated for (grid_array, queue)
+    private int[] grid_array;                   //Flat array of CSP variables (Grid implementation), index row*N+col
+    private BitSet unfilled_positions;          //Not filled positions (bit per variable index)
+    private int filled_amount;                  //Amount of filled positions
+    private BitDomains grid_domains;            //domains for each variable (position) (bitset per position)
+    private Trail trail;                        //Trail of forward-checking prunings
+    private BitDomains row_vals;                //Values used in each row (occupancy bitmask per row)
+    private BitDomains column_vals;             //Values used in each column (occupancy bitmask per column)
+    private VarOrdering var_ordering;           //Variable ordering used by selectNotFilledPosition
+    private MrvBuckets mrv_buckets;             //Buckets of not filled positions (only for INCREMENTAL_MRV ordering)
+    private int[] unfilled_neighbours;          //Amount of not filled neighbours of each position (only for INCREMENTAL_MRV)
+    private AllDifferent[] all_different;       //All-different constraints of rows (0..N-1) and columns (N..2N-1)
+    private AllDifferent.Pruner pruner;         //Deletes values for all-different constraints (with queueing constraints)
+    private int[] constraint_queue;             //Circular queue of constraints which variables' domains changed
+    private boolean[] in_constraint_queue;      //Constraint is in constraint_queue flags
+    private int constraint_queue_head;          //Index of the first constraint in constraint_queue
+    private int constraint_queue_size;          //Amount of constraints in constraint_queue
+    private int propagated_constraint;          //Constraint being propagated (-1 if none)
+    private Random tie_breaker;                 //Random choice between equally small domains (null to take the first one)
 
     /**
      * Grid constructor - creates a Grid instance with randomized N size
@@ -19,18 +42,25 @@ public class Grid
         //Randomized N (from 2 to 10)
         Random rand = new Random();
         N = rand.nextInt(10) + 2;
-        grid_array = new Integer[N][N];
-        filled_positions = new ArrayList<>();
-
-        //Initializing a HashSet for each CSP variable in array
+        grid_array = new int[N * N];
+        Arrays.fill(grid_array, UNSET);
+        capacity = N;
+        unfilled_positions = new BitSet(N * N);
+        unfilled_positions.set(0, N * N);
+        filled_amount = 0;
+        var_ordering = VarOrdering.FIRST_NOT_FILLED;
+
+        //Initializing a bitset domain for each CSP variable in array
         //Each CSP variable (in latin square) have a N-1 numbers to fill Grid
-        grid_domains = new ArrayList<>();
-        for(int i = 0; i < N * N; i++)
-        {
-            ConcurrentHashMap<Integer, Integer> domain = new ConcurrentHashMap<>();
-            for(int val = 0; val < N; val++) domain.put(val, val);
-            grid_domains.add(domain);
-        }
+        grid_domains = new BitDomains(N * N, N);
+        grid_domains.fillAll(N);
+
+        //Empty occupancy bitmasks of rows and columns
+        row_vals = new BitDomains(N, N);
+        column_vals = new BitDomains(N, N);
+
+        //Each assignment prunes at most 2(N-1) values
+        trail = new Trail(N * N * 2 * N, N * N + 1);
     }
 
     /**
@@ -41,18 +71,47 @@ public class Grid
     Grid(int _N)
     {
         this.N = _N;
-        grid_array = new Integer[N][N];
-        filled_positions = new ArrayList<>();
-
-        //Initializing a HashSet for each CSP variable in array
+        grid_array = new int[N * N];
+        Arrays.fill(grid_array, UNSET);
+        capacity = N;
+        unfilled_positions = new BitSet(N * N);
+        unfilled_positions.set(0, N * N);
+        filled_amount = 0;
+        var_ordering = VarOrdering.FIRST_NOT_FILLED;
+
+        //Initializing a bitset domain for each CSP variable in array
         //Each CSP variable (in latin square) have a N-1 numbers to fill Grid
-        grid_domains = new ArrayList<>();
-        for(int i = 0; i < N * N; i++)
-        {
-            ConcurrentHashMap<Integer, Integer> domain = new ConcurrentHashMap<>();
-            for(int val = 0; val < N; val++) domain.put(val, val);
-            grid_domains.add(domain);
-        }
+        grid_domains = new BitDomains(N * N, N);
+        grid_domains.fillAll(N);
+
+        //Empty occupancy bitmasks of rows and columns
+        row_vals = new BitDomains(N, N);
+        column_vals = new BitDomains(N, N);
+
+        //Each assignment prunes at most 2(N-1) values
+        trail = new Trail(N * N * 2 * N, N * N + 1);
+    }
+
+    /**
+     * Grid copy constructor - creates an independent copy of Grid state (assignments, domains, trail and heuristics).
+     * Random tie breaker isn't shared - the copy gets its own one seeded from the copied one
+     * @param _other Grid to copy
+     */
+    Grid(Grid _other)
+    {
+        this.N = _other.N;
+        capacity = _other.capacity;
+        grid_array = _other.grid_array.clone();
+        unfilled_positions = (BitSet) _other.unfilled_positions.clone();
+        filled_amount = _other.filled_amount;
+        grid_domains = new BitDomains(_other.grid_domains);
+        trail = new Trail(_other.trail);
+        row_vals = new BitDomains(_other.row_vals);
+        column_vals = new BitDomains(_other.column_vals);
+        var_ordering = _other.var_ordering;
+        mrv_buckets = _other.mrv_buckets != null ? new MrvBuckets(_other.mrv_buckets) : null;
+        unfilled_neighbours = _other.unfilled_neighbours != null ? _other.unfilled_neighbours.clone() : null;
+        tie_breaker = _other.tie_breaker != null ? new Random(_other.tie_breaker.nextLong()) : null;
     }
 
     //----------
@@ -65,7 +124,61 @@ public class Grid
      */
     boolean hasFilledNodes()
     {
-        return filled_positions.size() == this.getVarAmount();
+        return filled_amount == this.getVarAmount();
+    }
+
+    /**
+     * Empties Grid for the next problem of the same size (e.g. when Grid is reused by a pool) - clears assignments,
+     * restores full domains, drops trail and heuristics state, arrays are reused
+     */
+    public void reset()
+    {
+        Arrays.fill(grid_array, 0, getVarAmount(), UNSET);
+        unfilled_positions.set(0, getVarAmount());
+        filled_amount = 0;
+        grid_domains.fillAll(N);
+        for(int k = 0; k < N; k++)
+        {
+            row_vals.clear(k);
+            column_vals.clear(k);
+        }
+        trail.clear();
+        var_ordering = VarOrdering.FIRST_NOT_FILLED;
+        mrv_buckets = null;
+        unfilled_neighbours = null;
+        tie_breaker = null;
+        if(all_different != null) prepareConstraintQueue();
+    }
+
+    /**
+     * Changes Grid size and empties it - arrays, domains, trail and bitsets are reused while the new size
+     * doesn't exceed capacity and reallocated only when Grid grows over it (the flat Grid array then keeps
+     * N*N used entries at its beginning), all-different constraints are created for the new size
+     * @param _N new Grid size
+     */
+    public void resize(int _N)
+    {
+        if(_N != N)
+        {
+            if(in_constraint_queue != null) Arrays.fill(in_constraint_queue, false);
+            N = _N;
+            if(N > capacity)
+            {
+                capacity = N;
+                grid_array = new int[N * N];
+                constraint_queue = null;
+                in_constraint_queue = null;
+            }
+            unfilled_positions.clear();
+            grid_domains.resize(N * N, N);
+            row_vals.resize(N, N);
+            column_vals.resize(N, N);
+            all_different = null;
+            pruner = null;
+            constraint_queue_head = 0;
+            constraint_queue_size = 0;
+        }
+        reset();
     }
 
     /**
@@ -83,13 +196,8 @@ public class Grid
      */
     Position getNotFilledPosition()
     {
-        int i = 0;
-        while(i < getVarAmount())
-        {
-            if(!filled_positions.contains(i)) return new Position(i/N, i%N);
-            i++;
-        }
-        return null;
+        int i = unfilled_positions.nextSetBit(0);
+        return i >= 0 ? new Position(i/N, i%N) : null;
     }
 
     /**
@@ -100,10 +208,10 @@ public class Grid
     private int countUnsetNeighbours(Position _p)
     {
         int result = 0;
-        if(getValAtPositionIfExists(new Position(_p.getRow() + 1, _p.getColumn())) == null) result++;
-        if(getValAtPositionIfExists(new Position(_p.getRow() - 1, _p.getColumn())) == null) result++;
-        if(getValAtPositionIfExists(new Position(_p.getRow(), _p.getColumn() + 1)) == null) result++;
-        if(getValAtPositionIfExists(new Position(_p.getRow(), _p.getColumn() - 1)) == null) result++;
+        if(getValAtPositionIfExists(_p.getRow() + 1, _p.getColumn()) == UNSET) result++;
+        if(getValAtPositionIfExists(_p.getRow() - 1, _p.getColumn()) == UNSET) result++;
+        if(getValAtPositionIfExists(_p.getRow(), _p.getColumn() + 1) == UNSET) result++;
+        if(getValAtPositionIfExists(_p.getRow(), _p.getColumn() - 1) == UNSET) result++;
         return result;
     }
 
@@ -113,22 +221,18 @@ public class Grid
      */
     Position getNotFilledPositionMostUnsetNeighbours()
     {
-        int i = 0;
         Position best = null;
         int uncoloredNeighbours = -1;
 
-        while(i < getVarAmount() && uncoloredNeighbours < 4)
+        //Iterating only through not filled positions
+        for(int i = unfilled_positions.nextSetBit(0); i >= 0 && uncoloredNeighbours < 4; i = unfilled_positions.nextSetBit(i + 1))
         {
-            if(!filled_positions.contains(i))
+            int positionUncoloredNeighbours = countUnsetNeighbours(new Position(i/N, i%N));
+            if(positionUncoloredNeighbours > uncoloredNeighbours)
             {
-                int positionUncoloredNeighbours = countUnsetNeighbours(new Position(i/N, i%N));
-                if(positionUncoloredNeighbours > uncoloredNeighbours)
-                {
-                    best = new Position(i/N, i%N);
-                    uncoloredNeighbours = positionUncoloredNeighbours;
-                }
+                best = new Position(i/N, i%N);
+                uncoloredNeighbours = positionUncoloredNeighbours;
             }
-            i++;
         }
         return best;
     }
@@ -139,43 +243,130 @@ public class Grid
      */
     Position getNotFilledPositionSmallestDomain()
     {
-        int i = 0;
         Position best = null;
         int domainSize = N + 1; //to reduce finding if domainSize will be 0
+        int ties = 0;                       //Amount of positions with the same domain size
 
-        while(i < getVarAmount() && domainSize > 0)
+        //Iterating only through not filled positions
+        for(int i = unfilled_positions.nextSetBit(0); i >= 0 && domainSize > 0; i = unfilled_positions.nextSetBit(i + 1))
         {
-            if(!filled_positions.contains(i))
+            int positionDomainSize = grid_domains.size(i);
+            if(positionDomainSize < domainSize)
             {
-                int positionDomainSize = getDomainAtPosition(new Position(i/N, i%N)).size();
-                if(positionDomainSize < domainSize)
-                {
-                    best = new Position(i/N, i%N);
-                    domainSize = positionDomainSize;
-                }
+                best = new Position(i/N, i%N);
+                domainSize = positionDomainSize;
+                ties = 1;
             }
-            i++;
+            //Each of equally good positions is taken with the same probability (reservoir sampling)
+            else if(positionDomainSize == domainSize && tie_breaker != null
+                    && tie_breaker.nextInt(++ties) == 0) best = new Position(i/N, i%N);
         }
         return best;
     }
 
     /**
-     * If _p position exists return a assigned value of its
-     * @param _p Position which value we want to get
-     * @return Color of _p position if exists, null if it's not
+     * Finds a unfilled position with the smallest domain using incrementally updated buckets
+     * For equal domains the position with most unfilled neighbours is taken
+     * @return position of unfilled Latin square variable with the smallest domain
+     */
+    Position getNotFilledPositionIncrementalMrv()
+    {
+        int i = mrv_buckets.peekMin();
+        return i >= 0 ? new Position(i/N, i%N) : null;
+    }
+
+    /**
+     * Finds a unfilled position using the chosen variable ordering (var_ordering)
+     * @return position of unfilled Latin square variable
      */
-    private Integer getValAtPositionIfExists(Position _p)
+    Position selectNotFilledPosition()
     {
-        try
+        switch(var_ordering)
         {
-            return grid_array[_p.getRow()][_p.getColumn()];
+            case MOST_UNFILLED_NEIGHBOURS:
+                return getNotFilledPositionMostUnsetNeighbours();
+            case SMALLEST_DOMAIN:
+                return getNotFilledPositionSmallestDomain();
+            case INCREMENTAL_MRV:
+                return getNotFilledPositionIncrementalMrv();
+            default:
+                return getNotFilledPosition();
         }
-        catch (ArrayIndexOutOfBoundsException | NullPointerException r)
+    }
+
+    //------------------------
+    // INCREMENTAL MRV BUCKETS |-----------------------------------------------------------
+    //------------------------
+
+    /**
+     * Builds buckets of not filled positions and counts not filled neighbours (inside the Grid) of each position
+     */
+    private void buildMrvBuckets()
+    {
+        mrv_buckets = new MrvBuckets(getVarAmount(), N, 4);
+        unfilled_neighbours = new int[getVarAmount()];
+        for(int i = 0; i < getVarAmount(); i++)
         {
-            return null;
+            int row = i / N;
+            int column = i % N;
+            if(row > 0 && unfilled_positions.get(i - N)) unfilled_neighbours[i]++;
+            if(row < N - 1 && unfilled_positions.get(i + N)) unfilled_neighbours[i]++;
+            if(column > 0 && unfilled_positions.get(i - 1)) unfilled_neighbours[i]++;
+            if(column < N - 1 && unfilled_positions.get(i + 1)) unfilled_neighbours[i]++;
+        }
+        for(int i = unfilled_positions.nextSetBit(0); i >= 0; i = unfilled_positions.nextSetBit(i + 1))
+        {
+            mrv_buckets.insert(i, grid_domains.size(i), unfilled_neighbours[i]);
         }
     }
 
+    /**
+     * Moves position to the bucket of its current domain size and amount of unfilled neighbours
+     * @param _i index of position
+     */
+    private void updateMrvBucket(int _i)
+    {
+        if(mrv_buckets != null) mrv_buckets.update(_i, grid_domains.size(_i), unfilled_neighbours[_i]);
+    }
+
+    /**
+     * Changes amount of unfilled neighbours of each neighbour (up, down, left, right) of position
+     * @param _i index of position
+     * @param _diff change of amount (-1 when position is filled, 1 when it's unfilled)
+     */
+    private void changeUnfilledNeighbours(int _i, int _diff)
+    {
+        int row = _i / N;
+        int column = _i % N;
+        if(row > 0) changeUnfilledNeighboursAt(_i - N, _diff);
+        if(row < N - 1) changeUnfilledNeighboursAt(_i + N, _diff);
+        if(column > 0) changeUnfilledNeighboursAt(_i - 1, _diff);
+        if(column < N - 1) changeUnfilledNeighboursAt(_i + 1, _diff);
+    }
+
+    /**
+     * Changes amount of unfilled neighbours of position and updates its bucket
+     * @param _i index of position
+     * @param _diff change of amount
+     */
+    private void changeUnfilledNeighboursAt(int _i, int _diff)
+    {
+        unfilled_neighbours[_i] += _diff;
+        updateMrvBucket(_i);
+    }
+
+    /**
+     * If position exists return a assigned value of its
+     * @param _row row of position
+     * @param _column column of position
+     * @return Value of position if exists, UNSET if it's not or it isn't filled
+     */
+    private int getValAtPositionIfExists(int _row, int _column)
+    {
+        if(_row < 0 || _row >= N || _column < 0 || _column >= N) return UNSET;
+        return grid_array[_row * N + _column];
+    }
+
     /**
      * Checks if _p Position is filled
      * @param _p Position which we checking
@@ -183,27 +374,53 @@ public class Grid
      */
     boolean isFilledPosition(Position _p)
     {
-        return getValAtPositionIfExists(_p) != null;
+        return getValAtPositionIfExists(_p.getRow(), _p.getColumn()) != UNSET;
+    }
+
+    /**
+     * Gets a size of domain of variable at position
+     * @param _p Position of variable which domain size we want
+     * @return Amount of values in domain of variable at _p position
+     */
+    int getDomainSizeAtPosition(Position _p)
+    {
+        return _p != null ? grid_domains.size((N * _p.getRow()) + _p.getColumn()) : 0;
     }
 
     /**
-     * Gets a domain of variable at position
-     * @param _p Position of variable which domain we want
-     * @return Domain of variable at _p position
+     * Gets the first value from domain of variable at position
+     * @param _p Position of variable
+     * @return the smallest value in domain of variable at _p position, -1 if domain is empty
      */
-    ConcurrentHashMap<Integer, Integer> getDomainAtPosition(Position _p)
+    int getFirstValFromDomain(Position _p)
     {
-        return _p != null ? grid_domains.get((N * _p.getRow()) + _p.getColumn()) : new ConcurrentHashMap<>();
+        return _p != null ? grid_domains.first((N * _p.getRow()) + _p.getColumn()) : -1;
+    }
+
+    /**
+     * Gets the next value from domain of variable at position
+     * @param _p Position of variable
+     * @param _val previous value taken from domain
+     * @return the smallest value greater than _val in domain of variable at _p position, -1 if there is no such value
+     */
+    int getNextValFromDomain(Position _p, int _val)
+    {
+        return grid_domains.next((N * _p.getRow()) + _p.getColumn(), _val + 1);
     }
 
     /**
      * Sets a value at specified position (sets a value of CSP variable at position)
+     * Marks the value as used in row and column of position, so it should be allowed by isValAllowedAtPosition
      * @param _v Value which we want to set
      * @param _p Position of CSP variable which value we want to set
      */
-    void setValAtPosition(Integer _v, Position _p)
+    void setValAtPosition(int _v, Position _p)
     {
-        grid_array[_p.getRow()][_p.getColumn()] = _v;
+        int i = _p.getRow() * N + _p.getColumn();
+        if(grid_array[i] != UNSET) unsetValAtPosition(_p);
+        grid_array[i] = _v;
+        row_vals.add(_p.getRow(), _v);
+        column_vals.add(_p.getColumn(), _v);
     }
 
     /**
@@ -212,7 +429,39 @@ public class Grid
      */
     void unsetValAtPosition(Position _p)
     {
-        grid_array[_p.getRow()][_p.getColumn()] = null;
+        int i = _p.getRow() * N + _p.getColumn();
+        int val = grid_array[i];
+        if(val == UNSET) return;
+        grid_array[i] = UNSET;
+        row_vals.remove(_p.getRow(), val);
+        column_vals.remove(_p.getColumn(), val);
+    }
+
+    /**
+     * Checks if a value can be set at specified position (Constraints 1 and 2 of Latin square)
+     * Value is allowed if it isn't used in row and column of position yet - two bit tests
+     * @param _v Value which we want to set
+     * @param _p Position of CSP variable
+     * @return true if value is allowed, false if it's not
+     */
+    boolean isValAllowedAtPosition(int _v, Position _p)
+    {
+        return !row_vals.contains(_p.getRow(), _v) && !column_vals.contains(_p.getColumn(), _v);
+    }
+
+    /**
+     * Rebuilds occupancy bitmasks of rows and columns from grid_array
+     */
+    private void rebuildOccupancy()
+    {
+        row_vals = new BitDomains(N, N);
+        column_vals = new BitDomains(N, N);
+        for(int i = 0; i < getVarAmount(); i++)
+            if(grid_array[i] != UNSET)
+            {
+                row_vals.add(i / N, grid_array[i]);
+                column_vals.add(i % N, grid_array[i]);
+            }
     }
 
     /**
@@ -220,9 +469,9 @@ public class Grid
      * @param _p Position of CSP variable which value we want to get
      * @return value at specified position (value of CSP variable at position)
      */
-    private Integer getValAtPosition(Position _p)
+    private int getValAtPosition(Position _p)
     {
-        return grid_array[_p.getRow()][_p.getColumn()];
+        return grid_array[_p.getRow() * N + _p.getColumn()];
     }
 
     /**
@@ -231,7 +480,17 @@ public class Grid
      */
     void setPositionAsFilled(Position _p)
     {
-        filled_positions.add((_p.getRow() * N) + _p.getColumn());
+        int i = (_p.getRow() * N) + _p.getColumn();
+        if(unfilled_positions.get(i))
+        {
+            unfilled_positions.clear(i);
+            filled_amount++;
+            if(mrv_buckets != null)
+            {
+                mrv_buckets.remove(i);
+                changeUnfilledNeighbours(i, -1);
+            }
+        }
     }
 
     /**
@@ -240,65 +499,54 @@ public class Grid
      */
     void unsetPositionAsFilled(Position _p)
     {
-        filled_positions.remove(Integer.valueOf((_p.getRow() * N) + _p.getColumn()));
+        int i = (_p.getRow() * N) + _p.getColumn();
+        if(!unfilled_positions.get(i))
+        {
+            unfilled_positions.set(i);
+            filled_amount--;
+            if(mrv_buckets != null)
+            {
+                changeUnfilledNeighbours(i, 1);
+                mrv_buckets.insert(i, grid_domains.size(i), unfilled_neighbours[i]);
+            }
+        }
     }
 
     //-------------
     // CONSTRAINTS |-------------------------------------------------------------
     //-------------
 
-    //CONSTRAINT 1 - UNIQUE ROW
     /**
-     * Checks if the row of position is unique (Constraint 1 of Latin square)
-     * @param _p Position which row we want to check
-     * @return true if it's unique, false if it's not
+     * Finds the position in row of _p which has a value assigned (a reason why the value isn't allowed at _p)
+     * @param _v Value to find
+     * @param _p Position which row is searched
+     * @return index of position with the value, -1 if value isn't used in row
      */
-    boolean hasUniqueRow(Position _p)
+    int findValInRow(int _v, Position _p)
     {
-        int row = _p.getRow();
-        HashSet<Integer> rowVals = new HashSet<>();
-        boolean isRowUnique = true;
-        int i = 0;
-        while(i < N && isRowUnique)
+        if(!row_vals.contains(_p.getRow(), _v)) return -1;
+        int base = _p.getRow() * N;
+        for(int c = 0; c < N; c++)
         {
-            if(grid_array[row][i] != null)
-            {
-                if (!rowVals.contains(grid_array[row][i]))
-                {
-                    rowVals.add(grid_array[row][i]);
-                }
-                else isRowUnique = false;
-            }
-            i++;
+            if(grid_array[base + c] == _v) return base + c;
         }
-        return isRowUnique;
+        return -1;
     }
 
-    //CONSTRAINT 2 - UNIQUE COLUMN
     /**
-     * Checks if the column of position is unique (Constraint 2 of Latin square)
-     * @param _p Position which column we want to check
-     * @return true if it's unique, false if it's not
+     * Finds the position in column of _p which has a value assigned (a reason why the value isn't allowed at _p)
+     * @param _v Value to find
+     * @param _p Position which column is searched
+     * @return index of position with the value, -1 if value isn't used in column
      */
-    boolean hasUniqueColumn(Position _p)
+    int findValInColumn(int _v, Position _p)
     {
-        int column = _p.getColumn();
-        HashSet<Integer> columnVals = new HashSet<>();
-        boolean isColumnUnique = true;
-        int i = 0;
-        while(i < N && isColumnUnique)
+        if(!column_vals.contains(_p.getColumn(), _v)) return -1;
+        for(int r = 0; r < N; r++)
         {
-            if(grid_array[i][column] != null)
-            {
-                if (!columnVals.contains(grid_array[i][column]))
-                {
-                    columnVals.add(grid_array[i][column]);
-                }
-                else isColumnUnique = false;
-            }
-            i++;
+            if(grid_array[r * N + _p.getColumn()] == _v) return r * N + _p.getColumn();
         }
-        return isColumnUnique;
+        return -1;
     }
 
     //--------------------------------------
@@ -306,97 +554,220 @@ public class Grid
     //--------------------------------------
 
     /**
-     * Deletes a value from variable's domain at specified position
-     * @param _p Position of variable
+     * Deletes a value from variable's domain at specified position and pushes the pruning on trail
+     * Filled positions are skipped, only values which really were in domain are pushed
+     * @param _row row of variable
+     * @param _column column of variable
      * @param _val value (variable from domain) to delete
+     * @return 1 if the domain has been emptied (wipeout), 0 if it's not
      */
-    private void deleteValFromDomainAtPosition(Position _p, Integer _val)
+    private int deleteValFromDomainAtPosition(int _row, int _column, int _val)
     {
-        try
+        int var = _row * N + _column;
+        if(grid_array[var] == UNSET && grid_domains.remove(var, _val))
         {
-            grid_domains.get(_p.getRow() * N + _p.getColumn()).remove(_val);
-        }
-        catch (IndexOutOfBoundsException e)
-        {
-            //
-        }
-    }
-
-    /**
-     * Backs a deleted value from domain at specified position
-     * @param _p Position of variable
-     * @param _val value which will be backed (added again)
-     */
-    private void backDeletedValFromDomainAtPosition(Position _p, Integer _val)
-    {
-        try
-        {
-            grid_domains.get(_p.getRow() * N + _p.getColumn()).put(_val, _val);
-        }
-        catch (IndexOutOfBoundsException e)
-        {
-            //
+            trail.push(var, _val);
+            updateMrvBucket(var);
+            return grid_domains.isEmpty(var) ? 1 : 0;
         }
+        return 0;
     }
 
     /**
      * Deletes associated value with variable at position from grid_domains forward (in row and column)
+     * Opens a new trail level, so the deleted values can be backed by backDeletedValsFromDomains
      * @param _p Position of variable
      * @param _val value to delete from domains
+     * @return amount of emptied domains (wipeouts)
      */
-    void deleteValsFromDomainsForward(Position _p, Integer _val)
+    int deleteValsFromDomainsForward(Position _p, int _val)
     {
+        trail.mark();
+        int wipeouts = 0;
+
         //From row
         int row = _p.getRow();
         for(int c = 0; c < _p.getColumn(); c++)
         {
-            deleteValFromDomainAtPosition(new Position(row, c), _val);
+            wipeouts += deleteValFromDomainAtPosition(row, c, _val);
         }
         for(int c = _p.getColumn() + 1; c< N; c++)
         {
-            deleteValFromDomainAtPosition(new Position(row, c), _val);
+            wipeouts += deleteValFromDomainAtPosition(row, c, _val);
         }
 
         //From column
         int column = _p.getColumn();
         for(int r = 0; r < _p.getRow(); r++)
         {
-            deleteValFromDomainAtPosition(new Position(r, column), _val);
+            wipeouts += deleteValFromDomainAtPosition(r, column, _val);
         }
         for(int r = _p.getRow() + 1; r < N; r++)
         {
-            deleteValFromDomainAtPosition(new Position(r, column), _val);
+            wipeouts += deleteValFromDomainAtPosition(r, column, _val);
+        }
+        return wipeouts;
+    }
+
+    /**
+     * Backs values deleted by the last deleteValsFromDomainsForward call (pops the last trail level)
+     */
+    void backDeletedValsFromDomains()
+    {
+        for(int i = trail.getSize() - 1; i >= trail.getLastMark(); i--)
+        {
+            grid_domains.add(trail.getVar(i), trail.getVal(i));
+            updateMrvBucket(trail.getVar(i));
         }
+        trail.popToLastMark();
     }
 
+    //-----------------------------------
+    // ARC CONSISTENCY (MAC) PROPAGATION |-------------------------------------------------------------
+    //-----------------------------------
+
     /**
-     * Backs a deleted values from domains related with _p variable position
+     * Deletes associated value with variable at position from grid_domains forward (as deleteValsFromDomainsForward)
+     * and then propagates deletions until all-different constraints of all rows and columns are (generalized)
+     * arc consistent. Constraints with a changed domain are queued, each one deletes values which can't be
+     * taken in any solution of its row / column (see AllDifferent) and queues the crossing constraints of
+     * changed variables. All deleted values are on the same trail level, so they are backed
+     * by a single backDeletedValsFromDomains call (also when a domain was wiped out)
      * @param _p Position of variable
-     * @param _val value to back
+     * @param _val value to delete from domains
+     * @return true if all constraints can be satisfied, false if a domain has been wiped out
      */
-    void backDeletedValsFromDomains(Position _p, Integer _val)
+    boolean maintainArcConsistency(Position _p, int _val)
     {
-        //From row
-        int row = _p.getRow();
-        for(int c = 0; c < _p.getColumn(); c++)
+        if(deleteValsFromDomainsForward(_p, _val) > 0) return false;
+        prepareConstraintQueue();
+        for(int t = trail.getLastMark(); t < trail.getSize(); t++)
         {
-            backDeletedValFromDomainAtPosition(new Position(row, c), _val);
+            enqueueConstraint(trail.getVar(t) / N);
+            enqueueConstraint(N + trail.getVar(t) % N);
         }
-        for(int c = _p.getColumn() + 1; c< N; c++)
+        return propagateConstraintQueue();
+    }
+
+    /**
+     * Loads pre-filled cells of a partial Latin square (quasigroup completion) and propagates them once:
+     * each value is deleted forward from its row and column and then all-different constraints of all rows
+     * and columns are made (generalized) arc consistent. Load-time deletions are permanent (trail is cleared),
+     * so every search starts from the pruned domains and never backs them. Grid should be empty
+     * @param _values values of all positions (index row*N+col, UNSET for holes)
+     * @return true if propagation found no contradiction, false if two pre-filled cells clash
+     *         or a domain has been wiped out (there is no completion)
+     */
+    boolean loadPartial(int[] _values)
+    {
+        boolean consistent = true;
+        for(int i = 0; i < getVarAmount() && consistent; i++)
         {
-            backDeletedValFromDomainAtPosition(new Position(row, c), _val);
+            if(_values[i] == UNSET) continue;
+            Position p = new Position(i / N, i % N);
+            if(!isValAllowedAtPosition(_values[i], p) || !grid_domains.contains(i, _values[i])) consistent = false;
+            else
+            {
+                setValAtPosition(_values[i], p);
+                setPositionAsFilled(p);
+                if(deleteValsFromDomainsForward(p, _values[i]) > 0) consistent = false;
+            }
+        }
+        if(consistent)
+        {
+            prepareConstraintQueue();
+            for(int k = 0; k < 2 * N; k++) enqueueConstraint(k);
+            consistent = propagateConstraintQueue();
         }
+        trail.clear();
+        return consistent;
+    }
 
-        //From column
-        int column = _p.getColumn();
-        for(int r = 0; r < _p.getRow(); r++)
+    /**
+     * Propagates queued all-different constraints until the queue is empty
+     * @return true if all constraints can be satisfied, false if a domain has been wiped out
+     */
+    private boolean propagateConstraintQueue()
+    {
+        while(constraint_queue_size > 0)
         {
-            backDeletedValFromDomainAtPosition(new Position(r, column), _val);
+            propagated_constraint = dequeueConstraint();
+            boolean consistent = all_different[propagated_constraint].propagate(grid_domains, grid_array, pruner);
+            propagated_constraint = -1;
+            if(!consistent) return false;
         }
-        for(int r = _p.getRow() + 1; r < N; r++)
+        return true;
+    }
+
+    /**
+     * Deletes a value for all-different constraint and queues row and column of variable
+     * (filtering of a single constraint is complete, so the propagated one isn't queued again)
+     * @param _var index of variable
+     * @param _val value to delete
+     * @return true if domain of variable is not empty, false if it has been wiped out
+     */
+    private boolean deleteValForConstraint(int _var, int _val)
+    {
+        if(deleteValFromDomainAtPosition(_var / N, _var % N, _val) > 0) return false;
+        if(propagated_constraint != _var / N) enqueueConstraint(_var / N);
+        if(propagated_constraint != N + _var % N) enqueueConstraint(N + _var % N);
+        return true;
+    }
+
+    /**
+     * Empties constraint queue and creates constraints if it's needed
+     */
+    private void prepareConstraintQueue()
+    {
+        if(all_different == null)
         {
-            backDeletedValFromDomainAtPosition(new Position(r, column), _val);
+            all_different = new AllDifferent[2 * N];
+            int[] rowScope = new int[N];
+            int[] columnScope = new int[N];
+            for(int k = 0; k < N; k++)
+            {
+                for(int l = 0; l < N; l++)
+                {
+                    rowScope[l] = k * N + l;
+                    columnScope[l] = l * N + k;
+                }
+                all_different[k] = new AllDifferent(rowScope, N);
+                all_different[N + k] = new AllDifferent(columnScope, N);
+            }
+            pruner = this::deleteValForConstraint;
+            propagated_constraint = -1;
         }
+        if(constraint_queue == null)
+        {
+            constraint_queue = new int[2 * N];
+            in_constraint_queue = new boolean[2 * N];
+        }
+        while(constraint_queue_size > 0) dequeueConstraint();
+        constraint_queue_head = 0;
+    }
+
+    /**
+     * Adds a constraint to queue (if it's not already there)
+     * @param _constraint index of constraint (row, N + column)
+     */
+    private void enqueueConstraint(int _constraint)
+    {
+        if(in_constraint_queue[_constraint]) return;
+        in_constraint_queue[_constraint] = true;
+        constraint_queue[(constraint_queue_head + constraint_queue_size++) % constraint_queue.length] = _constraint;
+    }
+
+    /**
+     * Takes the first constraint from queue
+     * @return index of constraint
+     */
+    private int dequeueConstraint()
+    {
+        int constraint = constraint_queue[constraint_queue_head];
+        constraint_queue_head = (constraint_queue_head + 1) % constraint_queue.length;
+        constraint_queue_size--;
+        in_constraint_queue[constraint] = false;
+        return constraint;
     }
 
     //-----------
@@ -408,10 +779,23 @@ public class Grid
      */
     void printGrid()
     {
-        for (Integer[] aGrid_array : grid_array)
+        printValues(grid_array, N);
+    }
+
+    /**
+     * Prints values of all positions in Grid layout
+     * @param _values values of all positions (index row*N+col, UNSET for not filled ones)
+     * @param _N size of Grid
+     */
+    static void printValues(int[] _values, int _N)
+    {
+        for (int r = 0; r < _N; r++)
         {
-            for (Integer anAGrid_array : aGrid_array)
-                System.out.print("[" + anAGrid_array + "]");
+            for (int c = 0; c < _N; c++)
+            {
+                int val = _values[r * _N + c];
+                System.out.print("[" + (val != UNSET ? String.valueOf(val) : "null") + "]");
+            }
             System.out.println();
         }
     }
@@ -421,18 +805,14 @@ public class Grid
      */
     public void printAllDomains()
     {
-        int i = 0;
-        for(ConcurrentHashMap<Integer, Integer> posDomain : grid_domains)
+        for(int i = 0; i < getVarAmount(); i++)
         {
             System.out.print("Pole " + i/N + "/" + i%N + " domains = ");
-            Iterator it = posDomain.entrySet().iterator();
-            while(it.hasNext())
+            for(int val = grid_domains.first(i); val != -1; val = grid_domains.next(i, val + 1))
             {
-                Map.Entry pair = (Map.Entry) it.next();
-                Integer valFromDomain = (Integer) pair.getKey();
-                System.out.print(valFromDomain + " | ");
-//                it.remove();
+                System.out.print(val + " | ");
             }
+            System.out.println();
         }
     }
 
@@ -459,46 +839,74 @@ public class Grid
     }
 
     /**
-     * Grid_array getter
-     * @return Grid_array
+     * Grid_array getter - creates a 2D view (copy) of Grid, null for not filled positions
+     * @return Grid_array as 2D array
      */
     public Integer[][] getGrid_array()
     {
-        return grid_array;
+        Integer[][] result = new Integer[N][N];
+        for(int i = 0; i < getVarAmount(); i++)
+            if(grid_array[i] != UNSET) result[i / N][i % N] = grid_array[i];
+        return result;
     }
 
     /**
-     * Grid_array setter
+     * Grid_array setter - fills Grid from 2D array, null for not filled positions
      * @param _grid_array new grid_array to replace with this
      */
     public void setGrid_array(Integer[][] _grid_array)
     {
-        this.grid_array = _grid_array;
+        for(int i = 0; i < getVarAmount(); i++)
+        {
+            Integer val = _grid_array[i / N][i % N];
+            grid_array[i] = val != null ? val : UNSET;
+        }
+        rebuildOccupancy();
     }
 
     /**
-     * Filled_positions list getter
-     * @return Filled_positions
+     * Flat Grid_array getter (live array, index row*N+col, UNSET for not filled positions, only the first N*N entries are used)
+     * @return flat Grid_array
      */
-    public List<Integer> getFilled_positions()
+    public int[] getGrid_values()
     {
-        return filled_positions;
+        return grid_array;
     }
 
     /**
-     * Filled_positions list setter
-     * @param _filled_positions new filled_position list to replace with this
+     * Unfilled_positions getter
+     * @return Unfilled_positions - bit is set for each not filled variable index
      */
-    public void setFilled_positions(List<Integer> _filled_positions)
+    public BitSet getUnfilled_positions()
     {
-        this.filled_positions = _filled_positions;
+        return unfilled_positions;
+    }
+
+    /**
+     * Unfilled_positions setter
+     * @param _unfilled_positions new unfilled_positions bitset to replace with this
+     */
+    public void setUnfilled_positions(BitSet _unfilled_positions)
+    {
+        this.unfilled_positions = _unfilled_positions;
+        this.filled_amount = getVarAmount() - _unfilled_positions.cardinality();
+        if(mrv_buckets != null) buildMrvBuckets();
+    }
+
+    /**
+     * Filled_amount getter
+     * @return amount of filled positions
+     */
+    public int getFilled_amount()
+    {
+        return filled_amount;
     }
 
     /**
      * Grid_domains getter
-     * @return Grid_domains array - Array of domains of each CSP variable
+     * @return Grid_domains - bitset domains of each CSP variable
      */
-    public List<ConcurrentHashMap<Integer, Integer>> getGrid_domains()
+    public BitDomains getGrid_domains()
     {
         return grid_domains;
     }
@@ -507,8 +915,61 @@ public class Grid
      * Grid_domains setter
      * @param _grid_domains new Grid_domains (for each CSP variable) to replace with this
      */
-    public void setGrid_domains(List<ConcurrentHashMap<Integer, Integer>> _grid_domains)
+    public void setGrid_domains(BitDomains _grid_domains)
     {
         this.grid_domains = _grid_domains;
+        if(mrv_buckets != null) buildMrvBuckets();
+    }
+
+    /**
+     * Trail getter
+     * @return Trail of forward-checking prunings
+     */
+    public Trail getTrail()
+    {
+        return trail;
+    }
+
+    /**
+     * Trail setter
+     * @param _trail new Trail to replace with this
+     */
+    public void setTrail(Trail _trail)
+    {
+        this.trail = _trail;
+    }
+
+    /**
+     * Var_ordering getter
+     * @return variable ordering used to choose the next position to fill
+     */
+    public VarOrdering getVar_ordering()
+    {
+        return var_ordering;
+    }
+
+    /**
+     * Var_ordering setter - builds incremental MRV buckets when INCREMENTAL_MRV ordering is chosen
+     * @param _var_ordering new variable ordering to replace with this
+     */
+    public void setVar_ordering(VarOrdering _var_ordering)
+    {
+        this.var_ordering = _var_ordering;
+        if(var_ordering == VarOrdering.INCREMENTAL_MRV) buildMrvBuckets();
+        else
+        {
+            mrv_buckets = null;
+            unfilled_neighbours = null;
+        }
+    }
+
+    /**
+     * Tie breaker setter
+     * @param _tie_breaker random generator choosing between positions with the same domain size of SMALLEST_DOMAIN
+     *                     ordering (null to take the first one)
+     */
+    void setTie_breaker(Random _tie_breaker)
+    {
+        this.tie_breaker = _tie_breaker;
     }
 }
@@ -0,0 +1,64 @@
+package latin_square;
+
+import csp_core.BatchResult;
+import csp_core.BufferPool;
+import csp_core.ProblemSpec;
+import csp_core.SearchResult;
+
+import java.util.function.BooleanSupplier;
+
+/**
+ * Latin square (or partial Latin square completion) instance for batch solving.
+ * Solvers (with their Grids) are taken from a per-thread pool and reset after use, so a worker solving many
+ * instances of the same size doesn't allocate new domains, trail and constraint buffers, statistics and nogood store for each one.
+ */
+public class LatinSquareSpec extends ProblemSpec
+{
+    private static final int POOLED_SOLVERS = 2;    //Kept solvers of each size per thread
+    private static final BufferPool<CSPLatinSquare> SOLVERS = new BufferPool<>(CSPLatinSquare::new, CSPLatinSquare::reset, POOLED_SOLVERS);
+
+    /**
+     * LatinSquareSpec constructor - empty Latin square
+     * @param _N size of Latin square
+     */
+    public LatinSquareSpec(int _N)
+    {
+        super(_N, null);
+    }
+
+    /**
+     * LatinSquareSpec constructor - partial Latin square to complete
+     * @param _cells N x N array of pre-filled values (0..N-1), null for holes
+     */
+    public LatinSquareSpec(Integer[][] _cells)
+    {
+        super(_cells.length, _cells);
+    }
+
+    //----------
+    // METHODS |-----------------------------------------------------------
+    //----------
+
+    @Override
+    public BatchResult solve(BooleanSupplier _stopCondition)
+    {
+        long start = System.nanoTime();
+        CSPLatinSquare solver = SOLVERS.acquire(getN());
+        try
+        {
+            solver.setPrintSolution(false);
+            solver.setStopCondition(_stopCondition);
+            if(getCells() != null && !solver.loadPartialSquare(getCells()))
+                return new BatchResult(this, SearchResult.Status.UNSAT, null, null, 0, System.nanoTime() - start);
+            solver.setVarOrdering(getVarOrdering());
+            SearchResult result = solver.solve(getAlgorithm(), newLimits());
+            return new BatchResult(this, result.getStatus(), result.getReason(), result.getSolution(),
+                    result.getSteps(), System.nanoTime() - start);
+        }
+        finally
+        {
+            solver.setStopCondition(null);
+            SOLVERS.release(getN(), solver);
+        }
+    }
+}
@@ -0,0 +1,388 @@
+package latin_square;
+
+import csp_core.ConflictTrace;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Local search for Latin square - min-conflicts with tabu tenure and random restarts.
+ * Cells filled in Grid (e.g. a loaded partial square) are given and never change, free cells of each row always hold
+ * the values missing from its given cells, so each row is a permutation of 0..N-1, only column constraints can be
+ * violated and a move swaps two free cells in a row. A value used more than once in a column is a conflict: a random
+ * conflicted (column, value) is chosen and one of its free cells is swapped with the free cell of the same row giving
+ * the fewest conflicts.
+ * Swapped cells are tabu for tenure steps (unless the move reaches a new best). Counts of values in columns
+ * are updated incrementally, so a step costs O(N), nothing is allocated.
+ * It finds Latin squares of large N quickly, but it can't prove anything about partial squares.
+ */
+public class LocalSearchCSPLatinSquare
+{
+    private int N;                          //Size of Latin square
+    private int[] values;                   //Current value of each cell (index row*N+col)
+    private boolean[] given;                //Cell is given by Grid flags (it's never moved)
+    private int[] rowValues;                //Values missing from given cells of a row (filling of a restart)
+    private boolean[] inRow;                //Value is given in a row flags (filling of a restart)
+    private int[] columnCount;              //Amount of each value in each column (index col*N+val)
+    private int conflicts;                  //Amount of repeated values in columns
+
+    private int[] conflicted;               //(column, value) pairs used more than once (index col*N+val, unordered set)
+    private int[] conflictedIndex;          //Index of each pair in conflicted (-1 if it isn't repeated)
+    private int conflictedSize;             //Amount of repeated pairs
+
+    private long[] tabuUntil;               //Step until which a cell is tabu
+    private int tenure;                     //Amount of steps swapped cells are tabu
+    private long restartAfter;              //Amount of steps without improvement before a random restart
+    private Random random;                  //Random generator of moves and restarts
+
+    private int bestConflicts;              //The lowest amount of conflicts
+    private int[] bestValues;               //Square with the lowest amount of conflicts
+    private long amountOfSteps;             //Amount of moves of the last search
+    private int restarts;                   //Amount of random restarts of the last search
+    private ConflictTrace trace;            //Conflicts over time of the last search
+    private boolean printSolution;          //Print a found square flag
+    private BooleanSupplier stopCondition;  //Cooperative cancellation checked at each step (null if not used)
+
+    /**
+     * LocalSearchCSPLatinSquare constructor - empty Latin square
+     * @param _gSize size of Latin square
+     * @param _seed seed of random generator (the same seed gives the same search)
+     */
+    public LocalSearchCSPLatinSquare(int _gSize, long _seed)
+    {
+        this(new Grid(_gSize), _seed);
+    }
+
+    /**
+     * LocalSearchCSPLatinSquare constructor - filled cells of Grid are given, only the other cells are searched
+     * @param _grid Grid of Latin square (e.g. with a partial square loaded by CSPLatinSquare.loadPartialSquare)
+     * @param _seed seed of random generator (the same seed gives the same search)
+     * @throws IllegalArgumentException if a value is given twice in a row or column
+     */
+    public LocalSearchCSPLatinSquare(Grid _grid, long _seed)
+    {
+        N = _grid.getN();
+        values = new int[N * N];
+        given = new boolean[N * N];
+        rowValues = new int[N];
+        inRow = new boolean[N];
+        columnCount = new int[N * N];
+        conflicted = new int[N * N];
+        conflictedIndex = new int[N * N];
+        tabuUntil = new long[N * N];
+        tenure = 2;
+        restartAfter = 100000;
+        random = new Random(_seed);
+        trace = new ConflictTrace(1000);
+        printSolution = true;
+
+        int[] gridValues = _grid.getGrid_values();
+        for(int i = 0; i < N * N; i++)
+        {
+            given[i] = gridValues[i] != Grid.UNSET;
+            if(given[i]) values[i] = gridValues[i];
+        }
+        //Given cells never move, so their clash would never be repaired
+        for(int r = 0; r < N; r++)
+        {
+            Arrays.fill(inRow, false);
+            for(int c = 0; c < N; c++)
+            {
+                if(!given[r * N + c]) continue;
+                int val = values[r * N + c];
+                if(inRow[val] || columnCount[c * N + val]++ > 0)
+                    throw new IllegalArgumentException("Value " + val + " at " + r + "/" + c + " is given twice");
+                inRow[val] = true;
+            }
+        }
+    }
+
+    //----------------
+    // MIN-CONFLICTS |-----------------------------------------------------------
+    //----------------
+
+    /**
+     * Runs min-conflicts tabu search from random row permutations of free cells
+     * @param _maxSteps maximal amount of moves
+     * @return amount of moves
+     */
+    public long MinConflicts(long _maxSteps)
+    {
+        amountOfSteps = 0;
+        restarts = 0;
+        Arrays.fill(tabuUntil, 0);
+        trace.reset();
+        randomize();
+        bestConflicts = conflicts;
+        bestValues = values.clone();
+        trace.record(0, conflicts);
+
+        int restartBest = conflicts;            //The lowest amount of conflicts since the last restart
+        long lastImprovement = 0;               //Step of the last improvement since the last restart
+        while(conflicts > 0 && amountOfSteps < _maxSteps && !isStopped())
+        {
+            if(amountOfSteps - lastImprovement > restartAfter)
+            {
+                randomize();
+                restarts++;
+                restartBest = conflicts;
+                lastImprovement = amountOfSteps;
+            }
+
+            step();
+            amountOfSteps++;
+            trace.record(amountOfSteps, conflicts);
+            if(conflicts < restartBest)
+            {
+                restartBest = conflicts;
+                lastImprovement = amountOfSteps;
+            }
+            if(conflicts < bestConflicts)
+            {
+                bestConflicts = conflicts;
+                System.arraycopy(values, 0, bestValues, 0, values.length);
+            }
+        }
+
+        if(printSolution)
+        {
+            Grid.printValues(bestValues, N);
+            System.out.println();
+        }
+        return amountOfSteps;
+    }
+
+    /**
+     * Swaps a random free cell of a random repeated (column, value) with the best not tabu free cell of its row
+     * (ties are broken randomly)
+     */
+    private void step()
+    {
+        int pair = conflicted[random.nextInt(conflictedSize)];
+        int col = pair / N;
+        int val = pair % N;
+
+        //Random row with the value in a free cell of the column (given values don't repeat in columns)
+        int row = -1;
+        int seen = 0;
+        for(int r = 0; r < N; r++)
+        {
+            if(values[r * N + col] == val && !given[r * N + col] && random.nextInt(++seen) == 0) row = r;
+        }
+
+        int bestCol = -1;
+        int bestDelta = Integer.MAX_VALUE;
+        int ties = 0;
+        for(int other = 0; other < N; other++)
+        {
+            if(other == col || given[row * N + other]) continue;
+            int otherVal = values[row * N + other];
+            int delta = (columnCount[col * N + val] > 1 ? -1 : 0) + (columnCount[other * N + otherVal] > 1 ? -1 : 0)
+                    + (columnCount[col * N + otherVal] > 0 ? 1 : 0) + (columnCount[other * N + val] > 0 ? 1 : 0);
+            //Tabu move is allowed only if it reaches a new best (aspiration)
+            if(tabuUntil[row * N + other] > amountOfSteps && conflicts + delta >= bestConflicts) continue;
+            if(delta < bestDelta)
+            {
+                bestDelta = delta;
+                bestCol = other;
+                ties = 1;
+            }
+            else if(delta == bestDelta && random.nextInt(++ties) == 0) bestCol = other;
+        }
+        if(bestCol == -1) return;
+        swap(row, col, bestCol);
+        tabuUntil[row * N + col] = amountOfSteps + tenure;
+        tabuUntil[row * N + bestCol] = amountOfSteps + tenure;
+    }
+
+    /**
+     * Swaps values of two cells in a row
+     * @param _row number of row
+     * @param _col1 number of the first column
+     * @param _col2 number of the second column
+     */
+    private void swap(int _row, int _col1, int _col2)
+    {
+        int val1 = values[_row * N + _col1];
+        int val2 = values[_row * N + _col2];
+        count(_col1, val1, -1);
+        count(_col2, val2, -1);
+        count(_col1, val2, 1);
+        count(_col2, val1, 1);
+        values[_row * N + _col1] = val2;
+        values[_row * N + _col2] = val1;
+    }
+
+    /**
+     * Changes amount of value in column, updates conflicts and the set of repeated pairs
+     * @param _col number of column
+     * @param _val value
+     * @param _diff change of amount
+     */
+    private void count(int _col, int _val, int _diff)
+    {
+        int pair = _col * N + _val;
+        int old = columnCount[pair];
+        columnCount[pair] += _diff;
+        conflicts += Math.max(0, columnCount[pair] - 1) - Math.max(0, old - 1);
+        boolean repeated = columnCount[pair] > 1;
+        if(repeated && conflictedIndex[pair] == -1)
+        {
+            conflictedIndex[pair] = conflictedSize;
+            conflicted[conflictedSize++] = pair;
+        }
+        else if(!repeated && conflictedIndex[pair] != -1)
+        {
+            int last = conflicted[--conflictedSize];
+            conflicted[conflictedIndex[pair]] = last;
+            conflictedIndex[last] = conflictedIndex[pair];
+            conflictedIndex[pair] = -1;
+        }
+    }
+
+    /**
+     * Fills free cells of each row with a random permutation of values missing from its given cells
+     * and counts conflicts from scratch
+     */
+    private void randomize()
+    {
+        Arrays.fill(columnCount, 0);
+        Arrays.fill(conflictedIndex, -1);
+        conflictedSize = 0;
+        conflicts = 0;
+        for(int r = 0; r < N; r++)
+        {
+            int base = r * N;
+            Arrays.fill(inRow, false);
+            for(int c = 0; c < N; c++)
+            {
+                if(given[base + c]) inRow[values[base + c]] = true;
+            }
+            int free = 0;
+            for(int val = 0; val < N; val++)
+            {
+                if(!inRow[val]) rowValues[free++] = val;
+            }
+            //Fisher-Yates shuffle
+            for(int k = free - 1; k > 0; k--)
+            {
+                int other = random.nextInt(k + 1);
+                int val = rowValues[k];
+                rowValues[k] = rowValues[other];
+                rowValues[other] = val;
+            }
+            for(int c = 0, k = 0; c < N; c++)
+            {
+                if(!given[base + c]) values[base + c] = rowValues[k++];
+            }
+            for(int c = 0; c < N; c++) count(c, values[base + c], 1);
+        }
+    }
+
+    /**
+     * Checks if the search should be stopped (cooperative cancellation)
+     * @return true if stop condition is set and fulfilled, false if it's not
+     */
+    private boolean isStopped()
+    {
+        return stopCondition != null && stopCondition.getAsBoolean();
+    }
+
+    //--------------------
+    // SETTERS & GETTERS |-------------------------------------------------------------
+    //--------------------
+
+    /**
+     * Solution getter
+     * @return the best found square (a Latin square if getConflicts() is 0), null before search
+     */
+    public Integer[][] getSolution()
+    {
+        if(bestValues == null) return null;
+        Integer[][] result = new Integer[N][N];
+        for(int i = 0; i < bestValues.length; i++) result[i / N][i % N] = bestValues[i];
+        return result;
+    }
+
+    /**
+     * Conflicts getter
+     * @return amount of repeated values in columns of the best found square
+     */
+    public int getConflicts()
+    {
+        return bestConflicts;
+    }
+
+    /**
+     * AmountOfSteps getter
+     * @return amount of moves of the last search
+     */
+    public long getAmountOfSteps()
+    {
+        return amountOfSteps;
+    }
+
+    /**
+     * Restarts getter
+     * @return amount of random restarts of the last search
+     */
+    public int getRestarts()
+    {
+        return restarts;
+    }
+
+    /**
+     * Trace getter
+     * @return conflicts over time of the last search
+     */
+    public ConflictTrace getTrace()
+    {
+        return trace;
+    }
+
+    /**
+     * Tenure setter
+     * @param _tenure amount of steps swapped cells are tabu
+     */
+    public void setTenure(int _tenure)
+    {
+        this.tenure = _tenure;
+    }
+
+    /**
+     * RestartAfter setter
+     * @param _restartAfter amount of steps without improvement before a random restart
+     */
+    public void setRestartAfter(long _restartAfter)
+    {
+        this.restartAfter = _restartAfter;
+    }
+
+    /**
+     * Trace setter
+     * @param _trace conflicts over time recorder (e.g. with another sampling interval)
+     */
+    public void setTrace(ConflictTrace _trace)
+    {
+        this.trace = _trace;
+    }
+
+    /**
+     * PrintSolution setter
+     * @param _printSolution true if the best found square should be printed, false if it should be only kept
+     */
+    public void setPrintSolution(boolean _printSolution)
+    {
+        this.printSolution = _printSolution;
+    }
+
+    /**
+     * StopCondition setter
+     * @param _stopCondition condition checked at each step, search returns when it's fulfilled (null to disable)
+     */
+    public void setStopCondition(BooleanSupplier _stopCondition)
+    {
+        this.stopCondition = _stopCondition;
+    }
+}
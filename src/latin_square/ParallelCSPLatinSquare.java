@@ -0,0 +1,359 @@
+package latin_square;
+
+import csp_core.RestartSchedule;
+import csp_core.SearchStats;
+import csp_core.VarOrdering;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Parallel (fork-join) search for Latin square CSP.
+ * Top levels of the search tree are split into subproblems, each with its own copy of Grid,
+ * idle workers steal not started subtrees. Subtrees are numbered in depth-first order (ordinal),
+ * a subtree stops as soon as a solution is found on its left, so the returned solution is the same
+ * as the one found by sequential Backtracking / ForwardChecking (ties of SMALLEST_DOMAIN aren't broken randomly here).
+ * Portfolio mode runs whole differently seeded restarting searches instead, the first one to finish wins.
+ */
+public class ParallelCSPLatinSquare
+{
+    private Grid grid;                  //Grid to solve (subproblems work on copies)
+    private int splitDepth;             //Amount of top levels split into subproblems
+    private boolean deterministic;      //Wait for subtrees on the left to return the same solution as sequential search
+    private AtomicLong bestOrdinal;     //Ordinal of the leftmost subtree with found solution
+    private Integer[][] solution;       //Solution found in the leftmost subtree
+    private LongAdder amountOfSteps;    //Amount of steps made by all workers
+    private SearchStats stats;          //Statistics merged from all sequentially searched subproblems
+
+    /**
+     * ParallelCSPLatinSquare constructor
+     * @param _gSize size of Grid to solve by ParallelCSPLatinSquare
+     */
+    public ParallelCSPLatinSquare(int _gSize)
+    {
+        grid = new Grid(_gSize);
+        splitDepth = 2;
+        deterministic = true;
+    }
+
+    //------------------------------------------
+    // PARALLEL BACKTRACKING & FORWARD-CHECKING |-----------------------------------------------------------
+    //------------------------------------------
+
+    /**
+     * Runs parallel Backtracking
+     * @param _threads amount of worker threads
+     * @return found solution, null if Latin square can't be completed
+     */
+    public Integer[][] Backtracking(int _threads)
+    {
+        return solve(_threads, false);
+    }
+
+    /**
+     * Runs parallel ForwardChecking
+     * @param _threads amount of worker threads
+     * @return found solution, null if Latin square can't be completed
+     */
+    public Integer[][] ForwardChecking(int _threads)
+    {
+        return solve(_threads, true);
+    }
+
+    /**
+     * Runs parallel search on a fork-join pool
+     * @param _threads amount of worker threads
+     * @param _forwardChecking true for ForwardChecking, false for Backtracking
+     * @return found solution, null if Latin square can't be completed
+     */
+    private Integer[][] solve(int _threads, boolean _forwardChecking)
+    {
+        bestOrdinal = new AtomicLong(Long.MAX_VALUE);
+        solution = null;
+        amountOfSteps = new LongAdder();
+        stats = new SearchStats(grid.getN() * grid.getN() + 1);
+
+        ForkJoinPool pool = new ForkJoinPool(_threads);
+        try
+        {
+            pool.invoke(new SubtreeTask(new Grid(grid), 0, 0, _forwardChecking));
+        }
+        finally
+        {
+            pool.shutdown();
+        }
+        return solution;
+    }
+
+    /**
+     * Counts amount of leaf ordinals covered by a subtree at level
+     * @param _level level of subtree root
+     * @return amount of ordinals (N ^ (splitDepth - level))
+     */
+    private long span(int _level)
+    {
+        long result = 1;
+        for(int l = _level; l < splitDepth; l++) result *= grid.getN();
+        return result;
+    }
+
+    /**
+     * Keeps a solution if it's found on the left of the current one
+     * @param _ordinal ordinal of subtree with solution
+     * @param _solution found solution
+     */
+    private synchronized void foundSolution(long _ordinal, Integer[][] _solution)
+    {
+        if(deterministic ? _ordinal < bestOrdinal.get() : solution == null)
+        {
+            solution = _solution;
+            //In non deterministic mode all workers stop at the first solution
+            bestOrdinal.set(deterministic ? _ordinal : -1);
+        }
+    }
+
+    /**
+     * Subtree of search tree, splits itself into children until splitDepth, then searches sequentially
+     */
+    private class SubtreeTask extends RecursiveAction
+    {
+        private static final long serialVersionUID = 1L;
+
+        private final Grid taskGrid;            //Own copy of Grid
+        private final int level;                //Level of subtree root
+        private final long ordinal;             //Ordinal of the first leaf in subtree
+        private final boolean forwardChecking;  //ForwardChecking or Backtracking
+
+        SubtreeTask(Grid _taskGrid, int _level, long _ordinal, boolean _forwardChecking)
+        {
+            taskGrid = _taskGrid;
+            level = _level;
+            ordinal = _ordinal;
+            forwardChecking = _forwardChecking;
+        }
+
+        @Override
+        protected void compute()
+        {
+            //Solution has been found on the left
+            if(bestOrdinal.get() < ordinal) return;
+
+            if(taskGrid.hasFilledNodes())
+            {
+                foundSolution(ordinal, taskGrid.getGrid_array());
+                return;
+            }
+
+            if(level == splitDepth)
+            {
+                CSPLatinSquare solver = new CSPLatinSquare(taskGrid);
+                solver.setPrintSolution(false);
+                solver.setStopCondition(() -> bestOrdinal.get() < ordinal);
+                amountOfSteps.add(forwardChecking ? solver.ForwardChecking(level) : solver.Backtracking(level));
+                stats.merge(solver.getStats());
+                if(solver.getSolution() != null) foundSolution(ordinal, solver.getSolution());
+                return;
+            }
+
+            //Splitting subtree - one child for each allowed value of chosen position
+            Position pos = taskGrid.selectNotFilledPosition();
+            long childSpan = span(level + 1);
+            List<SubtreeTask> children = new ArrayList<>();
+            for(int val = taskGrid.getFirstValFromDomain(pos); val != -1; val = taskGrid.getNextValFromDomain(pos, val))
+            {
+                amountOfSteps.increment();
+                if(!taskGrid.isValAllowedAtPosition(val, pos)) continue;
+
+                Grid childGrid = new Grid(taskGrid);
+                childGrid.setValAtPosition(val, pos);
+                childGrid.setPositionAsFilled(pos);
+                if(forwardChecking) childGrid.deleteValsFromDomainsForward(pos, val);
+                children.add(new SubtreeTask(childGrid, level + 1, ordinal + val * childSpan, forwardChecking));
+            }
+            invokeAll(children);
+        }
+    }
+
+    //-----------
+    // PORTFOLIO |-----------------------------------------------------------
+    //-----------
+
+    /**
+     * Runs a portfolio of MaintainingArcConsistencyWithRestarts searches with different seeds in parallel.
+     * Runtimes of randomized searches vary a lot, so the fastest of several ones is often much faster than
+     * a single one. The first search which finds a solution (or proves there is none) stops the others.
+     * @param _threads amount of searches (each one on its own worker thread and copy of Grid)
+     * @param _seed seed of the first search (search k uses _seed + k)
+     * @param _schedule failure limits of runs of each search
+     * @return found solution, null if Latin square can't be completed
+     */
+    public Integer[][] Portfolio(int _threads, long _seed, RestartSchedule _schedule)
+    {
+        //In portfolio bestOrdinal is only a flag - it's lowered when any search finishes
+        bestOrdinal = new AtomicLong(Long.MAX_VALUE);
+        solution = null;
+        amountOfSteps = new LongAdder();
+        stats = new SearchStats(grid.getN() * grid.getN() + 1);
+
+        ForkJoinPool pool = new ForkJoinPool(_threads);
+        try
+        {
+            List<PortfolioTask> tasks = new ArrayList<>();
+            for(int k = 0; k < _threads; k++) tasks.add(new PortfolioTask(new Grid(grid), _seed + k, _schedule));
+            for(PortfolioTask task : tasks) pool.execute(task);
+            for(PortfolioTask task : tasks) task.join();
+        }
+        finally
+        {
+            pool.shutdown();
+        }
+        return solution;
+    }
+
+    /**
+     * Whole restarting search with its own seed, it stops when any search of portfolio finishes
+     */
+    private class PortfolioTask extends RecursiveAction
+    {
+        private static final long serialVersionUID = 1L;
+
+        private final Grid taskGrid;                //Own copy of Grid
+        private final long seed;                    //Seed of random order of search
+        private final RestartSchedule schedule;     //Failure limits of runs
+
+        PortfolioTask(Grid _taskGrid, long _seed, RestartSchedule _schedule)
+        {
+            taskGrid = _taskGrid;
+            seed = _seed;
+            schedule = _schedule;
+        }
+
+        @Override
+        protected void compute()
+        {
+            CSPLatinSquare solver = new CSPLatinSquare(taskGrid);
+            solver.setPrintSolution(false);
+            solver.setSeed(seed);
+            solver.setStopCondition(() -> bestOrdinal.get() != Long.MAX_VALUE);
+            amountOfSteps.add(solver.MaintainingArcConsistencyWithRestarts(schedule));
+            stats.merge(solver.getStats());
+            if(solver.getSolution() != null) foundSolution(-1, solver.getSolution());
+            //Search which wasn't stopped has found a solution or proved there is none
+            bestOrdinal.compareAndSet(Long.MAX_VALUE, -1);
+        }
+    }
+
+    //--------
+    // REPORT |-----------------------------------------------------------
+    //--------
+
+    /**
+     * Runs sequential search and parallel search for 1, 2, 4 ... _maxThreads threads and prints speedup
+     * @param _maxThreads maximal amount of worker threads
+     * @param _forwardChecking true for ForwardChecking, false for Backtracking
+     */
+    public void reportSpeedup(int _maxThreads, boolean _forwardChecking)
+    {
+        CSPLatinSquare sequential = new CSPLatinSquare(new Grid(grid));
+        sequential.setPrintSolution(false);
+        long start = System.nanoTime();
+        if(_forwardChecking) sequential.ForwardChecking(0);
+        else sequential.Backtracking(0);
+        long sequentialTime = System.nanoTime() - start;
+        System.out.printf("sequential: %.3f ms%n", sequentialTime / 1e6);
+
+        for(int step = 1; ; step *= 2)
+        {
+            int threads = Math.min(step, _maxThreads);
+            start = System.nanoTime();
+            Integer[][] result = solve(threads, _forwardChecking);
+            long time = System.nanoTime() - start;
+            System.out.printf("threads: %d | %.3f ms | speedup: %.2f | steps: %d | same solution: %b%n",
+                    threads, time / 1e6, (double) sequentialTime / time, amountOfSteps.sum(),
+                    Arrays.deepEquals(result, sequential.getSolution()));
+            if(threads == _maxThreads) break;
+        }
+    }
+
+    //--------------------
+    // SETTERS & GETTERS |-------------------------------------------------------------
+    //--------------------
+
+    /**
+     * Grid getter
+     * @return Grid solving by ParallelCSPLatinSquare
+     */
+    public Grid getGrid()
+    {
+        return grid;
+    }
+
+    /**
+     * Grid setter
+     * @param grid New Grid to replace with previous and solve by ParallelCSPLatinSquare
+     */
+    public void setGrid(Grid grid)
+    {
+        this.grid = grid;
+    }
+
+    /**
+     * Solution getter
+     * @return solution found by the last search, null if it wasn't found
+     */
+    public Integer[][] getSolution()
+    {
+        return solution;
+    }
+
+    /**
+     * AmountOfSteps getter
+     * @return amount of steps made by all workers in the last search
+     */
+    public long getAmountOfSteps()
+    {
+        return amountOfSteps != null ? amountOfSteps.sum() : 0;
+    }
+
+    /**
+     * Stats getter
+     * @return statistics merged from subproblems searched sequentially in the last search, null before search
+     */
+    public SearchStats getStats()
+    {
+        return stats;
+    }
+
+    /**
+     * SplitDepth setter - ordinals must fit in long, so N ^ splitDepth has to be lower than 2^63
+     * @param _splitDepth amount of top levels split into subproblems
+     */
+    public void setSplitDepth(int _splitDepth)
+    {
+        this.splitDepth = _splitDepth;
+    }
+
+    /**
+     * Deterministic setter
+     * @param _deterministic true to return the same solution as sequential search,
+     *                       false to stop all workers at the first found solution
+     */
+    public void setDeterministic(boolean _deterministic)
+    {
+        this.deterministic = _deterministic;
+    }
+
+    /**
+     * Variable ordering setter
+     * @param _varOrdering heuristic used to choose the next position to fill
+     */
+    public void setVarOrdering(VarOrdering _varOrdering)
+    {
+        grid.setVar_ordering(_varOrdering);
+    }
+}
@@ -0,0 +1,139 @@
+package latin_square;
+
+import java.util.Random;
+
+/**
+ * Generator of quasigroup with holes (QWH) instances - partial Latin squares which surely have a completion.
+ * A Latin square is drawn (nearly) uniformly by the Jacobson-Matthews Markov chain and then a given ratio of its
+ * cells is punched out. Instances are the hardest around 42% of holes (phase transition of QWH), with fewer holes
+ * propagation alone completes the square, with more holes almost any assignment of the holes works.
+ */
+public class QuasigroupWithHoles
+{
+    //----------
+    // METHODS |-----------------------------------------------------------
+    //----------
+
+    /**
+     * Generates a partial Latin square with holes
+     * @param _N size of Latin square
+     * @param _holes ratio of holes (0..1)
+     * @param _seed seed of random generator (the same seed gives the same instance)
+     * @return N x N array of values, null for holes
+     */
+    public static Integer[][] generate(int _N, double _holes, long _seed)
+    {
+        Random random = new Random(_seed);
+        int[] square = randomLatinSquare(_N, random);
+
+        //Partial Fisher-Yates shuffle - the first holes cells of order are punched out
+        int[] order = new int[_N * _N];
+        for(int i = 0; i < order.length; i++) order[i] = i;
+        int holes = (int) Math.round(Math.max(0, Math.min(1, _holes)) * order.length);
+        for(int k = 0; k < holes; k++)
+        {
+            int other = k + random.nextInt(order.length - k);
+            int cell = order[other];
+            order[other] = order[k];
+            order[k] = cell;
+            square[cell] = Grid.UNSET;
+        }
+
+        Integer[][] result = new Integer[_N][_N];
+        for(int i = 0; i < square.length; i++)
+            if(square[i] != Grid.UNSET) result[i / _N][i % _N] = square[i];
+        return result;
+    }
+
+    /**
+     * Draws a random Latin square by the Jacobson-Matthews Markov chain. Square is kept as incidence cube
+     * (cube[row][col][val] is 1 if val is at row/col) and each move changes values of a 2x2x2 subcube. A move may
+     * leave an improper cube with one -1 entry, the following moves start from it until the cube is proper again.
+     * About N^3 moves mix the chain starting from the cyclic square
+     * @param _N size of Latin square
+     * @param _random random generator of moves
+     * @return values of all positions (index row*N+col)
+     */
+    public static int[] randomLatinSquare(int _N, Random _random)
+    {
+        byte[] cube = new byte[_N * _N * _N];
+        for(int r = 0; r < _N; r++)
+            for(int c = 0; c < _N; c++) cube[(r * _N + c) * _N + (r + c) % _N] = 1;
+
+        if(_N > 2)
+        {
+            long moves = (long) _N * _N * _N;
+            int improper = -1;              //Index of -1 entry of improper cube (-1 if cube is proper)
+            for(long m = 0; m < moves || improper != -1; m++)
+            {
+                int x, y, z;
+                if(improper == -1)
+                {
+                    //Random 0 entry of proper cube
+                    do
+                    {
+                        x = _random.nextInt(_N);
+                        y = _random.nextInt(_N);
+                        z = _random.nextInt(_N);
+                    }
+                    while(cube[(x * _N + y) * _N + z] != 0);
+                }
+                else
+                {
+                    x = improper / (_N * _N);
+                    y = improper / _N % _N;
+                    z = improper % _N;
+                }
+                //1 entries on lines through (x, y, z) - one of two random ones if cube is improper
+                int x1 = findOne(cube, _N, -1, y, z, _random);
+                int y1 = findOne(cube, _N, x, -1, z, _random);
+                int z1 = findOne(cube, _N, x, y, -1, _random);
+
+                cube[(x * _N + y) * _N + z]++;
+                cube[(x * _N + y1) * _N + z1]++;
+                cube[(x1 * _N + y) * _N + z1]++;
+                cube[(x1 * _N + y1) * _N + z]++;
+                cube[(x * _N + y) * _N + z1]--;
+                cube[(x * _N + y1) * _N + z]--;
+                cube[(x1 * _N + y) * _N + z]--;
+                int last = (x1 * _N + y1) * _N + z1;
+                cube[last]--;
+                improper = cube[last] < 0 ? last : -1;
+            }
+        }
+
+        int[] result = new int[_N * _N];
+        for(int i = 0; i < result.length; i++)
+        {
+            for(int v = 0; v < _N; v++)
+            {
+                if(cube[i * _N + v] == 1) result[i] = v;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Finds a 1 entry on a line of incidence cube (one coordinate is free)
+     * @param _cube incidence cube
+     * @param _N size of Latin square
+     * @param _x row of line (-1 if it's the free coordinate)
+     * @param _y column of line (-1 if it's the free coordinate)
+     * @param _z value of line (-1 if it's the free coordinate)
+     * @param _random random choice between two 1 entries of a line of improper cube
+     * @return free coordinate of the found entry
+     */
+    private static int findOne(byte[] _cube, int _N, int _x, int _y, int _z, Random _random)
+    {
+        int result = -1;
+        int found = 0;
+        for(int k = 0; k < _N; k++)
+        {
+            int x = _x == -1 ? k : _x;
+            int y = _y == -1 ? k : _y;
+            int z = _z == -1 ? k : _z;
+            if(_cube[(x * _N + y) * _N + z] == 1 && _random.nextInt(++found) == 0) result = k;
+        }
+        return result;
+    }
+}
@@ -0,0 +1,53 @@
+package csp_core;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests of AllDifferent - Hall sets and infeasible scopes
+ */
+public class AllDifferentTest
+{
+    private static BitDomains domains(int[][] _values, int _capacity)
+    {
+        BitDomains result = new BitDomains(_values.length, _capacity);
+        for(int var = 0; var < _values.length; var++)
+        {
+            for(int val : _values[var]) result.add(var, val);
+        }
+        return result;
+    }
+
+    private static AllDifferent.Pruner pruner(BitDomains _domains)
+    {
+        return (_var, _val) ->
+        {
+            _domains.remove(_var, _val);
+            return !_domains.isEmpty(_var);
+        };
+    }
+
+    @Test
+    public void hallSetValuesAreDeletedFromOtherVariables()
+    {
+        BitDomains d = domains(new int[][]{{0, 1}, {0, 1}, {0, 1, 2, 3}, {1, 3}}, 4);
+        AllDifferent constraint = new AllDifferent(new int[]{0, 1, 2, 3}, 4);
+        int[] assignment = {-1, -1, -1, -1};
+        assertTrue(constraint.propagate(d, assignment, pruner(d)));
+        assertEquals(1, d.size(2));
+        assertEquals(2, d.first(2));
+        assertEquals(3, d.first(3));
+        assertEquals(2, d.size(0));
+    }
+
+    @Test
+    public void moreVariablesThanValuesFail()
+    {
+        BitDomains d = domains(new int[][]{{0, 1}, {0, 1}, {1, 0}}, 2);
+        AllDifferent constraint = new AllDifferent(new int[]{0, 1, 2}, 2);
+        assertFalse(constraint.propagate(d, new int[]{-1, -1, -1}, pruner(d)));
+    }
+}
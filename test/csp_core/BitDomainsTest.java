@@ -0,0 +1,48 @@
+package csp_core;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests of BitDomains - single and multi word domains
+ */
+public class BitDomainsTest
+{
+    @Test
+    public void valuesAreScannedInOrderAcrossWords()
+    {
+        BitDomains domains = new BitDomains(2, 130);
+        domains.add(1, 3);
+        domains.add(1, 64);
+        domains.add(1, 129);
+
+        assertEquals(3, domains.size(1));
+        assertEquals(3, domains.first(1));
+        assertEquals(64, domains.next(1, 4));
+        assertEquals(129, domains.next(1, 65));
+        assertEquals(-1, domains.next(1, 130));
+        assertEquals(129, domains.last(1));
+        assertTrue(domains.isEmpty(0));
+    }
+
+    @Test
+    public void fillRemoveAndGrowKeepValues()
+    {
+        BitDomains domains = new BitDomains(3, 10);
+        domains.fillAll(10);
+        assertTrue(domains.remove(2, 9));
+        assertFalse(domains.remove(2, 9));
+        domains.removeFromAll(0);
+        domains.removeFromAll(70);
+
+        domains.ensureCapacity(100);
+        assertEquals(8, domains.size(2));
+        assertEquals(9, domains.size(0));
+        assertFalse(domains.contains(1, 0));
+        domains.addToAll(99);
+        assertEquals(99, domains.last(1));
+    }
+}
@@ -0,0 +1,86 @@
+package csp_core;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests of CheckpointFile - round trip of all fields, truncated and corrupted files are rejected
+ */
+public class CheckpointFileTest
+{
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static Checkpoint checkpoint()
+    {
+        return new Checkpoint(Algorithm.FORWARD_CHECKING, true, VarOrdering.SMALLEST_DOMAIN, 2,
+                new int[]{0, 5, 3}, new int[]{1, 0, -1}, 1234567890123L, 42,
+                new int[]{1, -1, -1, -1, -1, 0, -1, -1, -1}, new long[]{2, 5, 7, 7, 3, 1, 6, 7, 4});
+    }
+
+    @Test
+    public void writtenCheckpointIsReadBack() throws IOException
+    {
+        Path file = folder.getRoot().toPath().resolve("search.ckpt");
+        Checkpoint written = checkpoint();
+        CheckpointFile.write(file, written);
+        Checkpoint read = CheckpointFile.read(file);
+
+        assertEquals(written.getAlgorithm(), read.getAlgorithm());
+        assertEquals(written.isEnumerating(), read.isEnumerating());
+        assertEquals(written.getVarOrdering(), read.getVarOrdering());
+        assertEquals(written.getDepth(), read.getDepth());
+        assertArrayEquals(written.getVars(), read.getVars());
+        assertArrayEquals(written.getVals(), read.getVals());
+        assertEquals(written.getSteps(), read.getSteps());
+        assertEquals(written.getSolutionsCount(), read.getSolutionsCount());
+        assertArrayEquals(written.getValues(), read.getValues());
+        assertArrayEquals(written.getDomains(), read.getDomains());
+        assertTrue(Files.notExists(file.resolveSibling("search.ckpt.tmp")));
+    }
+
+    @Test
+    public void truncatedFileIsRejected() throws IOException
+    {
+        Path file = folder.getRoot().toPath().resolve("search.ckpt");
+        CheckpointFile.write(file, checkpoint());
+        byte[] bytes = Files.readAllBytes(file);
+        Files.write(file, Arrays.copyOf(bytes, bytes.length - 9));
+        assertRejected(file);
+    }
+
+    @Test
+    public void corruptedFileIsRejected() throws IOException
+    {
+        Path file = folder.getRoot().toPath().resolve("search.ckpt");
+        CheckpointFile.write(file, checkpoint());
+        byte[] bytes = Files.readAllBytes(file);
+        bytes[bytes.length / 2] ^= 1;
+        Files.write(file, bytes);
+        assertRejected(file);
+    }
+
+    private static void assertRejected(Path _file)
+    {
+        try
+        {
+            CheckpointFile.read(_file);
+            fail("Damaged checkpoint has been loaded");
+        }
+        catch(IOException e)
+        {
+            assertTrue(e.getMessage().contains(_file.toString()));
+        }
+    }
+}
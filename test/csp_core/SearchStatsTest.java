@@ -0,0 +1,67 @@
+package csp_core;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests of SearchStats - counters per depth, merging, published snapshots and optional timing
+ */
+public class SearchStatsTest
+{
+    @Test
+    public void countersAreKeptPerDepthAndMerged()
+    {
+        SearchStats stats = new SearchStats(1);
+        stats.node(0);
+        stats.node(3);
+        stats.failure(3);
+        stats.backtrack(0);
+        stats.prune(3, 5);
+        stats.wipeout(3, 1);
+        assertEquals(2, stats.getNodes());
+        assertEquals(1, stats.getNodes(3));
+        assertEquals(0, stats.getNodes(7));
+        assertEquals(3, stats.getMaxDepth());
+
+        SearchStats other = new SearchStats(8);
+        other.node(5);
+        other.prune(5, 2);
+        stats.merge(other);
+        assertEquals(3, stats.getNodes());
+        assertEquals(7, stats.getPrunings());
+        assertEquals(1, stats.getWipeouts());
+        assertEquals(5, stats.getMaxDepth());
+    }
+
+    @Test
+    public void snapshotIsPublishedEveryInterval()
+    {
+        SearchStats stats = new SearchStats(4);
+        stats.setSnapshotInterval(3);
+        for(int i = 0; i < 3; i++) stats.node(1);
+        assertNull(stats.getSnapshot());
+        stats.node(2);
+        assertNotNull(stats.getSnapshot());
+        assertEquals(4, stats.getSnapshot().getNodes());
+        assertEquals(2, stats.getSnapshot().getDepth());
+    }
+
+    @Test
+    public void phasesAreTimedOnlyWhenTurnedOn()
+    {
+        SearchStats stats = new SearchStats(1);
+        assertEquals(0, stats.startTimer());
+        stats.addCheckTime(stats.startTimer());
+        assertEquals(0, stats.getCheckNanos());
+
+        stats.setTimed(true);
+        long start = stats.startTimer();
+        while(System.nanoTime() == start) Thread.yield();
+        stats.addCheckTime(start);
+        assertTrue(stats.getCheckNanos() > 0);
+    }
+}
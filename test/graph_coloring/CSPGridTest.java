@@ -0,0 +1,365 @@
+package graph_coloring;
+
+import csp_core.Algorithm;
+import csp_core.Checkpoint;
+import csp_core.CheckpointFile;
+import csp_core.RestartSchedule;
+import csp_core.SearchLimits;
+import csp_core.SearchResult;
+import csp_core.VarOrdering;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests of CSPGrid - colorings of all algorithms, counts of colorings, limits, pause/resume, checkpoints, warm start, pre-colored cells, reset and resize
+ */
+public class CSPGridTest
+{
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static final int[][] OFFSETS_1 = {{-1, 0}, {0, 1}, {1, 0}, {0, -1}};
+    private static final int[][] OFFSETS_2 = {{-2, 0}, {-1, 1}, {0, 2}, {1, 1}, {2, 0}, {1, -1}, {0, -2}, {-1, -1}};
+
+    private static CSPGrid solver(int _gSize)
+    {
+        CSPGrid result = new CSPGrid(_gSize);
+        result.setPrintSolution(false);
+        return result;
+    }
+
+    private static long run(CSPGrid _solver, Algorithm _algorithm)
+    {
+        switch(_algorithm)
+        {
+            case BACKTRACKING:
+                return _solver.Backtracking(0);
+            case FORWARD_CHECKING:
+                return _solver.ForwardChecking(0);
+            case CONFLICT_DIRECTED_BACKJUMPING:
+                return _solver.ConflictDirectedBackjumping(0);
+            default:
+                return _solver.MaintainingArcConsistency(0);
+        }
+    }
+
+    /**
+     * Checks if neighbours' colors differ by at least 2 and colors of positions distant by 2 differ
+     */
+    static boolean isValidColoring(Integer[][] _colors)
+    {
+        int n = _colors.length;
+        for(int r = 0; r < n; r++)
+        {
+            for(int c = 0; c < n; c++)
+            {
+                if(_colors[r][c] == null || _colors[r][c] < 0) return false;
+                for(int[] offset : OFFSETS_1)
+                {
+                    Integer other = colorAt(_colors, r + offset[0], c + offset[1]);
+                    if(other != null && Math.abs(other - _colors[r][c]) < 2) return false;
+                }
+                for(int[] offset : OFFSETS_2)
+                {
+                    Integer other = colorAt(_colors, r + offset[0], c + offset[1]);
+                    if(other != null && other.equals(_colors[r][c])) return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    private static Integer colorAt(Integer[][] _colors, int _row, int _column)
+    {
+        if(_row < 0 || _column < 0 || _row >= _colors.length || _column >= _colors.length) return null;
+        return _colors[_row][_column];
+    }
+
+    @Test
+    public void everyAlgorithmFindsColoringWithTheSmallestAmountOfColors()
+    {
+        for(VarOrdering varOrdering : VarOrdering.values())
+        {
+            for(int n = 2; n <= 4; n++)
+            {
+                CSPGrid reference = solver(n);
+                reference.ForwardChecking(0);
+                int colors = CSPGrid.colorsUsed(reference.getSolution());
+
+                for(Algorithm algorithm : Algorithm.values())
+                {
+                    CSPGrid s = solver(n);
+                    s.setVarOrdering(varOrdering);
+                    run(s, algorithm);
+                    assertTrue(varOrdering + " " + algorithm + " n=" + n, isValidColoring(s.getSolution()));
+                    assertEquals(varOrdering + " " + algorithm + " n=" + n, colors, CSPGrid.colorsUsed(s.getSolution()));
+                }
+                CSPGrid s = solver(n);
+                s.setVarOrdering(varOrdering);
+                s.setSeed(7);
+                s.MaintainingArcConsistencyWithRestarts(RestartSchedule.luby(3));
+                assertTrue(isValidColoring(s.getSolution()));
+                assertEquals(colors, CSPGrid.colorsUsed(s.getSolution()));
+                //Random order and restarts without propagation have heavy-tailed runtime of proofs that colors aren't enough
+                if(n > 3) continue;
+                for(Algorithm algorithm : Algorithm.values())
+                {
+                    s = solver(n);
+                    s.setVarOrdering(varOrdering);
+                    s.setSeed(7);
+                    run(s, algorithm);
+                    assertTrue(varOrdering + " seeded " + algorithm + " n=" + n, isValidColoring(s.getSolution()));
+                    assertEquals(varOrdering + " seeded " + algorithm + " n=" + n, colors, CSPGrid.colorsUsed(s.getSolution()));
+                    s = solver(n);
+                    s.setVarOrdering(varOrdering);
+                    s.setSeed(7);
+                    s.SearchWithRestarts(algorithm, RestartSchedule.luby(3));
+                    assertTrue(varOrdering + " restarts " + algorithm + " n=" + n, isValidColoring(s.getSolution()));
+                    assertEquals(varOrdering + " restarts " + algorithm + " n=" + n, colors, CSPGrid.colorsUsed(s.getSolution()));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void countBySymmetryMatchesPlainCount()
+    {
+        for(int n = 1; n <= 3; n++)
+        {
+            for(int colors = 3; colors <= 9; colors++)
+            {
+                long expected = solver(n).countSolutions(colors, false);
+                assertEquals(n + " " + colors, expected, solver(n).countSolutions(colors, true));
+                assertEquals(n + " " + colors, expected, solver(n).countSolutionsBySymmetry(colors));
+            }
+        }
+        assertEquals(205240, solver(3).countSolutions(9, true));
+    }
+
+    @Test
+    public void nodeLimitStopsEveryAlgorithmExactly()
+    {
+        for(Algorithm algorithm : Algorithm.values())
+        {
+            CSPGrid s = solver(10);
+            SearchLimits limits = new SearchLimits();
+            limits.setNodeLimit(20);
+            SearchResult result = s.solve(algorithm, limits);
+            assertEquals(algorithm.toString(), SearchResult.Status.LIMIT, result.getStatus());
+            assertEquals(SearchLimits.Reason.NODES, result.getReason());
+            assertEquals(20, result.getStats().getNodes());
+            assertNull(result.getSolution());
+            assertEquals(0, s.getGrid().getFilled_amount());
+        }
+    }
+
+    @Test
+    public void maxColorsBoundsSearch()
+    {
+        CSPGrid s = solver(4);
+        s.setMaxColors(4);
+        assertEquals(SearchResult.Status.UNSAT, s.solve(Algorithm.FORWARD_CHECKING, null).getStatus());
+        s.reset();
+        s.setMaxColors(Integer.MAX_VALUE);
+        assertEquals(SearchResult.Status.SOLVED, s.solve(Algorithm.FORWARD_CHECKING, null).getStatus());
+    }
+
+    @Test
+    public void pausedSearchResumesToTheSameSolution()
+    {
+        for(Algorithm algorithm : Algorithm.values())
+        {
+            CSPGrid plain = solver(4);
+            long steps = run(plain, algorithm);
+
+            CSPGrid paused = solver(4);
+            long[] nodes = {0};
+            paused.setStopCheckInterval(1);
+            paused.setStopCondition(() ->
+            {
+                if(++nodes[0] % 7 == 0) paused.pause();
+                return false;
+            });
+            long resumedSteps = run(paused, algorithm);
+            int pauses = 0;
+            while(paused.isPaused())
+            {
+                pauses++;
+                resumedSteps = paused.resume();
+            }
+            assertTrue(pauses > 0);
+            assertEquals(algorithm.toString(), steps, resumedSteps);
+            assertArrayEquals(plain.getSolution(), paused.getSolution());
+        }
+    }
+
+    @Test
+    public void warmStartBoundsSearch()
+    {
+        CSPGrid s = solver(6);
+        int greedyColors = s.warmStart();
+        s.ForwardChecking(0);
+        assertTrue(isValidColoring(s.getSolution()));
+        assertTrue(CSPGrid.colorsUsed(s.getSolution()) <= greedyColors);
+
+        CSPGrid greedy = solver(6);
+        assertEquals(greedy.Dsatur(), CSPGrid.colorsUsed(greedy.getSolution()));
+        assertTrue(isValidColoring(greedy.getSolution()));
+        assertEquals(greedy.WelshPowell(), CSPGrid.colorsUsed(greedy.getSolution()));
+        assertTrue(isValidColoring(greedy.getSolution()));
+    }
+
+    @Test
+    public void preColoredCellsAreKept()
+    {
+        CSPGrid s = solver(4);
+        Integer[][] cells = new Integer[4][4];
+        cells[0][0] = 5;
+        cells[2][1] = 0;
+        assertTrue(s.loadPartialGrid(cells));
+        s.ForwardChecking(0);
+        Integer[][] solution = s.getSolution();
+        assertTrue(isValidColoring(solution));
+        assertEquals(Integer.valueOf(5), solution[0][0]);
+        assertEquals(Integer.valueOf(0), solution[2][1]);
+    }
+
+    @Test
+    public void preColoredCellsOutOfBoundOrClashingAreRejected()
+    {
+        Integer[][] cells = new Integer[3][3];
+        cells[1][2] = Grid.MAX_COLORS;
+        try
+        {
+            solver(3).loadPartialGrid(cells);
+            fail("Color above MAX_COLORS has been loaded");
+        }
+        catch(IllegalArgumentException e)
+        {
+            assertTrue(e.getMessage().contains("1/2"));
+        }
+
+        CSPGrid bounded = solver(3);
+        bounded.setMaxColors(6);
+        cells[1][2] = 6;
+        try
+        {
+            bounded.loadPartialGrid(cells);
+            fail("Color above maxColors has been loaded");
+        }
+        catch(IllegalArgumentException e)
+        {
+            assertTrue(e.getMessage().contains("0..5"));
+        }
+
+        Integer[][] clash = new Integer[3][3];
+        clash[0][0] = 3;
+        clash[0][1] = 4;
+        assertFalse(solver(3).loadPartialGrid(clash));
+    }
+
+    @Test
+    public void enumerationRestoredFromCheckpointsCountsAllSolutions() throws IOException
+    {
+        Path file = folder.getRoot().toPath().resolve("grid.ckpt");
+        for(boolean forwardChecking : new boolean[]{true, false})
+        {
+            CSPGrid s = solver(3);
+            s.pause();
+            s.countSolutions(9, forwardChecking);
+            int restores = 0;
+            while(s.isPaused())
+            {
+                CheckpointFile.write(file, s.getCheckpoint());
+                CSPGrid restored = solver(3);
+                long[] nodes = {0};
+                restored.setStopCheckInterval(1);
+                restored.setStopCondition(() ->
+                {
+                    if(++nodes[0] % 100000 == 0) restored.pause();
+                    return false;
+                });
+                restored.restore(9, file, null);
+                restored.resume();
+                s = restored;
+                restores++;
+            }
+            assertTrue(restores > 1);
+            assertEquals(205240, s.getSolutionsCount());
+        }
+    }
+
+    @Test
+    public void periodicCheckpointSurvivesStoppedEnumeration() throws IOException
+    {
+        Path file = folder.getRoot().toPath().resolve("grid.ckpt");
+        CSPGrid crashed = solver(3);
+        crashed.setCheckpointFile(file, 20000);
+        long[] nodes = {0};
+        crashed.setStopCheckInterval(1);
+        crashed.setStopCondition(() -> ++nodes[0] > 150000);
+        assertTrue(crashed.countSolutions(9, true) < 205240);
+
+        CSPGrid restored = solver(3);
+        restored.restore(9, file, null);
+        restored.resume();
+        assertEquals(205240, restored.getSolutionsCount());
+    }
+
+    @Test
+    public void checkpointOfOtherAmountOfColorsIsRejected()
+    {
+        CSPGrid s = solver(3);
+        long[] nodes = {0};
+        s.setStopCheckInterval(1);
+        s.setStopCondition(() ->
+        {
+            if(++nodes[0] == 50) s.pause();
+            return false;
+        });
+        s.countSolutions(9, true);
+        Checkpoint checkpoint = s.getCheckpoint();
+        assertNotNull(checkpoint);
+        try
+        {
+            solver(3).restore(10, checkpoint, null);
+            fail("Checkpoint of 9 colors has been restored with 10 colors");
+        }
+        catch(IllegalArgumentException e)
+        {
+            assertTrue(e.getMessage().contains("colors"));
+        }
+    }
+
+    @Test
+    public void resetAndResizeSolveLikeNewSolver()
+    {
+        CSPGrid reused = solver(3);
+        for(int n : new int[]{3, 5, 2, 4})
+        {
+            reused.resize(n);
+            for(Algorithm algorithm : Algorithm.values())
+            {
+                CSPGrid fresh = solver(n);
+                long steps = run(fresh, algorithm);
+                reused.reset();
+                assertEquals(n + " " + algorithm, steps, run(reused, algorithm));
+                assertArrayEquals(fresh.getSolution(), reused.getSolution());
+            }
+            reused.reset();
+            assertEquals(solver(n).countSolutions(7, true), reused.countSolutions(7, true));
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package graph_coloring;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests of ChromaticNumber - bounds meet at the amount of colors found by complete search
+ */
+public class ChromaticNumberTest
+{
+    @Test
+    public void boundsMeetAtTheSmallestAmountOfColors()
+    {
+        for(int n = 1; n <= 5; n++)
+        {
+            CSPGrid reference = new CSPGrid(n);
+            reference.setPrintSolution(false);
+            reference.ForwardChecking(0);
+
+            ChromaticNumber chromatic = new ChromaticNumber(n);
+            int colors = chromatic.solve();
+            assertEquals("n=" + n, CSPGrid.colorsUsed(reference.getSolution()), colors);
+            assertEquals("n=" + n, colors, chromatic.getLowerBound());
+            assertEquals("n=" + n, colors, chromatic.getUpperBound());
+            assertTrue("n=" + n, CSPGridTest.isValidColoring(chromatic.getSolution()));
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package graph_coloring;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Tests of graph coloring Grid - greedy colorings with pre-colored cells, reuse of arrays on resize
+ */
+public class GridTest
+{
+    private static int[] dsaturWith(int _gSize, int _position, int _color)
+    {
+        Grid grid = new Grid(_gSize);
+        int[] colors = new int[_gSize * _gSize];
+        Arrays.fill(colors, Grid.UNSET);
+        colors[_position] = _color;
+        grid.loadPartial(colors);
+        int[] result = grid.colorGreedyDsatur();
+        result[_position] = Grid.UNSET;
+        return result;
+    }
+
+    @Test
+    public void farPreColoredCellDoesNotForbidLowColors()
+    {
+        //Colors above 63 used to wrap in the bitmask of forbidden colors (70 forbade 5..7)
+        for(int position = 0; position < 25; position++)
+        {
+            assertArrayEquals("position " + position, dsaturWith(5, position, 1000), dsaturWith(5, position, 70));
+            assertArrayEquals("position " + position, dsaturWith(5, position, 1000), dsaturWith(5, position, 100));
+        }
+    }
+
+    @Test
+    public void resizedGridColorsLikeNewGrid()
+    {
+        Grid reused = new Grid(7);
+        for(int n : new int[]{3, 7, 5, 9, 2})
+        {
+            reused.resize(n);
+            Grid fresh = new Grid(n);
+            assertEquals(n * n, reused.colorGreedyDsatur().length);
+            assertArrayEquals(fresh.colorGreedyDsatur(), reused.colorGreedyDsatur());
+            assertArrayEquals(fresh.colorGreedyWelshPowell(), reused.colorGreedyWelshPowell());
+        }
+    }
+}
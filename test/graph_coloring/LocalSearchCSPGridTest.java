@@ -0,0 +1,30 @@
+package graph_coloring;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests of LocalSearchCSPGrid - min-conflicts reaches colorings with the amount of colors of greedy coloring
+ */
+public class LocalSearchCSPGridTest
+{
+    @Test
+    public void minConflictsFindsColoring()
+    {
+        for(int n = 2; n <= 8; n++)
+        {
+            CSPGrid greedy = new CSPGrid(n);
+            greedy.setPrintSolution(false);
+            int colors = greedy.Dsatur();
+
+            LocalSearchCSPGrid s = new LocalSearchCSPGrid(n, colors, n);
+            s.setPrintSolution(false);
+            s.MinConflicts(1000000);
+            assertEquals("n=" + n, 0, s.getConflicts());
+            assertTrue("n=" + n, CSPGridTest.isValidColoring(s.getSolution()));
+            assertTrue("n=" + n, CSPGrid.colorsUsed(s.getSolution()) <= colors);
+        }
+    }
+}
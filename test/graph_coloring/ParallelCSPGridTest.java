@@ -0,0 +1,44 @@
+package graph_coloring;
+
+import csp_core.VarOrdering;
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests of ParallelCSPGrid - deterministic parallel search returns the solution of sequential search
+ */
+public class ParallelCSPGridTest
+{
+    @Test
+    public void parallelSearchFindsSequentialSolution()
+    {
+        for(VarOrdering varOrdering : new VarOrdering[]{VarOrdering.FIRST_NOT_FILLED, VarOrdering.MOST_UNFILLED_NEIGHBOURS})
+        {
+            for(int n = 2; n <= 4; n++)
+            {
+                CSPGrid sequential = new CSPGrid(n);
+                sequential.setPrintSolution(false);
+                sequential.setVarOrdering(varOrdering);
+                sequential.ForwardChecking(0);
+
+                for(int threads : new int[]{1, 4})
+                {
+                    ParallelCSPGrid parallel = new ParallelCSPGrid(n);
+                    parallel.setVarOrdering(varOrdering);
+                    assertArrayEquals(varOrdering + " n=" + n, sequential.getSolution(), parallel.ForwardChecking(threads));
+                    assertArrayEquals(varOrdering + " n=" + n, sequential.getSolution(), parallel.Backtracking(threads));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void nonDeterministicSearchFindsValidColoring()
+    {
+        ParallelCSPGrid parallel = new ParallelCSPGrid(5);
+        parallel.setDeterministic(false);
+        assertTrue(CSPGridTest.isValidColoring(parallel.ForwardChecking(4)));
+    }
+}
@@ -0,0 +1,387 @@
+package latin_square;
+
+import csp_core.Algorithm;
+import csp_core.Checkpoint;
+import csp_core.CheckpointFile;
+import csp_core.RestartSchedule;
+import csp_core.SearchLimits;
+import csp_core.SearchResult;
+import csp_core.VarOrdering;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.file.Path;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests of CSPLatinSquare - solutions of all algorithms, counts of Latin squares, limits, pause/resume, checkpoints, partial squares, reset and resize
+ */
+public class CSPLatinSquareTest
+{
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static CSPLatinSquare solver(int _gSize)
+    {
+        CSPLatinSquare result = new CSPLatinSquare(_gSize);
+        result.setPrintSolution(false);
+        return result;
+    }
+
+    private static long run(CSPLatinSquare _solver, Algorithm _algorithm)
+    {
+        switch(_algorithm)
+        {
+            case BACKTRACKING:
+                return _solver.Backtracking(0);
+            case FORWARD_CHECKING:
+                return _solver.ForwardChecking(0);
+            case CONFLICT_DIRECTED_BACKJUMPING:
+                return _solver.ConflictDirectedBackjumping(0);
+            default:
+                return _solver.MaintainingArcConsistency(0);
+        }
+    }
+
+    /**
+     * Checks if each row and column of square is a permutation of 0..N-1
+     */
+    static boolean isLatinSquare(Integer[][] _square)
+    {
+        int n = _square.length;
+        for(int i = 0; i < n; i++)
+        {
+            boolean[] inRow = new boolean[n];
+            boolean[] inColumn = new boolean[n];
+            for(int j = 0; j < n; j++)
+            {
+                Integer row = _square[i][j];
+                Integer column = _square[j][i];
+                if(row == null || column == null || row < 0 || row >= n || column < 0 || column >= n) return false;
+                if(inRow[row] || inColumn[column]) return false;
+                inRow[row] = true;
+                inColumn[column] = true;
+            }
+        }
+        return true;
+    }
+
+    @Test
+    public void everyAlgorithmFindsLatinSquare()
+    {
+        for(VarOrdering varOrdering : VarOrdering.values())
+        {
+            for(int n = 2; n <= 7; n++)
+            {
+                for(Algorithm algorithm : Algorithm.values())
+                {
+                    CSPLatinSquare s = solver(n);
+                    s.setVarOrdering(varOrdering);
+                    run(s, algorithm);
+                    assertTrue(varOrdering + " " + algorithm + " n=" + n, isLatinSquare(s.getSolution()));
+                }
+                for(Algorithm algorithm : Algorithm.values())
+                {
+                    CSPLatinSquare s = solver(n);
+                    s.setVarOrdering(varOrdering);
+                    s.setSeed(7);
+                    s.SearchWithRestarts(algorithm, RestartSchedule.luby(3));
+                    assertTrue(varOrdering + " restarts " + algorithm + " n=" + n, isLatinSquare(s.getSolution()));
+                    //Random order without restarts has heavy-tailed runtime
+                    if(n > 5) continue;
+                    s = solver(n);
+                    s.setVarOrdering(varOrdering);
+                    s.setSeed(7);
+                    run(s, algorithm);
+                    assertTrue(varOrdering + " seeded " + algorithm + " n=" + n, isLatinSquare(s.getSolution()));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void statsCountEveryStepOfSearch()
+    {
+        CSPLatinSquare s = solver(6);
+        long steps = s.ForwardChecking(0);
+        assertEquals(steps, s.getStats().getNodes());
+        assertEquals(36, s.getStats().getMaxDepth());
+        assertTrue(s.getStats().getFailures() + s.getStats().getBacktracks() < steps);
+    }
+
+    @Test
+    public void countsMatchKnownAmountsOfLatinSquares()
+    {
+        long[] known = {1, 2, 12, 576, 161280};
+        for(int n = 1; n <= 5; n++)
+        {
+            assertEquals(known[n - 1], solver(n).countSolutions(true));
+            assertEquals(known[n - 1], solver(n).countSolutions(false));
+            assertEquals(BigInteger.valueOf(known[n - 1]), solver(n).countLatinSquaresBySymmetry());
+        }
+        assertEquals(new BigInteger("812851200"), solver(6).countLatinSquaresBySymmetry());
+    }
+
+    @Test
+    public void consumerGetsEachSolutionAndCanStopEnumeration()
+    {
+        CSPLatinSquare s = solver(4);
+        long[] seen = {0};
+        assertEquals(576, s.enumerateSolutions((_values, _n) -> isLatinSquare(toArray(_values, _n)) && ++seen[0] > 0, true));
+        assertEquals(576, seen[0]);
+
+        long[] accepted = {0};
+        assertEquals(7, s.enumerateSolutions((_values, _n) -> ++accepted[0] < 7, false));
+    }
+
+    private static Integer[][] toArray(int[] _values, int _n)
+    {
+        Integer[][] result = new Integer[_n][_n];
+        for(int i = 0; i < _n * _n; i++) result[i / _n][i % _n] = _values[i];
+        return result;
+    }
+
+    @Test
+    public void nodeLimitStopsEveryAlgorithmExactly()
+    {
+        for(Algorithm algorithm : Algorithm.values())
+        {
+            CSPLatinSquare s = solver(12);
+            SearchLimits limits = new SearchLimits();
+            limits.setNodeLimit(20);
+            SearchResult result = s.solve(algorithm, limits);
+            assertEquals(algorithm.toString(), SearchResult.Status.LIMIT, result.getStatus());
+            assertEquals(SearchLimits.Reason.NODES, result.getReason());
+            assertEquals(20, result.getStats().getNodes());
+            assertNull(result.getSolution());
+            assertEquals(0, s.getGrid().getFilled_amount());
+            //Statistics of result are a copy - the next search doesn't change them
+            s.solve(algorithm, null);
+            assertEquals(20, result.getStats().getNodes());
+        }
+    }
+
+    @Test
+    public void stopConditionIsPolledPeriodically()
+    {
+        CSPLatinSquare s = solver(5);
+        long[] polls = {0};
+        s.setStopCondition(() ->
+        {
+            polls[0]++;
+            return false;
+        });
+        s.countSolutions(true);
+        assertTrue(polls[0] > 0);
+        //Stop is checked at each node and each frame taken back, the condition only every 1024 checks
+        assertTrue(polls[0] <= s.getStats().getNodes() / 512 + 2);
+    }
+
+    @Test
+    public void cancelledSearchReturnsLimit()
+    {
+        CSPLatinSquare s = solver(6);
+        SearchLimits limits = new SearchLimits();
+        limits.cancel();
+        SearchResult result = s.solve(Algorithm.FORWARD_CHECKING, limits);
+        assertEquals(SearchResult.Status.LIMIT, result.getStatus());
+        assertEquals(SearchLimits.Reason.CANCELLED, result.getReason());
+
+        assertEquals(SearchResult.Status.SOLVED, s.solve(Algorithm.FORWARD_CHECKING, null).getStatus());
+    }
+
+    @Test
+    public void pausedSearchResumesToTheSameSolution()
+    {
+        for(Algorithm algorithm : Algorithm.values())
+        {
+            CSPLatinSquare plain = solver(7);
+            long steps = run(plain, algorithm);
+
+            CSPLatinSquare paused = solver(7);
+            long[] nodes = {0};
+            paused.setStopCheckInterval(1);
+            paused.setStopCondition(() ->
+            {
+                if(++nodes[0] % 5 == 0) paused.pause();
+                return false;
+            });
+            long resumedSteps = run(paused, algorithm);
+            int pauses = 0;
+            while(paused.isPaused())
+            {
+                pauses++;
+                resumedSteps = paused.resume();
+            }
+            assertTrue(pauses > 0);
+            assertEquals(algorithm.toString(), steps, resumedSteps);
+            assertArrayEquals(plain.getSolution(), paused.getSolution());
+        }
+    }
+
+    @Test
+    public void deepSearchDoesNotNeedThreadStack() throws InterruptedException
+    {
+        CSPLatinSquare s = solver(30);
+        s.setVarOrdering(VarOrdering.SMALLEST_DOMAIN);
+        Thread thread = new Thread(null, () -> s.MaintainingArcConsistency(0), "small stack", 64 * 1024);
+        thread.start();
+        thread.join();
+        assertTrue(isLatinSquare(s.getSolution()));
+    }
+
+    @Test
+    public void partialSquareIsCompleted()
+    {
+        CSPLatinSquare s = solver(5);
+        Integer[][] cells = new Integer[5][5];
+        cells[0][0] = 1;
+        cells[1][1] = 1;
+        cells[2][2] = 3;
+        assertTrue(s.loadPartialSquare(cells));
+        s.MaintainingArcConsistency(0);
+        Integer[][] solution = s.getSolution();
+        assertTrue(isLatinSquare(solution));
+        assertEquals(Integer.valueOf(1), solution[0][0]);
+        assertEquals(Integer.valueOf(3), solution[2][2]);
+    }
+
+    @Test
+    public void partialSquareOutOfRangeIsRejected()
+    {
+        Integer[][] cells = new Integer[4][4];
+        cells[2][3] = 4;
+        try
+        {
+            solver(4).loadPartialSquare(cells);
+            fail("Value 4 has been loaded into square of order 4");
+        }
+        catch(IllegalArgumentException e)
+        {
+            assertTrue(e.getMessage().contains("2/3"));
+        }
+        assertFalse(solver(4).loadPartialSquare(clash()));
+    }
+
+    private static Integer[][] clash()
+    {
+        Integer[][] cells = new Integer[4][4];
+        cells[0][0] = 2;
+        cells[0][3] = 2;
+        return cells;
+    }
+
+    @Test
+    public void enumerationRestoredFromCheckpointsCountsAllSolutions() throws IOException
+    {
+        Path file = folder.getRoot().toPath().resolve("latin.ckpt");
+        for(boolean forwardChecking : new boolean[]{true, false})
+        {
+            CSPLatinSquare s = solver(5);
+            s.pause();
+            s.countSolutions(forwardChecking);
+            int restores = 0;
+            while(s.isPaused())
+            {
+                CheckpointFile.write(file, s.getCheckpoint());
+                CSPLatinSquare restored = solver(5);
+                long[] nodes = {0};
+                restored.setStopCheckInterval(1);
+                restored.setStopCondition(() ->
+                {
+                    if(++nodes[0] % 40000 == 0) restored.pause();
+                    return false;
+                });
+                restored.restore(file, null);
+                restored.resume();
+                s = restored;
+                restores++;
+            }
+            assertTrue(restores > 1);
+            assertEquals(161280, s.getSolutionsCount());
+        }
+    }
+
+    @Test
+    public void periodicCheckpointSurvivesStoppedEnumeration() throws IOException
+    {
+        Path file = folder.getRoot().toPath().resolve("latin.ckpt");
+        CSPLatinSquare crashed = solver(5);
+        crashed.setCheckpointFile(file, 5000);
+        long[] nodes = {0};
+        crashed.setStopCheckInterval(1);
+        crashed.setStopCondition(() -> ++nodes[0] > 30000);
+        long partial = crashed.countSolutions(true);
+        assertTrue(partial < 161280);
+
+        CSPLatinSquare restored = solver(5);
+        long[] streamed = {0};
+        restored.restore(file, (_values, _n) -> ++streamed[0] > 0);
+        long before = restored.getSolutionsCount();
+        restored.resume();
+        assertEquals(161280, restored.getSolutionsCount());
+        assertEquals(161280, before + streamed[0]);
+    }
+
+    @Test
+    public void checkpointOfOtherSquareIsRejected()
+    {
+        CSPLatinSquare s = solver(5);
+        long[] nodes = {0};
+        s.setStopCheckInterval(1);
+        s.setStopCondition(() ->
+        {
+            if(++nodes[0] == 500) s.pause();
+            return false;
+        });
+        s.countSolutions(true);
+        Checkpoint checkpoint = s.getCheckpoint();
+        assertNotNull(checkpoint);
+
+        CSPLatinSquare other = solver(5);
+        Integer[][] cells = new Integer[5][5];
+        cells[4][4] = 0;
+        other.loadPartialSquare(cells);
+        try
+        {
+            other.restore(checkpoint, null);
+            fail("Checkpoint of an empty square has been restored on a partial one");
+        }
+        catch(IllegalArgumentException e)
+        {
+            assertFalse(other.isPaused());
+            assertEquals(1, other.getGrid().getFilled_amount());
+        }
+    }
+
+    @Test
+    public void resetAndResizeSolveLikeNewSolver()
+    {
+        CSPLatinSquare reused = solver(4);
+        for(int n : new int[]{4, 6, 3, 7, 5})
+        {
+            reused.resize(n);
+            for(Algorithm algorithm : Algorithm.values())
+            {
+                CSPLatinSquare fresh = solver(n);
+                long steps = run(fresh, algorithm);
+                reused.reset();
+                assertEquals(n + " " + algorithm, steps, run(reused, algorithm));
+                assertArrayEquals(fresh.getSolution(), reused.getSolution());
+            }
+            if(n > 5) continue;
+            reused.reset();
+            assertEquals(solver(n).countSolutions(true), reused.countSolutions(true));
+        }
+    }
+}
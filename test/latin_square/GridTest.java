@@ -0,0 +1,61 @@
+package latin_square;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests of Latin square Grid - row / column occupancy and backing of forward deletions from trail
+ */
+public class GridTest
+{
+    @Test
+    public void setValueIsForbiddenInItsRowAndColumnUntilUnset()
+    {
+        Grid grid = new Grid(4);
+        Position p = new Position(1, 2);
+        grid.setValAtPosition(3, p);
+        assertFalse(grid.isValAllowedAtPosition(3, new Position(1, 0)));
+        assertFalse(grid.isValAllowedAtPosition(3, new Position(3, 2)));
+        assertTrue(grid.isValAllowedAtPosition(3, new Position(0, 0)));
+        assertTrue(grid.isValAllowedAtPosition(2, new Position(1, 0)));
+
+        //Overwriting frees the previous value
+        grid.setValAtPosition(0, p);
+        assertTrue(grid.isValAllowedAtPosition(3, new Position(1, 0)));
+        assertFalse(grid.isValAllowedAtPosition(0, new Position(1, 0)));
+
+        grid.unsetValAtPosition(p);
+        assertTrue(grid.isValAllowedAtPosition(0, new Position(1, 0)));
+        assertTrue(grid.isValAllowedAtPosition(0, new Position(2, 2)));
+    }
+
+    @Test
+    public void forwardDeletionsAreBackedLevelByLevel()
+    {
+        Grid grid = new Grid(4);
+        Position first = new Position(0, 0);
+        Position second = new Position(1, 1);
+
+        grid.setValAtPosition(0, first);
+        grid.setPositionAsFilled(first);
+        grid.deleteValsFromDomainsForward(first, 0);
+        grid.setValAtPosition(1, second);
+        grid.setPositionAsFilled(second);
+        grid.deleteValsFromDomainsForward(second, 1);
+        assertEquals(2, grid.getDomainSizeAtPosition(new Position(0, 1)));
+        assertEquals(3, grid.getDomainSizeAtPosition(new Position(2, 1)));
+        assertEquals(4, grid.getDomainSizeAtPosition(new Position(2, 2)));
+
+        grid.backDeletedValsFromDomains();
+        assertEquals(3, grid.getDomainSizeAtPosition(new Position(0, 1)));
+        assertEquals(4, grid.getDomainSizeAtPosition(new Position(2, 1)));
+        assertEquals(1, grid.getFirstValFromDomain(new Position(0, 1)));
+
+        grid.backDeletedValsFromDomains();
+        assertEquals(4, grid.getDomainSizeAtPosition(new Position(0, 1)));
+        assertEquals(0, grid.getFirstValFromDomain(new Position(0, 1)));
+    }
+}
@@ -0,0 +1,72 @@
+package latin_square;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests of LocalSearchCSPLatinSquare - min-conflicts reaches Latin squares and keeps given cells
+ */
+public class LocalSearchCSPLatinSquareTest
+{
+    @Test
+    public void minConflictsFindsLatinSquare()
+    {
+        for(int n = 1; n <= 12; n++)
+        {
+            LocalSearchCSPLatinSquare s = new LocalSearchCSPLatinSquare(n, n);
+            s.setPrintSolution(false);
+            s.MinConflicts(1000000);
+            assertEquals("n=" + n, 0, s.getConflicts());
+            assertTrue("n=" + n, CSPLatinSquareTest.isLatinSquare(s.getSolution()));
+        }
+    }
+
+    @Test
+    public void minConflictsKeepsGivenCells()
+    {
+        for(int n = 3; n <= 10; n++)
+        {
+            //Every third cell of a cyclic square is given
+            Integer[][] cells = new Integer[n][n];
+            for(int r = 0; r < n; r++)
+            {
+                for(int c = 0; c < n; c++) cells[r][c] = (r * n + c) % 3 == 0 ? (r + c) % n : null;
+            }
+            CSPLatinSquare partial = new CSPLatinSquare(n);
+            partial.loadPartialSquare(cells);
+
+            LocalSearchCSPLatinSquare s = new LocalSearchCSPLatinSquare(partial.getGrid(), n);
+            s.setPrintSolution(false);
+            s.MinConflicts(1000000);
+            assertEquals("n=" + n, 0, s.getConflicts());
+            assertTrue("n=" + n, CSPLatinSquareTest.isLatinSquare(s.getSolution()));
+            for(int r = 0; r < n; r++)
+            {
+                for(int c = 0; c < n; c++)
+                {
+                    if(cells[r][c] != null) assertEquals("n=" + n, cells[r][c], s.getSolution()[r][c]);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void clashingGivenCellsAreRejected()
+    {
+        Grid grid = new Grid(4);
+        grid.setValAtPosition(2, new Position(0, 1));
+        grid.setValAtPosition(2, new Position(3, 1));
+        try
+        {
+            new LocalSearchCSPLatinSquare(grid, 0);
+            fail("Value 2 has been given twice in column 1");
+        }
+        catch(IllegalArgumentException e)
+        {
+            assertTrue(e.getMessage().contains("3/1"));
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package latin_square;
+
+import csp_core.RestartSchedule;
+import csp_core.VarOrdering;
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests of ParallelCSPLatinSquare - deterministic parallel search returns the solution of sequential search
+ */
+public class ParallelCSPLatinSquareTest
+{
+    @Test
+    public void parallelSearchFindsSequentialSolution()
+    {
+        for(VarOrdering varOrdering : new VarOrdering[]{VarOrdering.FIRST_NOT_FILLED, VarOrdering.MOST_UNFILLED_NEIGHBOURS})
+        {
+            for(int n = 2; n <= 7; n++)
+            {
+                CSPLatinSquare sequential = new CSPLatinSquare(n);
+                sequential.setPrintSolution(false);
+                sequential.setVarOrdering(varOrdering);
+                sequential.ForwardChecking(0);
+
+                for(int threads : new int[]{1, 4})
+                {
+                    ParallelCSPLatinSquare parallel = new ParallelCSPLatinSquare(n);
+                    parallel.setVarOrdering(varOrdering);
+                    assertArrayEquals(varOrdering + " n=" + n, sequential.getSolution(), parallel.ForwardChecking(threads));
+                    assertArrayEquals(varOrdering + " n=" + n, sequential.getSolution(), parallel.Backtracking(threads));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void portfolioFindsLatinSquare()
+    {
+        ParallelCSPLatinSquare parallel = new ParallelCSPLatinSquare(9);
+        assertTrue(CSPLatinSquareTest.isLatinSquare(parallel.Portfolio(3, 1, RestartSchedule.luby(10))));
+    }
+}